@@ -0,0 +1,463 @@
+package Alg.Algorithms.BranchAndBound;
+
+import Alg.FVSAlgorithmInterface;
+import Alg.Kernelization.Approximation;
+import Alg.Kernelization.Kernelization;
+import Alg.Kernelization.ReductionSolution;
+import Alg.Lib.Budget;
+import Alg.Lib.IntGraph;
+import Alg.Lib.IntMultigraph;
+import Alg.Lib.UnionFind;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exact branch and bound on the kernel of Kernelization.kernelot.
+ *
+ * Every node branches on a vertex of maximum degree: either it is in the solution, or it is not, in which case it is
+ * marked permanent and can never be taken any more. The best solution so far starts as the 2-approximation, and a
+ * node is cut off as soon as the vertices taken plus a lower bound for what is left is not smaller than that.
+ *
+ * The lower bounds are a greedy packing of cycles that share no deletable vertex, and the degree bound behind Rule 6:
+ * taking k vertices removes at most the k largest degrees worth of edges, and what is left must be a forest.
+ *
+ * Before the bounds, every node applies the simple rules in a form that respects the permanent vertices, and takes
+ * every vertex that would close a cycle with the permanent vertices.
+ */
+public class BranchAndBound implements FVSAlgorithmInterface
+{
+    /**
+     * Nodes visited over all calls, and the time spent in them
+     */
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    @Override
+    public boolean isExact()
+    {
+        return true;
+    }
+
+    @Override
+    public List<Integer> findFeedbackVertexSet(ReductionSolution partialSolution)
+    {
+        List<Integer> result = findFeedbackVertexSet(partialSolution.reducedGraph);
+        result.addAll(partialSolution.verticesToRemoved);
+        return result;
+    }
+
+    @Override
+    public List<Integer> findFeedbackVertexSet(Multigraph<Integer, DefaultEdge> graph)
+    {
+        long start = System.nanoTime();
+        ReductionSolution kernel = Kernelization.kernelot(graph, true);
+        List<Integer> result = new ArrayList<>(kernel.verticesToRemoved);
+        if (kernel.reducedGraph.vertexSet().isEmpty()) {
+            return result;
+        }
+
+        IntMultigraph compact = IntMultigraph.fromMultigraph(kernel.reducedGraph);
+        HashMap<Integer, Integer> ids = new HashMap<>();
+        for (int v: compact.vertices()) {
+            ids.put(compact.label(v), v);
+        }
+
+        // The approximation is the solution to beat
+        List<Integer> approximation = Approximation.determineFVS2(kernel.reducedGraph, new Integer[0], 1).verticesToRemoved;
+        int[] incumbent = new int[approximation.size()];
+        for (int i = 0; i < incumbent.length; i++) {
+            incumbent[i] = ids.get(approximation.get(i));
+        }
+
+        Search search = new Search(compact, incumbent);
+        try {
+            search.branch(compact);
+        } catch (Budget.Cancelled ex) {
+            // The best solution so far is a solution, just maybe not the smallest
+            for (int v: search.best) {
+                result.add(compact.label(v));
+            }
+            throw new Budget.Cancelled(result);
+        }
+        for (int v: search.best) {
+            result.add(compact.label(v));
+        }
+
+        this.nodes.add(search.nodes);
+        this.nanos.add(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public List<Integer> findFeedbackVertexSet(IntGraph graph)
+    {
+        return this.findFeedbackVertexSet(IntMultigraph.toMultigraph(graph));
+    }
+
+    /**
+     * The number of nodes of the search trees so far
+     *
+     * @return
+     */
+    public long getNodes()
+    {
+        return this.nodes.sum();
+    }
+
+    /**
+     * The number of nodes explored per second, over all calls so far
+     *
+     * @return
+     */
+    public double getNodesPerSecond()
+    {
+        long time = this.nanos.sum();
+        return time == 0 ? 0 : this.nodes.sum() * 1E9 / time;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("BranchAndBound: %d nodes, %.0f nodes/s", this.getNodes(), this.getNodesPerSecond());
+    }
+
+    /**
+     * The state of one search, so the algorithm itself can be used by several threads at once
+     */
+    private static class Search
+    {
+        int[] best;
+        long nodes = 0;
+        final Budget budget = Budget.current();
+
+        // Vertices that are not in the solution in the current branch
+        final boolean[] permanent;
+
+        // The vertices taken in the current branch
+        final int[] taken;
+        int takenSize = 0;
+
+        final UnionFind forest;
+        final int[] parent;
+        final int[] depth;
+        final int[] queue;
+        final int[] work;
+        final boolean[] queued;
+
+        // visited[v] == stamp for the vertices visited by the current breadth first search
+        final int[] visited;
+        int stamp = 0;
+
+        Search(IntGraph graph, int[] incumbent)
+        {
+            int n = graph.capacity();
+            this.best = incumbent;
+            this.permanent = new boolean[n];
+            this.taken = new int[n];
+            this.forest = new UnionFind(n);
+            this.parent = new int[n];
+            this.depth = new int[n];
+            this.queue = new int[n];
+            this.work = new int[n];
+            this.queued = new boolean[n];
+            this.visited = new int[n];
+        }
+
+        /**
+         * Searches for solutions smaller than the best one, for the graph, which may be changed
+         *
+         * @param graph
+         */
+        void branch(IntGraph graph)
+        {
+            this.nodes++;
+            this.budget.check();
+
+            int takenBefore = this.takenSize;
+            try {
+                if (!this.reduce(graph) || this.takenSize >= this.best.length) {
+                    return;
+                }
+
+                if (graph.vertexCount() == 0) {
+                    this.best = Arrays.copyOf(this.taken, this.takenSize);
+                    return;
+                }
+
+                int room = this.best.length - this.takenSize;
+                if (this.degreeBound(graph, room) >= room || this.packingBound(graph.copy(), room) >= room) {
+                    return;
+                }
+
+                int v = -1;
+                for (int u = 0; u < graph.capacity(); u++) {
+                    if (graph.containsVertex(u) && !this.permanent[u]
+                            && (v < 0 || graph.degreeOf(u) > graph.degreeOf(v))) {
+                        v = u;
+                    }
+                }
+                if (v < 0) {
+                    return;
+                }
+
+                // v in the solution
+                IntGraph without = graph.copy();
+                without.removeVertex(v);
+                this.taken[this.takenSize++] = v;
+                this.branch(without);
+                this.takenSize--;
+
+                // v not in the solution, reduce makes sure it does not close a cycle with the other permanent ones
+                this.permanent[v] = true;
+                this.branch(graph);
+                this.permanent[v] = false;
+            } finally {
+                this.takenSize = takenBefore;
+            }
+        }
+
+        /**
+         * Applies the simple rules while respecting the permanent vertices, and takes all vertices that close a cycle
+         * with the permanent vertices
+         *
+         * @param graph
+         * @return false if there is no solution any more
+         */
+        boolean reduce(IntGraph graph)
+        {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int top = 0;
+                for (int v: graph.vertices()) {
+                    top = this.push(top, v);
+                }
+                while (top > 0) {
+                    int v = this.work[--top];
+                    this.queued[v] = false;
+                    if (!graph.containsVertex(v)) continue;
+
+                    int d = graph.degreeOf(v);
+                    if (d <= 1) {
+                        // Rule 0 & Rule 1
+                        if (d == 1) top = this.push(top, graph.neighbourAt(v, 0));
+                        graph.removeVertex(v);
+                    } else if (d == 2 && graph.neighbourCount(v) == 1) {
+                        // A double edge to a, one of the two goes, a is the better choice
+                        int a = graph.neighbourAt(v, 0);
+                        int take = !this.permanent[a] ? a : !this.permanent[v] ? v : -1;
+                        if (take < 0) {
+                            this.clearQueue(top);
+                            return false;
+                        }
+                        graph.removeVertex(v);
+                        top = this.push(top, a);
+                        if (take == a) {
+                            for (int i = 0; i < graph.neighbourCount(a); i++) {
+                                top = this.push(top, graph.neighbourAt(a, i));
+                            }
+                            graph.removeVertex(a);
+                        }
+                        this.taken[this.takenSize++] = take;
+                    } else if (d == 2) {
+                        // Rule 2, unless v is the only one of the three that can be taken
+                        int a = graph.neighbourAt(v, 0);
+                        int b = graph.neighbourAt(v, 1);
+                        if (this.permanent[v] || !this.permanent[a] || !this.permanent[b]) {
+                            graph.removeVertex(v);
+                            if (graph.multiplicity(a, b) < 2) graph.addEdge(a, b);
+                            top = this.push(top, a);
+                            top = this.push(top, b);
+                        }
+                    }
+                }
+
+                // The permanent vertices have to form a forest, a vertex with two edges into one of its trees is taken
+                if (!this.forest.build(graph, (int u) -> this.permanent[u])) {
+                    return false;
+                }
+                for (int v: graph.vertices()) {
+                    if (!this.permanent[v] && this.forest.closesCycle(graph, v, (int u) -> this.permanent[u])) {
+                        graph.removeVertex(v);
+                        this.taken[this.takenSize++] = v;
+                        changed = true;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Pushes v on the stack of vertices to inspect, unless it is on there already
+         *
+         * @return the new top of the stack
+         */
+        private int push(int top, int v)
+        {
+            if (!this.queued[v]) {
+                this.queued[v] = true;
+                this.work[top++] = v;
+            }
+            return top;
+        }
+
+        private void clearQueue(int top)
+        {
+            while (top > 0) {
+                this.queued[this.work[--top]] = false;
+            }
+        }
+
+        /**
+         * The smallest k such that removing the k largest degrees of deletable vertices leaves few enough edges for
+         * a forest, or room if that is at least room
+         */
+        int degreeBound(IntGraph graph, int room)
+        {
+            int count = 0;
+            for (int v: graph.vertices()) {
+                if (!this.permanent[v]) this.work[count++] = graph.degreeOf(v);
+            }
+            Arrays.sort(this.work, 0, count);
+
+            long edges = graph.edgeCount();
+            int vertices = graph.vertexCount();
+            for (int k = 0; k < room && k <= count; k++) {
+                if (edges <= Math.max(0, vertices - k - 1)) return k;
+                if (k < count) edges -= this.work[count - 1 - k];
+            }
+            return room;
+        }
+
+        /**
+         * The number of cycles found greedily that share no deletable vertex, or room if that is at least room. Short
+         * cycles are found with a breadth first search from a vertex of small degree.
+         *
+         * @param graph Is changed
+         * @param room
+         */
+        int packingBound(IntGraph graph, int room)
+        {
+            int cycles = 0;
+            while (cycles < room) {
+                this.peel(graph);
+                if (graph.vertexCount() == 0) break;
+
+                int root = -1;
+                for (int v: graph.vertices()) {
+                    if (root < 0 || graph.degreeOf(v) < graph.degreeOf(root)) root = v;
+                }
+                if (!this.removeShortCycle(graph, root)) break;
+                cycles++;
+            }
+            return cycles;
+        }
+
+        /**
+         * Removes vertices of degree at most one, until there are none
+         */
+        private void peel(IntGraph graph)
+        {
+            int top = 0;
+            for (int v: graph.vertices()) {
+                if (graph.degreeOf(v) <= 1) this.work[top++] = v;
+            }
+            while (top > 0) {
+                int v = this.work[--top];
+                if (!graph.containsVertex(v) || graph.degreeOf(v) > 1) continue;
+                if (graph.degreeOf(v) == 1) {
+                    int u = graph.neighbourAt(v, 0);
+                    graph.removeVertex(v);
+                    if (graph.degreeOf(u) <= 1) this.work[top++] = u;
+                } else {
+                    graph.removeVertex(v);
+                }
+            }
+        }
+
+        /**
+         * Finds a cycle with a breadth first search from root, and removes its deletable vertices
+         *
+         * @return false if no cycle with a deletable vertex was found
+         */
+        private boolean removeShortCycle(IntGraph graph, int root)
+        {
+            int head = 0;
+            int tail = 0;
+            if (++this.stamp == 0) {
+                // After an overflow, old marks could look current again
+                Arrays.fill(this.visited, 0);
+                this.stamp = 1;
+            }
+            this.parent[root] = -1;
+            this.depth[root] = 0;
+            this.queue[tail++] = root;
+            this.visited[root] = this.stamp;
+            while (head < tail) {
+                int u = this.queue[head++];
+                for (int i = 0; i < graph.neighbourCount(u); i++) {
+                    int w = graph.neighbourAt(u, i);
+                    if (graph.multiplicityAt(u, i) > 1) {
+                        // A cycle of two vertices
+                        this.work[0] = u;
+                        this.work[1] = w;
+                        return this.removeDeletable(graph, 2);
+                    }
+                    if (w == this.parent[u]) continue;
+                    if (this.visited[w] == this.stamp) {
+                        return this.removeCycle(graph, u, w);
+                    }
+                    this.visited[w] = this.stamp;
+                    this.parent[w] = u;
+                    this.depth[w] = this.depth[u] + 1;
+                    this.queue[tail++] = w;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Removes the deletable vertices of the cycle formed by the tree paths to u and w and the edge between them
+         *
+         * @return whether the cycle has a deletable vertex
+         */
+        private boolean removeCycle(IntGraph graph, int u, int w)
+        {
+            int count = 0;
+            while (u != w) {
+                if (this.depth[u] >= this.depth[w]) {
+                    this.work[count++] = u;
+                    u = this.parent[u];
+                } else {
+                    this.work[count++] = w;
+                    w = this.parent[w];
+                }
+            }
+            this.work[count++] = u;
+            return this.removeDeletable(graph, count);
+        }
+
+        /**
+         * Removes the deletable vertices of the first count vertices of work
+         *
+         * @return whether there were any
+         */
+        private boolean removeDeletable(IntGraph graph, int count)
+        {
+            boolean deletable = false;
+            for (int i = 0; i < count; i++) {
+                if (!this.permanent[this.work[i]]) {
+                    graph.removeVertex(this.work[i]);
+                    deletable = true;
+                }
+            }
+            return deletable;
+        }
+    }
+}
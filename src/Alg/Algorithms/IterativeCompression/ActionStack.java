@@ -6,30 +6,50 @@
 
 package Alg.Algorithms.IterativeCompression;
 
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.ArrayList;
 
 /**
+ * Performed actions, most recent on top. Besides popping single actions, the stack can be used as an undo log: remember
+ * size() before making changes, and revertTo that size to undo all of them.
  *
  * @author huib
  */
 public class ActionStack
 {
-    private final LinkedList<GraphAction> actions = new LinkedList<>();
+    private final ArrayList<GraphAction> actions = new ArrayList<>();
     
     public void push(GraphAction a)
     {
         a.perform();
-        actions.addLast(a);
+        actions.add(a);
     }
     
     public GraphAction pop()
     {
-        return actions.pollLast();
+        if(this.actions.isEmpty())
+            return null;
+        
+        return this.actions.remove(this.actions.size()-1);
     }
     
     public boolean isEmpty()
     {
         return this.actions.isEmpty();
     }
+    
+    public int size()
+    {
+        return this.actions.size();
+    }
+    
+    /**
+     * Reverts and pops the actions on top of the stack, until only size actions are left
+     * 
+     * @param size 
+     */
+    public void revertTo(int size)
+    {
+        while(this.actions.size() > size)
+            this.pop().revert();
+    }
 }
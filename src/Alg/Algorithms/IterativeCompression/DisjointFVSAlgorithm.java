@@ -6,6 +6,8 @@
 
 package Alg.Algorithms.IterativeCompression;
 
+import Alg.Lib.IntGraph;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
 import org.jgrapht.graph.DefaultEdge;
@@ -31,4 +33,13 @@ public interface DisjointFVSAlgorithm<V>
      * @return a FVS of size prohibited.size()-1 of g, not containing any vertex in prohibited.
      */
     public Collection<V> solve(Multigraph<V, DefaultEdge> g, HashSet<V> prohibited);
+    
+    /**
+     * Same as solve for a jgrapht graph, but for a compact graph, where all vertices are vertex ids of g.
+     * @param g - graph for which to find the FVS, will not be changed
+     * @param prohibited - A feedback vertex set for g as a bitset over the vertex ids, for which we
+     * have prohibited to use its vertices for our own FVS. Will not be changed.
+     * @return a FVS of size prohibited.cardinality()-1 of g, not containing any vertex in prohibited.
+     */
+    public Collection<Integer> solve(IntGraph g, BitSet prohibited);
 }
@@ -0,0 +1,53 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package Alg.Algorithms.IterativeCompression;
+
+import Alg.Lib.IntGraph;
+
+/**
+ * Removes a vertex v of degree 2 with two different neighbours a and b, and connects a and b instead. There are never
+ * more than two edges needed between a and b, so the edge is only added when there were less than two.
+ */
+class IntBypassVertexAction implements GraphAction
+{
+    private final IntGraph graph;
+    private final int v;
+    private int a, b;
+    private boolean edgeAdded;
+    
+    public IntBypassVertexAction(IntGraph g, int v)
+    {
+        this.v     = v;
+        this.graph = g;
+    }
+    
+    @Override
+    public void perform()
+    {
+        if(this.graph.degreeOf(this.v) != 2 || this.graph.neighbourCount(this.v) != 2)
+            throw new IllegalStateException("can only bypass a vertex with two different neighbours");
+        
+        this.a = this.graph.neighbourAt(this.v, 0);
+        this.b = this.graph.neighbourAt(this.v, 1);
+        this.graph.removeVertex(this.v);
+        
+        this.edgeAdded = this.graph.multiplicity(this.a, this.b) < 2;
+        if(this.edgeAdded)
+            this.graph.addEdge(this.a, this.b);
+    }
+
+    @Override
+    public void revert()
+    {
+        if(this.edgeAdded)
+            this.graph.removeEdge(this.a, this.b);
+        
+        this.graph.addVertex(this.v);
+        this.graph.addEdge(this.v, this.a);
+        this.graph.addEdge(this.v, this.b);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package Alg.Algorithms.IterativeCompression;
+
+import Alg.Lib.IntGraph;
+
+/**
+ * DeleteVertexAction for a compact graph: remembers the neighbours and multiplicities of the vertex, such that
+ * reverting only has to add them back.
+ */
+public class IntDeleteVertexAction implements GraphAction
+{
+    private final IntGraph graph;
+    private final int v;
+    private int[] neighbours;
+    private int[] multiplicities;
+    
+    public IntDeleteVertexAction(IntGraph g, int v)
+    {
+        this.v     = v;
+        this.graph = g;
+    }
+    
+    public int getVertex()
+    {
+        return this.v;
+    }
+    
+    @Override
+    public void perform()
+    {
+        int n = this.graph.neighbourCount(this.v);
+        this.neighbours     = new int[n];
+        this.multiplicities = new int[n];
+        for(int i = 0; i < n; i++)
+        {
+            this.neighbours[i]     = this.graph.neighbourAt(this.v, i);
+            this.multiplicities[i] = this.graph.multiplicityAt(this.v, i);
+        }
+        
+        this.graph.removeVertex(this.v);
+    }
+
+    @Override
+    public void revert()
+    {
+        this.graph.addVertex(this.v);
+        
+        for(int i = 0; i < this.neighbours.length; i++)
+            this.graph.addEdge(this.v, this.neighbours[i], this.multiplicities[i]);
+    }
+}
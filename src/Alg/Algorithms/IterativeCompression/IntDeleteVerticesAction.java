@@ -0,0 +1,54 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package Alg.Algorithms.IterativeCompression;
+
+import Alg.Lib.IntGraph;
+import java.util.ArrayList;
+
+/**
+ * DeleteVerticesAction for a compact graph. The vertices are deleted one by one and put back in reverse order, so
+ * every vertex only has to remember the edges it had at the moment it was deleted.
+ */
+class IntDeleteVerticesAction implements GraphAction
+{
+    private final IntGraph graph;
+    private final int[] vertices;
+    private final ArrayList<IntDeleteVertexAction> deleted = new ArrayList<>();
+    
+    public IntDeleteVerticesAction(IntGraph g, int[] vertices)
+    {
+        if(vertices == null)
+            throw new IllegalArgumentException("vertices may not be null");
+        if(g == null)
+            throw new IllegalArgumentException("graph may not be null");
+        
+        this.vertices = vertices;
+        this.graph    = g;
+    }
+    
+    @Override
+    public void perform()
+    {
+        this.deleted.clear();
+        for(int v : this.vertices)
+        {
+            if(!this.graph.containsVertex(v))
+                continue;
+            
+            IntDeleteVertexAction action = new IntDeleteVertexAction(this.graph, v);
+            action.perform();
+            this.deleted.add(action);
+        }
+    }
+
+    @Override
+    public void revert()
+    {
+        for(int i = this.deleted.size()-1; i >= 0; i--)
+            this.deleted.get(i).revert();
+    }
+}
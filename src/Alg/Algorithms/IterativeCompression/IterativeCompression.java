@@ -9,18 +9,26 @@ package Alg.Algorithms.IterativeCompression;
 import Alg.FVSAlgorithmInterface;
 import Alg.GraphDisplayer;
 import Alg.Kernelization.Approximation;
-import Alg.Kernelization.Kernelization;
+import Alg.Kernelization.ImportanceApproximation;
 import Alg.Kernelization.ReductionSolution;
-import Alg.Kernelization.SimpleDisjointKernelization;
+import Alg.Lib.Budget;
+import Alg.Lib.IntGraph;
+import Alg.Lib.IntMultigraph;
+import Alg.Lib.Metrics;
+import Alg.Lib.UnionFind;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.Multigraph;
 
@@ -32,6 +40,31 @@ public class IterativeCompression implements FVSAlgorithmInterface
 {
     public static int orderID = 4;
     
+    // solutions with fewer vertices have too few subsets to be worth splitting over threads
+    public static int parallelFromSize = 10;
+    
+    // pool to try the subsets in compression steps on, null to try them in this thread
+    private final ForkJoinPool pool;
+    
+    public IterativeCompression()
+    {
+        this(null);
+    }
+    
+    /**
+     * @param pool pool to try the subsets of larger compression steps on, or null to try them all in this thread
+     */
+    public IterativeCompression(ForkJoinPool pool)
+    {
+        this.pool = pool;
+    }
+    
+    @Override
+    public boolean isExact()
+    {
+        return true;
+    }
+
     @Override
     public List<Integer> findFeedbackVertexSet(ReductionSolution partialSolution){
         List<Integer> result = findFeedbackVertexSet(partialSolution.reducedGraph);
@@ -41,16 +74,41 @@ public class IterativeCompression implements FVSAlgorithmInterface
 
     @Override
     public List<Integer> findFeedbackVertexSet(Multigraph<Integer, DefaultEdge> graph)
+    {
+        return this.findFeedbackVertexSet(graph, IntMultigraph.fromMultigraph(graph));
+    }
+
+    @Override
+    public List<Integer> findFeedbackVertexSet(IntGraph graph)
+    {
+        return this.findFeedbackVertexSet(IntMultigraph.toMultigraph(graph), graph);
+    }
+
+    /**
+     * Runs the iterative compression on the compact graph. The jgrapht version of the same graph is only used for
+     * the approximations that determine the order in which the vertices are added.
+     *
+     * @param original
+     * @param graph
+     * @return the labels of the vertices in the FVS
+     */
+    private List<Integer> findFeedbackVertexSet(Multigraph<Integer, DefaultEdge> original, IntGraph graph)
     {
         ActionStack actions = new ActionStack();
         
-        int nVertices = graph.vertexSet().size();
+        int nVertices = graph.vertexCount();
         
         //*
-        List<Integer> vertices = new ArrayList(graph.vertexSet());
+        List<Integer> vertices = new ArrayList<>();
+        for(int v : graph.vertices())
+            vertices.add(v);
         //Collections.shuffle(vertices);
-        Map<Integer, Integer> weights = Kernelization.getImportanceApprox(graph);
-        List<Integer> approxSolution = Approximation.determineFVS2(graph, new Integer[]{}, 1).verticesToRemoved;
+        int[] weights = new int[graph.capacity()];
+        ImportanceApproximation importance = new ImportanceApproximation(original);
+        int[] importanceOf = importance.importance(this.pool);
+        for(int v : graph.vertices())
+            weights[v] = importanceOf[importance.indexOf(graph.label(v))];
+        Set<Integer> approxSolution = new HashSet<>(Approximation.determineFVS2(original, new Integer[]{}, 1).verticesToRemoved);
         
         // <editor-fold desc="Order definitions" defaultstate="collapsed">
         // The comparator is used to define the order in which the vertices are removed, the order
@@ -58,8 +116,8 @@ public class IterativeCompression implements FVSAlgorithmInterface
         // order in which the vertices are added.
         Comparator<Integer> degreeInc = (Integer o1, Integer o2) ->
         {
-            int d1 = graph.degreeOf((int)o1);
-            int d2 = graph.degreeOf((int)o2);
+            int d1 = graph.degreeOf(o1);
+            int d2 = graph.degreeOf(o2);
             
             if(d1 < d2)
                 return 1;
@@ -74,8 +132,8 @@ public class IterativeCompression implements FVSAlgorithmInterface
         };
         Comparator<Integer> weightInc = (Integer o1, Integer o2) ->
         {
-            int w1 = weights.get((int)o1);
-            int w2 = weights.get((int)o2);
+            int w1 = weights[o1];
+            int w2 = weights[o2];
             
             if(w1 < w2)
                 return 1;
@@ -162,8 +220,8 @@ public class IterativeCompression implements FVSAlgorithmInterface
         };
         Comparator<Integer> treeFirst = (Integer o1, Integer o2) ->
         {
-            boolean c1 = approxSolution.contains(o1);
-            boolean c2 = approxSolution.contains(o2);
+            boolean c1 = approxSolution.contains(graph.label(o1));
+            boolean c2 = approxSolution.contains(graph.label(o2));
             Comparator<Integer> comp = orders[orderID];
             
             if(c1 == c2)
@@ -201,7 +259,7 @@ public class IterativeCompression implements FVSAlgorithmInterface
                 //.filter((v) -> approxSolution.contains(v))
                 .forEach((v) ->
         {
-            actions.push(new DeleteVertexAction(graph, v));
+            actions.push(new IntDeleteVertexAction(graph, v));
         });
         //*/
         /*
@@ -222,22 +280,23 @@ public class IterativeCompression implements FVSAlgorithmInterface
         
         // put the vertices back, one by one, in reverse order
         // with each vertex we put back, find a minimal FVS
+        // the trees of the graph without the solution, such that we can tell in near constant time whether a vertex
+        // we put back closes a cycle
         int k=0;
-        FVS<Integer> solution = new FVS<>();
+        FVS solution = new FVS();
+        UnionFind forest = new UnionFind(graph.capacity());
+        IntPredicate inForest = (v) -> !solution.containsVertex(v);
         while(!actions.isEmpty())
         {
-            DeleteVertexAction<Integer> action = (DeleteVertexAction<Integer>) actions.pop();
+            IntDeleteVertexAction action = (IntDeleteVertexAction) actions.pop();
             action.revert();
             nVertices--;
             
-            Set remainder = new HashSet();
-            graph.vertexSet()
-                    .stream()
-                    .filter((v) -> (!solution.contains(v)))
-                    .forEach((v) -> remainder.add(v));
-            
-            if(SimpleDisjointKernelization.inCycleWith(action.getVertex(), graph, remainder))
-                solution.add(action.getVertex());
+            int vertex = action.getVertex();
+            if(forest.closesCycle(graph, vertex, inForest))
+                solution.add(vertex);
+            else
+                forest.join(graph, vertex, inForest);
             //checkValidSolution(graph, solution);
             
             //System.out.println("solution size= "+solution.size()+", k= "+k);
@@ -249,11 +308,23 @@ public class IterativeCompression implements FVSAlgorithmInterface
                     //    System.out.println("Compressing, k="+k+" -- "+nVertices+" vertices to go");
                     solution.compress(graph);
                 }
-                catch (InterruptedException ex)
+                catch (Budget.Cancelled ex)
                 {
-                    System.out.println("Interupted with k="+k+", and "+nVertices+" vertices to go");
-                    throw new RuntimeException(ex);
+                    System.err.println("Interupted with k="+k+", and "+nVertices+" vertices to go");
+                    
+                    // the solution is a FVS of the vertices put back so far, together with the vertices that are
+                    // not back yet it is one of the whole graph
+                    List<Integer> partial = new ArrayList<>(solution.size()+actions.size());
+                    for(int v : solution)
+                        partial.add(graph.label(v));
+                    while(!actions.isEmpty())
+                        partial.add(graph.label(((IntDeleteVertexAction) actions.pop()).getVertex()));
+                    throw new Budget.Cancelled(partial);
                 }
+                
+                // vertices left the solution, so the forest grew in more places than we can join
+                if(solution.getWinningSubset() != null)
+                    forest.build(graph, inForest);
                 k = Math.max(k, solution.size());
                 //System.out.println("new solution size= "+solution.size()+", k= "+k);
             }
@@ -284,7 +355,10 @@ public class IterativeCompression implements FVSAlgorithmInterface
 //            System.out.println(name+", "+weight+", "+degree+", "+minND+", "+maxND+", "+avgND+", "+solution.contains(v));
 //        });
         
-        return solution;
+        List<Integer> labels = new ArrayList<>(solution.size());
+        for(int v : solution)
+            labels.add(graph.label(v));
+        return labels;
     }
     
     public static void checkValidSolution(Multigraph graph, Collection solution)
@@ -302,167 +376,260 @@ public class IterativeCompression implements FVSAlgorithmInterface
         }
     }
     
-    public class FVS<V> extends ArrayList<V>
+    /**
+     * The current solution, as vertex ids of the compact graph. The subsets of the solution that are tried when
+     * compressing are bit masks over the positions in this list.
+     */
+    public class FVS extends ArrayList<Integer>
     {
         // the last vertex added since the last compression
         // equals null if no vertex was added since the last compression, or if we never compressed
-        private V lastVertexAdded;
+        private Integer lastVertexAdded;
         // true iff since the last compression more than one vertex was added (should never be true)
         private boolean moreThanOneVertexAdded = false;
+        // the subset removed in the last successful compression
+        private Collection<Integer> winningSubset;
+        // the same vertices as in the list, for fast lookups
+        private final BitSet members = new BitSet();
+        // the subsets tried for the current k, see Metrics
+        private Metrics.Counter subsets;
         
-        public void compress(Multigraph<V, DefaultEdge> graph) throws InterruptedException
+        public void compress(IntGraph graph)
         {
-            // try every strict subset Z of the current solution C
+            if(this.size() >= 64)
+                throw new RuntimeException("Sorry, not going to do this sh.t, this would take ages");
+            if(this.size() > 42)
+                System.err.println("Iterating over all strict subsets of a large set, going to take a looong time, but your choice!");
+            if(this.size() > 32)
+                System.err.println("Iterating over all strict subsets of a set of size "+this.size()+" may take a long time");
+            
+            Metrics metrics = Metrics.get();
+            metrics.add("compression.rounds.k="+(this.size()-1), 1);
+            this.subsets = metrics.counter("compression.subsets.k="+(this.size()-1));
+            
+            this.winningSubset = null;
+            if(IterativeCompression.this.pool != null && this.size() >= parallelFromSize)
+                this.compressParallel(graph, IterativeCompression.this.pool);
+            else
+                this.compressSequential(graph);
+            
+            this.lastVertexAdded = null;
+            this.moreThanOneVertexAdded = false;
+        }
+        
+        /**
+         * The subset Z of the solution that was removed in the last successful compression, null if the last
+         * compression did not make the solution smaller
+         * 
+         * @return 
+         */
+        public Collection<Integer> getWinningSubset()
+        {
+            return this.winningSubset;
+        }
+        
+        public boolean containsVertex(int v)
+        {
+            return this.members.get(v);
+        }
+        
+        private void compressSequential(IntGraph graph)
+        {
+            // try every strict subset Z of the current solution C, in the order of the Gray code
             // remove this subset from the graph, G-Z
             // solve disjoint problem: find FVS in graph G-Z using only vertices in V(G)\C
             
-            DisjointFVSAlgorithm<V> disjointSolver;
+            DisjointFVSAlgorithm<Integer> disjointSolver;
             disjointSolver = new SimpleDisjointAlg<>();
+            BitSet complement = new BitSet(graph.capacity());
+            int last = this.lastVertexAdded == null ? -1 : this.indexOf(this.lastVertexAdded);
+            Budget budget = Budget.current();
             
-            for(Collection<V> subset : this.subsets())
+            for(long i=0; i < 1L << this.size(); i++)
             {
+                budget.check();
                 
-                if(Thread.currentThread().isInterrupted())
-                    throw new InterruptedException();
-                
-                if(     // not a strict subset
-                        subset.size() == this.size()
-                        // or the last (single!) vertex added is in the subset (meaning we can't compress this way)
-                        || !this.moreThanOneVertexAdded && subset.contains(this.lastVertexAdded)
-                        )
-                {
+                long subset = i ^ (i >>> 1);
+                if(this.skip(subset, last))
                     continue;
-                }
-                
                 
-                HashSet<V> complement = this.complementOf(subset);
-                //if(subset.size() + complement.size() != this.size())
-                //    throw new RuntimeException("complement wrong!");
-                
-                DeleteVerticesAction<V> removeVertices = new DeleteVerticesAction<>(graph, subset);
-                removeVertices.perform();
-                //checkValidSolution(graph, complement);
-                Collection<V> solution = disjointSolver.solve(graph, (HashSet)complement.clone());
-                //if(solution != null)
-                //    checkValidSolution(graph, solution);
-                removeVertices.revert();
+                Collection<Integer> solution = this.solveDisjoint(graph, disjointSolver, subset, complement);
                 
                 if(solution != null) // we found one!
                 {
-                    //ArrayList tempSolution = new ArrayList(solution);
-                    //tempSolution.addAll(subset);
-                    //checkValidSolution(graph, tempSolution);
-                    //System.out.println("Found a solution of size:"+tempSolution.size()+" ("+solution.size()+"+"+subset.size()+"), previous solution: "+this.size());
+                    //System.out.println("Found a solution of size:"+(solution.size()+Long.bitCount(subset))+", previous solution: "+this.size());
                     
-                    this.update(complement, solution);
+                    this.winningSubset = this.subsetOf(subset);
+                    this.update(subset, solution);
                     //checkValidSolution(graph, this);
-                    
-                    this.lastVertexAdded = null;
-                    this.moreThanOneVertexAdded = false;
                     return;
                 }
             }
-            
-            this.lastVertexAdded = null;
-            this.moreThanOneVertexAdded = false;
         }
         
-        @Override
-        public boolean add(V vertex)
+        /**
+         * Same as the sequential version, but the range of the Gray code is cut in chunks that the workers take in
+         * increasing order. Every worker has its own copy of the graph. A worker stops as soon as it passes the
+         * first subset found so far, so in the end the winner is the same subset the sequential version finds.
+         */
+        private void compressParallel(IntGraph graph, ForkJoinPool pool)
         {
-            if(this.lastVertexAdded != null)
-                this.moreThanOneVertexAdded = true;
-            this.lastVertexAdded = vertex;
+            // the workers check the budget of the caller
+            Budget budget = Budget.current();
+            long total = 1L << this.size();
+            int workers = pool.getParallelism();
+            long chunk = Math.max(16, total / (16L * workers));
+            int last = this.lastVertexAdded == null ? -1 : this.indexOf(this.lastVertexAdded);
             
-            return super.add(vertex);
-        }
-        
-        private void update(HashSet<V> remove, Collection<V> add)
-        {
-            if(remove.size() != add.size()+1)
-                throw new IllegalArgumentException("remove.size() should be one larger than add.size()\nremove: "+remove+"\nadd: "+add);
+            AtomicLong nextChunk = new AtomicLong(0);
+            AtomicLong winner = new AtomicLong(Long.MAX_VALUE);
+            Object[] found = new Object[1]; // solution of the winner
             
-            Iterator<V> it = add.iterator();
-            
-            for(int i=0; i<this.size(); i++)
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+            for(int w=0; w<workers; w++)
             {
-                V v = this.get(i);
-                if(remove.contains(v))
+                tasks.add(ForkJoinTask.adapt(() -> budget.run(() ->
                 {
-                    if(it.hasNext())
-                    {
-                        this.set(i, it.next());
-                    }
-                    else
+                    IntGraph copy = graph.copy();
+                    DisjointFVSAlgorithm<Integer> disjointSolver = new SimpleDisjointAlg<>();
+                    BitSet complement = new BitSet(copy.capacity());
+                    
+                    for(long start = nextChunk.getAndAdd(chunk); start < total; start = nextChunk.getAndAdd(chunk))
                     {
-                        this.remove(v);
-                        return;
+                        for(long i=start; i<Math.min(start+chunk, total); i++)
+                        {
+                            if(i >= winner.get())
+                                return;
+                            budget.check();
+                            
+                            long subset = i ^ (i >>> 1);
+                            if(this.skip(subset, last))
+                                continue;
+                            
+                            Collection<Integer> solution = this.solveDisjoint(copy, disjointSolver, subset, complement);
+                            
+                            if(solution != null)
+                            {
+                                synchronized(found)
+                                {
+                                    if(i < winner.get())
+                                    {
+                                        winner.set(i);
+                                        found[0] = solution;
+                                    }
+                                }
+                                return;
+                            }
+                        }
                     }
-                }
+                })));
+            }
+            
+            if(ForkJoinTask.getPool() == pool)
+                ForkJoinTask.invokeAll(tasks);
+            else
+                pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+            
+            budget.checkNow();
+            
+            if(winner.get() != Long.MAX_VALUE)
+            {
+                long subset = winner.get() ^ (winner.get() >>> 1);
+                this.winningSubset = this.subsetOf(subset);
+                this.update(subset, (Collection<Integer>)found[0]);
             }
         }
         
-        private Iterable<Collection<V>> subsets()
+        /**
+         * Removes the subset from the graph and solves the disjoint problem with the rest of the solution as
+         * prohibited set, then puts the subset back
+         * 
+         * @param graph
+         * @param disjointSolver
+         * @param subset bit b is set iff the b-th vertex of the solution is in the subset
+         * @param complement empty bitset to use as prohibited set, is empty again afterwards
+         * @return the solution of the disjoint problem, null if there is none
+         */
+        private Collection<Integer> solveDisjoint(IntGraph graph, DisjointFVSAlgorithm<Integer> disjointSolver, long subset, BitSet complement)
         {
-            return () -> new SubsetIterator(FVS.this);
+            this.subsets.increment();
+            int[] removed = new int[Long.bitCount(subset)];
+            int r = 0;
+            for(int b=0; b<this.size(); b++)
+                if((subset >>> b & 1) == 1)
+                    removed[r++] = this.get(b);
+                else
+                    complement.set(this.get(b));
+            
+            IntDeleteVerticesAction removeVertices = new IntDeleteVerticesAction(graph, removed);
+            removeVertices.perform();
+            //checkValidSolution(graph, complement);
+            Collection<Integer> solution = disjointSolver.solve(graph, complement);
+            //if(solution != null)
+            //    checkValidSolution(graph, solution);
+            removeVertices.revert();
+            
+            complement.clear();
+            return solution;
         }
         
-        private HashSet<V> complementOf(Collection<V> set)
+        private boolean skip(long subset, int last)
         {
-            HashSet<V> complement = new HashSet<>();
-            this.stream().filter((v) -> (!set.contains(v))).forEach((v) ->
-            {
-                complement.add(v);
-            });
-            
-            return complement;
+            return  // not a strict subset
+                    subset == (1L << this.size()) - 1
+                    // or the last (single!) vertex added is in the subset (meaning we can't compress this way)
+                    || !this.moreThanOneVertexAdded && last >= 0 && (subset >>> last & 1) == 1;
         }
-    }
-    
-    public class SubsetIterator<V> extends HashSet<V> implements Iterator<Collection<V>>
-    {
-        private ArrayList<V> set;
-        private long iteration = -1;
         
-        public SubsetIterator(ArrayList<V> set)
+        private Collection<Integer> subsetOf(long subset)
         {
-            this.set = set;
+            ArrayList<Integer> vertices = new ArrayList<>(Long.bitCount(subset));
+            for(int b=0; b<this.size(); b++)
+                if((subset >>> b & 1) == 1)
+                    vertices.add(this.get(b));
             
-            if(this.set.size() > 64)
-                throw new RuntimeException("Sorry, not going to do this sh.t, this would take ages");
-            if(this.set.size() > 42)
-                System.err.println("Iterating over all strict subsets of a large set, going to take a looong time, but your choice!");
-            if(this.set.size() > 32)
-                System.err.println("Iterating over all strict subsets of a set of size "+this.set.size()+" may take a long time");
+            return vertices;
         }
         
         @Override
-        public boolean hasNext()
+        public boolean add(Integer vertex)
         {
-            return this.iteration == -1 || this.getFlipIndex() < this.set.size();
-        }
-
-        @Override
-        public Collection<V> next()
-        {
-            if(this.iteration >= 0)
-            {
-                V flip = this.set.get(this.getFlipIndex());
-            
-                if(this.contains(flip))
-                    this.remove(flip);
-                else
-                    this.add(flip);
-            }
-            
-            this.iteration++;
+            if(this.lastVertexAdded != null)
+                this.moreThanOneVertexAdded = true;
+            this.lastVertexAdded = vertex;
+            this.members.set(vertex);
             
-            return this;
+            return super.add(vertex);
         }
         
-        private int getFlipIndex()
+        /**
+         * Replaces the vertices that are not in the subset by the vertices of add, which has one vertex less
+         */
+        private void update(long subset, Collection<Integer> add)
         {
-            return Long.numberOfTrailingZeros(~this.iteration);
+            if(this.size() - Long.bitCount(subset) != add.size()+1)
+                throw new IllegalArgumentException("remove.size() should be one larger than add.size()\nsubset: "+this.subsetOf(subset)+"\nadd: "+add);
+            
+            Iterator<Integer> it = add.iterator();
+            
+            for(int i=0; i<this.size(); i++)
+            {
+                if((subset >>> i & 1) == 0)
+                {
+                    this.members.clear(this.get(i));
+                    if(it.hasNext())
+                    {
+                        int v = it.next();
+                        this.members.set(v);
+                        this.set(i, v);
+                    }
+                    else
+                    {
+                        this.remove(i);
+                        return;
+                    }
+                }
+            }
         }
     }
 }
@@ -10,6 +10,11 @@ import Alg.GraphDisplayer;
 import Alg.Kernelization.Kernelization;
 import Alg.Kernelization.ReductionSolution;
 import Alg.Kernelization.SimpleDisjointKernelization;
+import Alg.Lib.Budget;
+import Alg.Lib.IntGraph;
+import Alg.Lib.Metrics;
+import Alg.Lib.UnionFind;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -25,6 +30,12 @@ public class SimpleDisjointAlg<V> implements DisjointFVSAlgorithm<V>
     // debuging
     //private Multigraph currentCompleteGraph;
     
+    // union-find for the cycle checks on compact graphs, so an instance must not be shared between threads
+    private UnionFind forest;
+    
+    // nodes of the search tree, see Metrics
+    private final Metrics.Counter nodes = Metrics.get().counter("disjoint.nodes");
+    
     @Override
     public Collection<V> solve(Multigraph<V, DefaultEdge> g, HashSet<V> prohibited)
     {
@@ -35,6 +46,7 @@ public class SimpleDisjointAlg<V> implements DisjointFVSAlgorithm<V>
         }
         
         Multigraph<V, DefaultEdge> graph = (Multigraph)g.clone();
+        Metrics.get().cloned(graph);
         
         //this.currentCompleteGraph = g;
         Collection<V> result = this.solve((Multigraph<V, DefaultEdge>) graph, prohibited, prohibited.size()-1);
@@ -70,6 +82,8 @@ public class SimpleDisjointAlg<V> implements DisjointFVSAlgorithm<V>
      */
     public Collection<V> solve(Multigraph<V, DefaultEdge> graph, HashSet<V> prohibited, int k)
     {
+        Budget.current().check();
+        this.nodes.increment();
         if(k < 0)
         {
             return null;
@@ -110,6 +124,7 @@ public class SimpleDisjointAlg<V> implements DisjointFVSAlgorithm<V>
         
         prohibited.add(vertex);
 
+        Metrics.get().cloned(graph);
         Collection<V> solution = this.solve((Multigraph)graph.clone(), prohibited, k);
         if (solution != null) {
             solution.addAll((List<V>)red.verticesToRemoved);
@@ -259,5 +274,298 @@ public class SimpleDisjointAlg<V> implements DisjointFVSAlgorithm<V>
         return false;
     }
 
+    // COMPACT GRAPH VERSION
+    // The same algorithm as above, on a compact graph where the vertices are int ids. The search works on the graph
+    // itself: every change by the reduction rules and the branching is pushed on an undo log, and undone when
+    // backtracking, instead of copying the graph for every branch.
+
+    @Override
+    public Collection<Integer> solve(IntGraph g, BitSet prohibited)
+    {
+        // 1. Check for a cycle in the graph consisting of only vertices in prohibited
+        //    If there exists such a cycle, return null (no FVS disjoint of prohibited is possible)
+        if (this.containsCycleWithOnlyProhibited(g, prohibited)) {
+            return null;
+        }
+        
+        int k = prohibited.cardinality()-1;
+        ActionStack actions = new ActionStack();
+        Collection<Integer> result;
+        try
+        {
+            result = this.solve(g, (BitSet)prohibited.clone(), k, actions);
+        }
+        finally
+        {
+            // also when cancelled, the caller keeps using the graph
+            actions.revertTo(0);
+        }
+        if(result != null && result.size() > k)
+            throw new IllegalStateException("This may not happen..");
+        
+        return result;
+    }
+
+    /**
+     * Solve the Simple Disjoint algorithm problem on a compact graph. All changes to the graph are pushed on actions,
+     * the caller is responsible for reverting them.
+     *
+     * @param graph
+     * @param prohibited
+     * @param k
+     * @param actions
+     * @return
+     */
+    public Collection<Integer> solve(IntGraph graph, BitSet prohibited, int k, ActionStack actions)
+    {
+        Budget.current().check();
+        this.nodes.increment();
+        if(k < 0)
+        {
+            return null;
+        }
+
+        // 2. Exhaustively apply reduction rules
+        ReductionSolution red = this.applyReductionRules(graph, prohibited, k, actions);
+
+        // 3. When after applying the reduction rules, the intermediate solution (created by rule 2)
+        //    is larger or equal to prohibited.size(), return null. There is no solution small enough
+        if (red == null || red.verticesToRemoved.size() > k) {
+            return null;
+        }
+        else
+        {
+            k -= red.verticesToRemoved.size();
+        }
+
+        // 4. Find a vertex v not in prohibited with exectly one neightbour that is not in
+        //    prohibited. Try this.solve(g, prohibited+v, k), otherwise return
+        //    this.solve(g-v, prohibited, k-1)
+        int vertex = this.findVertexWithOneNonProhibitedNeighbour(graph, prohibited);
+        if(vertex < 0) // no nonprohibited vertices in the graph
+        {
+            return new HashSet<>(red.verticesToRemoved);
+        }
+        
+        int mark = actions.size();
+        prohibited.set(vertex);
+
+        Collection<Integer> solution = this.solve(graph, prohibited, k, actions);
+        if (solution != null) {
+            solution.addAll(red.verticesToRemoved);
+            return solution;
+        }
+        
+        actions.revertTo(mark);
+        prohibited.clear(vertex);
+
+        actions.push(new IntDeleteVertexAction(graph, vertex));
+        
+        solution = this.solve(graph, prohibited, k-1, actions);
+        
+        if(solution != null)
+        {
+            solution.add(vertex);
+            solution.addAll(red.verticesToRemoved);
+        }
+        return solution;
+    }
+
+    /**
+     * Find a vertex in the compact graph that is not in prohibited, and has exactly one neighbour that is not in
+     * prohibited
+     *
+     * @param graph
+     * @param prohibited
+     * @return the vertex, or -1 if there are no vertices outside prohibited
+     */
+    protected int findVertexWithOneNonProhibitedNeighbour(IntGraph graph, BitSet prohibited)
+    {
+        boolean atLeastOneNonProhibited = false;
+        for (int v : graph.vertices()) {
+            if (prohibited.get(v)) {
+                continue;
+            }
+            atLeastOneNonProhibited = true;
+            int nonProhibitedNeighbours = 0;
+            for (int i = 0; i < graph.neighbourCount(v); i++) {
+                if (!prohibited.get(graph.neighbourAt(v, i))) {
+                    nonProhibitedNeighbours += graph.multiplicityAt(v, i);
+                }
+            }
+            if (nonProhibitedNeighbours <= 1) {
+                return v;
+            }
+        }
+
+        // See the jgrapht version: the vertices not in prohibited form a forest, so this can only happen if
+        // something is wrong
+        if(atLeastOneNonProhibited)
+        {
+            throw new IllegalStateException("There should be a vertex satisfying these properties, but there is not, so there must be something wrong..");
+        }
 
+        return -1;
+    }
+
+    /**
+     * Applies the reduction rules to the compact graph, pushing every change on actions
+     *
+     * @param graph
+     * @param prohibited
+     * @param k
+     * @param actions
+     * @return the vertices taken in the solution, or null if more than k are needed
+     */
+    protected ReductionSolution applyReductionRules(IntGraph graph, BitSet prohibited, int k, ActionStack actions)
+    {
+        ReductionSolution reductionSolution = new ReductionSolution();
+
+        // Apply the reduction rules exhaustively
+        while (reductionSolution.verticesToRemoved.size() <= k) {
+            boolean changed = false;
+
+            // Applies reduction rule 1 to the graph
+            changed |= this.removeLeaves(graph, actions);
+            
+            // Applies reduction rule 2 on the graph
+            changed |= this.removeOnlyVertexInProhibitedCycle(reductionSolution, graph, prohibited, actions);
+
+            // Applies reduction rule 3 on the graph
+            changed |= this.removeNonProhibitedVertexWithDegree2(reductionSolution, graph, prohibited, actions);
+
+            if (!changed) {
+                return reductionSolution;
+            }
+        }
+        
+        // if we get here, our reduction rules found that for this problem we need to remove at least
+        // k vertices. This is too many.
+        return null;
+    }
+
+    /**
+     * Reduction rule 1: remove vertices with degree at most 1
+     *
+     * @param graph
+     * @param actions
+     * @return Was a change done on the graph?
+     */
+    protected boolean removeLeaves(IntGraph graph, ActionStack actions)
+    {
+        boolean changed = false;
+        for (int v : graph.vertices()) {
+            if (graph.containsVertex(v) && graph.degreeOf(v) <= 1) {
+                actions.push(new IntDeleteVertexAction(graph, v));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Reduction rule 2: remove any vertex v not in prohibited that is part of a cycle where all other vertices are
+     * in prohibited. Add v to the solution.
+     *
+     * @param solution
+     * @param graph
+     * @param prohibited
+     * @param actions
+     * @return Was a change done on the graph?
+     */
+    protected boolean removeOnlyVertexInProhibitedCycle(
+            ReductionSolution solution,
+            IntGraph graph,
+            BitSet prohibited,
+            ActionStack actions
+    ) {
+        // The vertices we remove are not prohibited, so the trees of prohibited stay the same during this loop
+        UnionFind forest = this.forest(graph);
+        forest.build(graph, prohibited);
+
+        boolean changed = false;
+        for (int v : graph.vertices()) {
+            // We do not have to check prohibited vertices
+            if (prohibited.get(v)) {
+                continue;
+            }
+
+            if (forest.closesCycle(graph, v, prohibited::get)) {
+                actions.push(new IntDeleteVertexAction(graph, v));
+                solution.verticesToRemoved.add(v);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Reduction rule 3: remove any vertex v not in prohibited with degree 2 and at least one of its neighbours also
+     * not in prohibited. Connect the neighbours of v.
+     *
+     * @param solution
+     * @param graph
+     * @param prohibited
+     * @param actions
+     * @return Was a change done on the graph?
+     */
+    protected boolean removeNonProhibitedVertexWithDegree2(
+            ReductionSolution solution,
+            IntGraph graph,
+            BitSet prohibited,
+            ActionStack actions
+    ) {
+        boolean changed = false;
+        for (int v : graph.vertices()) {
+            // Skip prohibited graphs
+            if (prohibited.get(v) || !graph.containsVertex(v) || graph.degreeOf(v) != 2) {
+                continue;
+            }
+
+            int a = graph.neighbourAt(v, 0);
+            int b = graph.neighbourCount(v) == 1 ? a : graph.neighbourAt(v, 1);
+
+            // Both neighbours are prohibited, so we can not do anything about it
+            if (prohibited.get(a) && prohibited.get(b)) {
+                continue;
+            }
+
+            changed = true;
+            // Joining a vertex to itself would create a loop, so then that neighbour goes into the solution
+            if (a == b) {
+                actions.push(new IntDeleteVertexAction(graph, a));
+                solution.verticesToRemoved.add(a);
+                actions.push(new IntDeleteVertexAction(graph, v));
+            } else {
+                actions.push(new IntBypassVertexAction(graph, v));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Checks if there is a cycle in the compact graph consisting only of vertices in the prohibited list
+     *
+     * @param graph
+     * @param prohibited
+     * @return
+     */
+    protected boolean containsCycleWithOnlyProhibited(IntGraph graph, BitSet prohibited)
+    {
+        return !this.forest(graph).build(graph, prohibited);
+    }
+
+    /**
+     * The union-find used by the rules, reused as long as the graph has the same capacity
+     *
+     * @param graph
+     * @return
+     */
+    private UnionFind forest(IntGraph graph)
+    {
+        if (this.forest == null || this.forest.capacity() != graph.capacity()) {
+            this.forest = new UnionFind(graph.capacity());
+        }
+        return this.forest;
+    }
 }
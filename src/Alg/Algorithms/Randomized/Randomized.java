@@ -3,13 +3,18 @@ package Alg.Algorithms.Randomized;
 import Alg.FVSAlgorithmInterface;
 import Alg.Kernelization.Kernelization;
 import Alg.Kernelization.ReductionSolution;
-import org.jgrapht.graph.DefaultEdge;
+import Alg.Lib.Budget;
+import Alg.Lib.IntGraph;
+import Alg.Lib.IntMultigraph;
+import Alg.Lib.Metrics;
 import org.jgrapht.graph.Multigraph;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
-import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by Stefan on 5/22/2016.
@@ -27,9 +32,55 @@ public class Randomized implements FVSAlgorithmInterface
     final int REPEATS = 28;
 
     /**
-     * Random number generator
+     * Levels with fewer trials than this are not worth splitting over threads
      */
-    protected Random random;
+    public static int parallelFromTrials = 1000;
+
+    /**
+     * Pool to run the trials on, null to run them all in this thread
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Seed from which the random numbers of every trial are derived
+     */
+    private final long seed;
+
+    public Randomized()
+    {
+        this(null);
+    }
+
+    /**
+     * @param pool Pool to run the trials on, or null to run them all in this thread
+     */
+    public Randomized(ForkJoinPool pool)
+    {
+        this(pool, new SplittableRandom().nextLong());
+        System.err.println("Randomized seed=" + this.seed);
+    }
+
+    /**
+     * For a fixed seed the same solution is found, no matter how many threads the pool has
+     *
+     * @param pool Pool to run the trials on, or null to run them all in this thread
+     * @param seed
+     */
+    public Randomized(ForkJoinPool pool, long seed)
+    {
+        this.pool = pool;
+        this.seed = seed;
+    }
+
+    /**
+     * The seed this instance uses, to be able to repeat a run
+     *
+     * @return
+     */
+    public long getSeed()
+    {
+        return this.seed;
+    }
 
     @Override
     public List<Integer> findFeedbackVertexSet(ReductionSolution partialSolution){
@@ -40,23 +91,138 @@ public class Randomized implements FVSAlgorithmInterface
 
     @Override
     public ArrayList<Integer> findFeedbackVertexSet(Multigraph graph) {
+        return this.findFeedbackVertexSet(IntMultigraph.fromMultigraph(graph));
+    }
+
+    @Override
+    public ArrayList<Integer> findFeedbackVertexSet(IntGraph graph) {
 
         // Reduce the graph already for our kernelization
         // This may reduce the k upto which we have to search by a lot
-        ReductionSolution reduced = Kernelization.kernelittle(graph, true);
-
-        this.random = new Random();
+        IntGraph reducedGraph = graph.copy();
+        ReductionSolution reduced = Kernelization.kernelittle(reducedGraph);
 
         for (int k =0; ;k++) {
-            for (int j = 0; j < REPEATS * Math.pow(4, k); j++) {
-                Solution s = oneSidedMonteCarloFVS((Multigraph) reduced.reducedGraph.clone(), k);
+            long trials = (long) (REPEATS * Math.pow(4, k));
+            Solution s = this.pool != null && trials >= parallelFromTrials
+                    ? this.runTrialsParallel(reducedGraph, k, trials)
+                    : this.runTrials(reducedGraph, k, trials);
 
-                if (s.hasSolution) {
-                    reduced.verticesToRemoved.addAll(s.solution);
-                    return reduced.verticesToRemoved;
+            if (s.hasSolution) {
+                reduced.verticesToRemoved.addAll(s.solution);
+
+                ArrayList<Integer> labels = new ArrayList<>();
+                for (int v: reduced.verticesToRemoved) {
+                    labels.add(graph.label(v));
                 }
+                return labels;
+            }
+        }
+    }
+
+    /**
+     * Runs the trials for one k in order, until one finds a solution
+     *
+     * @param graph Compact graph, is not changed
+     * @param k
+     * @param trials
+     * @return The solution of the first successful trial
+     */
+    private Solution runTrials(IntGraph graph, int k, long trials)
+    {
+        Budget budget = Budget.current();
+        Metrics.Counter counter = Metrics.get().counter("montecarlo.trials.k=" + k);
+        for (long j = 0; j < trials; j++) {
+            budget.check();
+            counter.increment();
+
+            Solution s = this.oneSidedMonteCarloFVS(graph.copy(), k, this.trialRandom(k, j));
+            if (s.hasSolution) {
+                return s;
             }
         }
+        return new Solution(false);
+    }
+
+    /**
+     * Same as runTrials, but the trials are cut in chunks that the workers of the pool take in increasing order. A
+     * worker stops as soon as it passes the first successful trial found so far. Every trial has its own random
+     * numbers, so in the end the winner is the same trial runTrials finds.
+     *
+     * @param graph Compact graph, is not changed
+     * @param k
+     * @param trials
+     * @return The solution of the first successful trial
+     */
+    private Solution runTrialsParallel(IntGraph graph, int k, long trials)
+    {
+        // The workers check the budget of the caller
+        Budget budget = Budget.current();
+        Metrics.Counter counter = Metrics.get().counter("montecarlo.trials.k=" + k);
+        int workers = this.pool.getParallelism();
+        long chunk = Math.max(16, trials / (16L * workers));
+
+        AtomicLong nextChunk = new AtomicLong(0);
+        AtomicLong winner = new AtomicLong(Long.MAX_VALUE);
+        Solution[] found = new Solution[1];
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            tasks.add(ForkJoinTask.adapt(() -> budget.run(() -> {
+                for (long start = nextChunk.getAndAdd(chunk); start < trials; start = nextChunk.getAndAdd(chunk)) {
+                    for (long j = start; j < Math.min(start + chunk, trials); j++) {
+                        if (j >= winner.get()) {
+                            return;
+                        }
+                        budget.check();
+                        counter.increment();
+
+                        Solution s = this.oneSidedMonteCarloFVS(graph.copy(), k, this.trialRandom(k, j));
+                        if (s.hasSolution) {
+                            synchronized (found) {
+                                if (j < winner.get()) {
+                                    winner.set(j);
+                                    found[0] = s;
+                                }
+                            }
+                            return;
+                        }
+                    }
+                }
+            })));
+        }
+
+        if (ForkJoinTask.getPool() == this.pool) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            this.pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        }
+
+        budget.checkNow();
+        return found[0] != null ? found[0] : new Solution(false);
+    }
+
+    /**
+     * The random numbers for trial j of the given k. They only depend on the seed, k and j, and not on the thread the
+     * trial runs on or the trials before it.
+     *
+     * @param k
+     * @param j
+     * @return
+     */
+    private SplittableRandom trialRandom(int k, long j)
+    {
+        return new SplittableRandom(mix(this.seed + mix(k) + j * 0x9E3779B97F4A7C15L));
+    }
+
+    /**
+     * Finalizer of SplitMix64, to spread the bits of similar seeds
+     */
+    static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
     }
 
 
@@ -66,37 +232,39 @@ public class Randomized implements FVSAlgorithmInterface
      * If the (G, k) is a "Yes" instance, returns a solution w.p. > 4^-k
      * Otherwise always returns "No"
      *
-     * @param graph
+     * @param graph Compact graph, will be reduced in place
      * @param k
+     * @param random Random numbers for this trial
      * @return
      */
-    public Solution oneSidedMonteCarloFVS(Multigraph<Integer, DefaultEdge> graph, int k)
+    public Solution oneSidedMonteCarloFVS(IntGraph graph, int k, SplittableRandom random)
     {
-        ReductionSolution reductionSolution = Kernelization.kernelittle(graph, false, k);
-
-        graph = reductionSolution.reducedGraph;
-        k = reductionSolution.reducedK;
+        Budget.current().check();
+        ReductionSolution reductionSolution = Kernelization.kernelittle(graph, k);
 
         if (reductionSolution.stillPossible == false) {
             return new Solution(false);
         }
 
         // If the graph is empty, but a solution is still possible, then we have found the solution
-        if (graph.edgeSet().size() == 0) {
+        if (graph.edgeCount() == 0) {
             return new Solution(true, reductionSolution.verticesToRemoved);
         }
 
-        // Select one edge at random
-        Set<DefaultEdge> edgeset = graph.edgeSet();
-        int edgeIndexToRemove = this.random.nextInt(edgeset.size());
-        DefaultEdge edgeToRemove = (DefaultEdge) edgeset.toArray()[edgeIndexToRemove];
-
-        // Select one random vertex from the edge, and remove it from the graph
-        Integer vertexToRemove = (this.random.nextBoolean() ? graph.getEdgeSource(edgeToRemove) : graph.getEdgeTarget(edgeToRemove));
+        // Select one edge at random, and one random vertex from that edge. This is the same as selecting an endpoint
+        // of all edges at random, where every vertex is an endpoint as often as its degree
+        int vertexToRemove = -1;
+        int endpoint = random.nextInt(2 * graph.edgeCount());
+        for (int v = 0; endpoint >= 0; v++) {
+            if (graph.containsVertex(v)) {
+                endpoint -= graph.degreeOf(v);
+                vertexToRemove = v;
+            }
+        }
 
         // Call the method recursively
-        reductionSolution.reducedGraph.removeVertex(vertexToRemove);
-        Solution recursiveSolution = this.oneSidedMonteCarloFVS(reductionSolution.reducedGraph, reductionSolution.reducedK - 1);
+        graph.removeVertex(vertexToRemove);
+        Solution recursiveSolution = this.oneSidedMonteCarloFVS(graph, reductionSolution.reducedK - 1, random);
 
         // If the solution is no, nothing needs to be done
         if (!recursiveSolution.hasSolution) {
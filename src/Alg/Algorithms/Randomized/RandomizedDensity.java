@@ -3,13 +3,20 @@ package Alg.Algorithms.Randomized;
 import Alg.FVSAlgorithmInterface;
 import Alg.Kernelization.Kernelization;
 import Alg.Kernelization.ReductionSolution;
-import org.jgrapht.graph.DefaultEdge;
+import Alg.Lib.Budget;
+import Alg.Lib.IntGraph;
+import Alg.Lib.IntMultigraph;
+import Alg.Lib.Metrics;
 import org.jgrapht.graph.Multigraph;
 
 import java.util.*;
 
 /**
  * Same as the randomized algorithm, but distributes density rather then trying each solution
+ *
+ * The random numbers come from the seed: every k starts from its own stream, and every subtree of the search gets a
+ * stream split off from that of its parent. So for a fixed seed the same runs are tried in the same places, and a run
+ * can be repeated exactly.
  */
 public class RandomizedDensity implements FVSAlgorithmInterface
 {
@@ -24,9 +31,35 @@ public class RandomizedDensity implements FVSAlgorithmInterface
     final int REPEATS = 28;
 
     /**
-     * Random number generator
+     * Seed from which the random numbers of every k are derived
      */
-    protected Random random;
+    private final long seed;
+
+    public RandomizedDensity()
+    {
+        this(new SplittableRandom().nextLong());
+        System.err.println("RandomizedDensity seed=" + this.seed);
+    }
+
+    /**
+     * For a fixed seed the same solution is found
+     *
+     * @param seed
+     */
+    public RandomizedDensity(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * The seed this instance uses, to be able to repeat a run
+     *
+     * @return
+     */
+    public long getSeed()
+    {
+        return this.seed;
+    }
 
     @Override
     public List<Integer> findFeedbackVertexSet(ReductionSolution partialSolution){
@@ -42,38 +75,52 @@ public class RandomizedDensity implements FVSAlgorithmInterface
         // Reduce the graph already for our kernelization
         // This may reduce the k upto which we have to search by a lot
         ReductionSolution reduced = Kernelization.kernelot(graph, false);
-        this.random = new Random();
+
+        // The search itself runs on a compact version of the kernel
+        IntGraph reducedGraph = IntMultigraph.fromMultigraph(reduced.reducedGraph);
 
         for (int k = 1; ;k++) {
-            Solution solution = this.findSolutionRecursive((Multigraph) reduced.reducedGraph.clone(), k, (long)(REPEATS * Math.pow(4, k)));
+            long runs = (long)(REPEATS * Math.pow(4, k));
+            // The runs are the trials, spread over the search tree instead of tried one by one
+            Metrics.get().add("montecarlo.trials.k=" + k, runs);
+            SplittableRandom random = new SplittableRandom(Randomized.mix(this.seed + Randomized.mix(k)));
+            Solution solution = this.findSolutionRecursive(reducedGraph.copy(), k, runs, random);
 
             if (solution.hasSolution) {
-                reduced.verticesToRemoved.addAll(solution.solution);
+                for (int v: solution.solution) {
+                    reduced.verticesToRemoved.add(reducedGraph.label(v));
+                }
                 return reduced.verticesToRemoved;
             }
         }
     }
 
+    @Override
+    public ArrayList<Integer> findFeedbackVertexSet(IntGraph graph) {
+        return this.findFeedbackVertexSet(IntMultigraph.toMultigraph(graph));
+    }
+
     /**
      * Recursively distribute the probability density * amount of runs over all possibilities
      *
-     * @param graph Graph we need to find a fvs for
+     * @param graph Compact graph we need to find a fvs for, will be reduced in place
      * @param k total depth we need to reach
      * @param runs Total amount of runs that need to be distributed
+     * @param random Random numbers for this subtree, the subtrees below get streams split off from it
      * @return
      */
-    public Solution findSolutionRecursive(Multigraph<Integer, DefaultEdge> graph, int k, long runs)
+    public Solution findSolutionRecursive(IntGraph graph, int k, long runs, SplittableRandom random)
     {
+        Budget.current().check();
+
         // No runs. we do not check this. So no solution
         if (runs == 0) {
             return new Solution(false);
         }
 
         // Run the kernelization over the graph
-        ReductionSolution reductionSolution = Kernelization.kernelittle(graph, false, k);
-
+        ReductionSolution reductionSolution = Kernelization.kernelittle(graph, k);
 
-        Multigraph reducedGraph = reductionSolution.reducedGraph;
         int reducedK = reductionSolution.reducedK;
 
 
@@ -82,46 +129,51 @@ public class RandomizedDensity implements FVSAlgorithmInterface
         }
 
         // If the graph is empty, but a solution is still possible, then we have found the solution
-        if (reducedGraph.edgeSet().size() == 0) {
+        if (graph.edgeCount() == 0) {
             return new Solution(true, reductionSolution.verticesToRemoved);
         }
 
-        // Divide the runs over all the other graphs
-        Set<DefaultEdge> edges = reducedGraph.edgeSet();
-
         // Randomly partion runs in amountEdges. This is done using a Geometric Distribution.
-        int amountEdgesLeft = edges.size(); // The amount of edges which still need to have runs distributed
+        int amountEdgesLeft = graph.edgeCount(); // The amount of edges which still need to have runs distributed
         long runsLeft = runs; // The total amount of runs that still need to be distributed
 
-        HashMap<Integer, Long> counter = new HashMap<>();
-
-        for (DefaultEdge e: edges) {
-            // Randomly decide how many runs are dedicated to this edge
-            long runsForEdge = this.randomBinomial(runsLeft, 1.0/amountEdgesLeft);
+        long[] counter = new long[graph.capacity()];
+        int[] vertices = graph.vertices();
 
-            // Randomly distribute the runs over the two vertices in the edge
-            long runsForSourceVertex = this.randomBinomial(runsForEdge, 0.5);
-            long runsForTargetVertex = runsForEdge - runsForSourceVertex;
-            int sourceVertex = (int) reducedGraph.getEdgeSource(e);
-            int targetVertex = (int) reducedGraph.getEdgeTarget(e);
+        for (int sourceVertex: vertices) {
+            for (int i = 0; i < graph.neighbourCount(sourceVertex); i++) {
+                int targetVertex = graph.neighbourAt(sourceVertex, i);
+                if (targetVertex < sourceVertex) {
+                    continue;
+                }
 
+                // Parallel edges each get their own runs
+                for (int m = graph.multiplicityAt(sourceVertex, i); m > 0; m--) {
+                    // Randomly decide how many runs are dedicated to this edge
+                    long runsForEdge = randomBinomial(random, runsLeft, 1.0/amountEdgesLeft);
 
-            counter.put(sourceVertex, counter.getOrDefault(sourceVertex, 0L) + runsForSourceVertex);
-            counter.put(targetVertex, counter.getOrDefault(targetVertex, 0L) + runsForTargetVertex);
+                    // Randomly distribute the runs over the two vertices in the edge
+                    long runsForSourceVertex = randomBinomial(random, runsForEdge, 0.5);
+                    long runsForTargetVertex = runsForEdge - runsForSourceVertex;
 
-            amountEdgesLeft--;
+                    counter[sourceVertex] += runsForSourceVertex;
+                    counter[targetVertex] += runsForTargetVertex;
 
+                    amountEdgesLeft--;
+                }
+            }
         }
 
-        for (int vertex: graph.vertexSet()) {
+        for (int vertex: vertices) {
             // No counter implies zero runs for this vertex removal. So do not remove
-            if (!counter.containsKey(vertex)) {
+            if (counter[vertex] == 0) {
                 continue;
             }
-            Multigraph<Integer, DefaultEdge> newGraph = (Multigraph) reducedGraph.clone();
+            IntGraph newGraph = graph.copy();
             newGraph.removeVertex(vertex);
 
-            Solution recursiveSolutionSource = this.findSolutionRecursive(newGraph, reducedK - 1, counter.get(vertex));
+            Solution recursiveSolutionSource = this.findSolutionRecursive(
+                    newGraph, reducedK - 1, counter[vertex], random.split());
             if (recursiveSolutionSource.hasSolution) {
                 recursiveSolutionSource.solution.add(vertex);
                 recursiveSolutionSource.solution.addAll(reductionSolution.verticesToRemoved);
@@ -140,12 +192,14 @@ public class RandomizedDensity implements FVSAlgorithmInterface
      * The result of this function should be equal to the answer of a normally distributed value
      * with mean = np and variance = np (1-p)
      *
+     * @param random
+     * @param n
      * @param p
      */
-    protected long randomBinomial(long n, double p)
+    protected static long randomBinomial(SplittableRandom random, long n, double p)
     {
         // Find a normally distributed number between 0 and 1
-        double guassian = this.random.nextGaussian();
+        double guassian = nextGaussian(random);
 
         // Now do an inverted Z-transformation with variance = np(1-p) and mean = np;
         double variance = n*p*(1-p);
@@ -155,6 +209,23 @@ public class RandomizedDensity implements FVSAlgorithmInterface
         return Math.round(zTransformed);
     }
 
+    /**
+     * A standard normally distributed number, by the polar method of Marsaglia
+     *
+     * @param random
+     * @return
+     */
+    private static double nextGaussian(SplittableRandom random)
+    {
+        double x, y, s;
+        do {
+            x = 2 * random.nextDouble() - 1;
+            y = 2 * random.nextDouble() - 1;
+            s = x * x + y * y;
+        } while (s >= 1 || s == 0);
+        return x * Math.sqrt(-2 * Math.log(s) / s);
+    }
+
     /**
      * Solution for one run of the Randomized Algorithm
      */
@@ -0,0 +1,504 @@
+package Alg.Algorithms.TreewidthDP;
+
+import Alg.FVSAlgorithmInterface;
+import Alg.Kernelization.Kernelization;
+import Alg.Kernelization.ReductionSolution;
+import Alg.Lib.Budget;
+import Alg.Lib.IntGraph;
+import Alg.Lib.IntMultigraph;
+import Alg.Lib.LongIntMap;
+import Alg.TreeDecomposition.Decomposition;
+import Alg.TreeDecomposition.MinDegree;
+import Alg.TreeDecomposition.MinFill;
+import Alg.TreeDecomposition.TreeDecomposition;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Exact dynamic programming over a nice tree decomposition of the kernel. The time is exponential in the width of the
+ * decomposition only, so it solves kernels of small treewidth whatever the size of their solution.
+ *
+ * A state of a bag tells per vertex in the bag whether it is deleted, and if not, in which tree of the forest below
+ * the bag it is. It is packed in a long with 4 bits per vertex, the vertices in the order of their ids: 0 for a
+ * deleted vertex, else the number of its tree, the trees numbered in the order in which they first appear. The table
+ * of a bag maps every state to the fewest deleted vertices below and in the bag.
+ *
+ * An edge is added to the forest when the first of its ends is forgotten. The other end is still in the bag then, and
+ * every edge is added exactly once, also when both ends are in both children of a join.
+ */
+public class TreewidthDP implements FVSAlgorithmInterface
+{
+    /**
+     * The largest width whose states fit in a long: 15 vertices of 4 bits
+     */
+    public static final int MAX_WIDTH = 14;
+
+    private final int maxWidth;
+
+    public TreewidthDP()
+    {
+        this(MAX_WIDTH);
+    }
+
+    /**
+     * @param maxWidth Kernels with a larger treewidth are refused
+     */
+    public TreewidthDP(int maxWidth)
+    {
+        if (maxWidth > MAX_WIDTH) {
+            throw new IllegalArgumentException("The width can be at most " + MAX_WIDTH);
+        }
+        this.maxWidth = maxWidth;
+    }
+
+    public int getMaxWidth()
+    {
+        return this.maxWidth;
+    }
+
+    @Override
+    public boolean isExact()
+    {
+        return true;
+    }
+
+    @Override
+    public List<Integer> findFeedbackVertexSet(ReductionSolution partialSolution)
+    {
+        List<Integer> result = findFeedbackVertexSet(partialSolution.reducedGraph);
+        result.addAll(partialSolution.verticesToRemoved);
+        return result;
+    }
+
+    @Override
+    public List<Integer> findFeedbackVertexSet(Multigraph<Integer, DefaultEdge> graph)
+    {
+        ReductionSolution kernel = Kernelization.kernelot(graph, true);
+        List<Integer> result = new ArrayList<>(kernel.verticesToRemoved);
+        if (kernel.reducedGraph.vertexSet().isEmpty()) {
+            return result;
+        }
+
+        Decomposition decomposition = decompose(kernel.reducedGraph, this.maxWidth);
+        if (decomposition == null) {
+            throw new IllegalArgumentException("The treewidth of the kernel is more than " + this.maxWidth);
+        }
+        result.addAll(this.findFeedbackVertexSet(kernel.reducedGraph, decomposition));
+        return result;
+    }
+
+    @Override
+    public List<Integer> findFeedbackVertexSet(IntGraph graph)
+    {
+        return this.findFeedbackVertexSet(IntMultigraph.toMultigraph(graph));
+    }
+
+    /**
+     * A minimum feedback vertex set of the graph, using the tree decomposition
+     *
+     * @param graph Is not changed
+     * @param decomposition A tree decomposition of the graph, of width at most MAX_WIDTH
+     * @return
+     */
+    public List<Integer> findFeedbackVertexSet(Multigraph<Integer, DefaultEdge> graph, Decomposition decomposition)
+    {
+        IntMultigraph compact = IntMultigraph.fromMultigraph(graph);
+        HashMap<Integer, Integer> ids = new HashMap<>();
+        for (int v: compact.vertices()) {
+            ids.put(compact.label(v), v);
+        }
+
+        Run run = new Run(compact, ids);
+        Table root = run.table(decomposition);
+        return run.solution(root);
+    }
+
+    /**
+     * A nice tree decomposition of the graph, or null if the width of the one found is more than maxWidth
+     *
+     * @param graph Is not changed
+     * @param maxWidth
+     * @return
+     */
+    public static Decomposition decompose(Multigraph<Integer, DefaultEdge> graph, int maxWidth)
+    {
+        // A graph of treewidth w has at most w edges per vertex, not counting double edges
+        IntMultigraph compact = IntMultigraph.fromMultigraph(graph);
+        long edges = 0;
+        for (int v: compact.vertices()) {
+            edges += compact.neighbourCount(v);
+        }
+        if (edges / 2 > (long) maxWidth * compact.vertexCount()) {
+            return null;
+        }
+
+        // Min-fill usually gives the narrower decomposition, but not always, and the time grows fast with the width
+        Decomposition decomposition = TreeDecomposition.makeTreeDecomposition(graph, new MinFill(), maxWidth);
+        int width = decomposition == null ? maxWidth : decomposition.treeWidth() - 1;
+        Decomposition narrower = TreeDecomposition.makeTreeDecomposition(graph, new MinDegree(), width);
+        if (narrower != null) {
+            decomposition = narrower;
+        }
+        return decomposition == null ? null : TreeDecomposition.makeNice(decomposition);
+    }
+
+    /**
+     * The table of a bag. It was made from the table of the previous bag, and for a join the other one, and every state
+     * remembers the states it was made from, to find the solution back.
+     */
+    private static final class Table
+    {
+        // The vertex ids in the bag, in increasing order
+        final int[] bag;
+        final Table previous;
+        final Table other;
+
+        // The position in the bag of the vertex introduced, or -1
+        final int introduced;
+
+        long[] states = new long[4];
+        int[] costs = new int[4];
+        int[] from = new int[4];
+        int[] fromOther;
+        int size = 0;
+
+        private LongIntMap index = new LongIntMap();
+
+        Table(int[] bag, Table previous, Table other, int introduced)
+        {
+            this.bag = bag;
+            this.previous = previous;
+            this.other = other;
+            this.introduced = introduced;
+            if (other != null) {
+                this.fromOther = new int[4];
+            }
+        }
+
+        /**
+         * Keep the state with the cost, if no other way to get it is cheaper
+         */
+        void offer(long state, int cost, int from, int fromOther)
+        {
+            int i = this.index.get(state, -1);
+            if (i < 0) {
+                if (this.size == this.states.length) {
+                    int capacity = this.size * 2;
+                    this.states = Arrays.copyOf(this.states, capacity);
+                    this.costs = Arrays.copyOf(this.costs, capacity);
+                    this.from = Arrays.copyOf(this.from, capacity);
+                    if (this.fromOther != null) this.fromOther = Arrays.copyOf(this.fromOther, capacity);
+                }
+                i = this.size++;
+                this.index.put(state, i);
+            } else if (cost >= this.costs[i]) {
+                return;
+            }
+            this.states[i] = state;
+            this.costs[i] = cost;
+            this.from[i] = from;
+            if (this.fromOther != null) this.fromOther[i] = fromOther;
+        }
+
+        /**
+         * All states are known, the index is not needed any more
+         */
+        Table done()
+        {
+            this.index = null;
+            return this;
+        }
+    }
+
+    /**
+     * The state of one run of the dynamic programming
+     */
+    private static class Run
+    {
+        final IntMultigraph graph;
+        final HashMap<Integer, Integer> ids;
+
+        // Per vertex in a bag the number of its tree, decoded from a state, with room for a new vertex
+        final int[] labels = new int[MAX_WIDTH + 2];
+        final int[] otherLabels = new int[MAX_WIDTH + 2];
+
+        // Union-find over the numbers of the trees, or over the positions in the bag for a join
+        final int[] parent = new int[32];
+
+        // Maps the numbers of the trees to the numbers in the packed state
+        final int[] renumber = new int[32];
+
+        Run(IntMultigraph graph, HashMap<Integer, Integer> ids)
+        {
+            this.graph = graph;
+            this.ids = ids;
+        }
+
+        /**
+         * The table of the root of the decomposition, after all vertices are forgotten. The bags are done from the
+         * leaves up.
+         */
+        Table table(Decomposition decomposition)
+        {
+            int[] order = decomposition.preorder();
+            Table[] tables = new Table[decomposition.size()];
+            Budget budget = Budget.current();
+            for (int i = order.length - 1; i >= 0; i--) {
+                budget.checkNow();
+
+                int bag = order[i];
+                int[] vertices = new int[decomposition.bagSize(bag)];
+                for (int j = 0; j < vertices.length; j++) {
+                    vertices[j] = this.ids.get(decomposition.vertex(bag, j));
+                }
+                Arrays.sort(vertices);
+
+                Table table = null;
+                for (int child = decomposition.firstChild(bag); child >= 0; child = decomposition.nextSibling(child)) {
+                    Table adapted = this.adapt(tables[child], vertices);
+                    tables[child] = null;
+                    table = table == null ? adapted : this.join(table, adapted);
+                }
+                if (table == null) {
+                    Table leaf = new Table(new int[0], null, null, -1);
+                    leaf.offer(0L, 0, -1, -1);
+                    table = this.adapt(leaf.done(), vertices);
+                }
+                tables[bag] = table;
+            }
+            return this.adapt(tables[decomposition.root()], new int[0]);
+        }
+
+        /**
+         * The labels of the deleted vertices of the cheapest state of the root, found back through the tables
+         */
+        List<Integer> solution(Table root)
+        {
+            boolean[] deleted = new boolean[this.graph.capacity()];
+            ArrayDeque<Table> tables = new ArrayDeque<>();
+            ArrayDeque<Integer> indices = new ArrayDeque<>();
+            tables.push(root);
+            indices.push(0);
+            while (!tables.isEmpty()) {
+                Table table = tables.pop();
+                int i = indices.pop();
+                if (table.introduced >= 0 && label(table.states[i], table.introduced) == 0) {
+                    deleted[table.bag[table.introduced]] = true;
+                }
+                if (table.previous != null) {
+                    tables.push(table.previous);
+                    indices.push(table.from[i]);
+                }
+                if (table.other != null) {
+                    tables.push(table.other);
+                    indices.push(table.fromOther[i]);
+                }
+            }
+
+            List<Integer> result = new ArrayList<>();
+            for (int v = 0; v < deleted.length; v++) {
+                if (deleted[v]) result.add(this.graph.label(v));
+            }
+            return result;
+        }
+
+        /**
+         * Forgets the vertices of the table that are not in the bag, then introduces those that are missing
+         */
+        private Table adapt(Table table, int[] bag)
+        {
+            for (int v: table.bag) {
+                if (Arrays.binarySearch(bag, v) < 0) table = this.forget(table, v);
+            }
+            for (int v: bag) {
+                if (Arrays.binarySearch(table.bag, v) < 0) table = this.introduce(table, v);
+            }
+            return table;
+        }
+
+        /**
+         * v is either deleted, or a tree of its own
+         */
+        private Table introduce(Table table, int v)
+        {
+            int s = table.bag.length;
+            int p = -Arrays.binarySearch(table.bag, v) - 1;
+            int[] bag = new int[s + 1];
+            System.arraycopy(table.bag, 0, bag, 0, p);
+            bag[p] = v;
+            System.arraycopy(table.bag, p, bag, p + 1, s - p);
+
+            Table result = new Table(bag, table, null, p);
+            for (int i = 0; i < table.size; i++) {
+                this.decode(table.states[i], s, this.labels);
+                System.arraycopy(this.labels, p, this.labels, p + 1, s - p);
+
+                this.labels[p] = 0;
+                result.offer(this.pack(this.labels, s + 1), table.costs[i] + 1, i, -1);
+                this.labels[p] = 31;
+                result.offer(this.pack(this.labels, s + 1), table.costs[i], i, -1);
+            }
+            return result.done();
+        }
+
+        /**
+         * Adds the edges between v and the rest of the bag to the forest, then leaves out v
+         */
+        private Table forget(Table table, int v)
+        {
+            int s = table.bag.length;
+            int p = Arrays.binarySearch(table.bag, v);
+            int[] bag = new int[s - 1];
+            System.arraycopy(table.bag, 0, bag, 0, p);
+            System.arraycopy(table.bag, p + 1, bag, p, s - p - 1);
+
+            int[] multiplicity = new int[s];
+            for (int q = 0; q < s; q++) {
+                if (q != p) multiplicity[q] = this.graph.multiplicity(v, table.bag[q]);
+            }
+
+            Table result = new Table(bag, table, null, -1);
+            states:
+            for (int i = 0; i < table.size; i++) {
+                this.decode(table.states[i], s, this.labels);
+                int tree = this.labels[p];
+                if (tree != 0) {
+                    for (int l = 0; l < 32; l++) {
+                        this.parent[l] = l;
+                    }
+                    for (int q = 0; q < s; q++) {
+                        if (multiplicity[q] == 0 || this.labels[q] == 0) continue;
+                        int a = this.find(this.labels[q]);
+                        int b = this.find(tree);
+                        if (multiplicity[q] > 1 || a == b) continue states;
+                        this.parent[a] = b;
+                    }
+                    for (int q = 0; q < s; q++) {
+                        if (this.labels[q] != 0) this.labels[q] = this.find(this.labels[q]);
+                    }
+                }
+                System.arraycopy(this.labels, p + 1, this.labels, p, s - p - 1);
+                result.offer(this.pack(this.labels, s - 1), table.costs[i], i, -1);
+            }
+            return result.done();
+        }
+
+        /**
+         * Combines the states of two tables of the same bag that delete the same vertices, when the union of their
+         * forests has no cycle
+         */
+        private Table join(Table left, Table right)
+        {
+            int s = left.bag.length;
+
+            // The states of right by the vertices they delete
+            LongIntMap first = new LongIntMap(right.size);
+            int[] next = new int[right.size];
+            for (int j = right.size - 1; j >= 0; j--) {
+                long mask = deletedMask(right.states[j], s);
+                next[j] = first.get(mask, -1);
+                first.put(mask, j);
+            }
+
+            Table result = new Table(left.bag, left, right, -1);
+            for (int i = 0; i < left.size; i++) {
+                long mask = deletedMask(left.states[i], s);
+                int deleted = Long.bitCount(mask);
+                this.decode(left.states[i], s, this.labels);
+
+                states:
+                for (int j = first.get(mask, -1); j >= 0; j = next[j]) {
+                    this.decode(right.states[j], s, this.otherLabels);
+
+                    // Union-find over the positions, each tree joined to the first position it has
+                    for (int q = 0; q < s; q++) {
+                        this.parent[q] = q;
+                    }
+                    Arrays.fill(this.renumber, -1);
+                    for (int q = 0; q < s; q++) {
+                        int l = this.labels[q];
+                        if (l == 0) continue;
+                        if (this.renumber[l] < 0) this.renumber[l] = q;
+                        else this.parent[q] = this.renumber[l];
+                    }
+                    Arrays.fill(this.renumber, -1);
+                    for (int q = 0; q < s; q++) {
+                        int l = this.otherLabels[q];
+                        if (l == 0) continue;
+                        if (this.renumber[l] < 0) {
+                            this.renumber[l] = q;
+                        } else {
+                            int a = this.find(q);
+                            int b = this.find(this.renumber[l]);
+                            if (a == b) continue states;
+                            this.parent[a] = b;
+                        }
+                    }
+
+                    int[] joined = this.otherLabels;
+                    for (int q = 0; q < s; q++) {
+                        joined[q] = this.labels[q] == 0 ? 0 : this.find(q) + 1;
+                    }
+                    result.offer(this.pack(joined, s), left.costs[i] + right.costs[j] - deleted, i, j);
+                }
+            }
+            return result.done();
+        }
+
+        private int find(int x)
+        {
+            while (this.parent[x] != x) {
+                this.parent[x] = this.parent[this.parent[x]];
+                x = this.parent[x];
+            }
+            return x;
+        }
+
+        private void decode(long state, int s, int[] labels)
+        {
+            for (int q = 0; q < s; q++) {
+                labels[q] = label(state, q);
+            }
+        }
+
+        /**
+         * Packs the labels, numbering the trees in the order in which they first appear
+         */
+        private long pack(int[] labels, int s)
+        {
+            Arrays.fill(this.renumber, 0);
+            int trees = 0;
+            long state = 0;
+            for (int q = 0; q < s; q++) {
+                int l = labels[q];
+                if (l == 0) continue;
+                if (this.renumber[l] == 0) this.renumber[l] = ++trees;
+                state |= (long) this.renumber[l] << (4 * q);
+            }
+            return state;
+        }
+    }
+
+    private static int label(long state, int position)
+    {
+        return (int) (state >>> (4 * position)) & 15;
+    }
+
+    /**
+     * The positions of the deleted vertices of the state, as bits
+     */
+    private static long deletedMask(long state, int s)
+    {
+        long mask = 0;
+        for (int q = 0; q < s; q++) {
+            if (label(state, q) == 0) mask |= 1L << q;
+        }
+        return mask;
+    }
+}
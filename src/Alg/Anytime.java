@@ -0,0 +1,160 @@
+package Alg;
+
+import Alg.Kernelization.Approximation;
+import Alg.Kernelization.ReductionSolution;
+import Alg.Kernelization.Splitter;
+import Alg.Lib.Budget;
+import Alg.Lib.CycleDetector;
+import Alg.Lib.Metrics;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+
+/**
+ * Solves with a deadline. The algorithm runs on a thread of its own, while the 2-approximation gives a solution and a
+ * lower bound straight away: per component of the graph no FVS is smaller than half of the approximation. When the
+ * algorithm finishes in time its solution is used. Else its budget ends at the deadline, and the partial solution it
+ * gives back within GRACE is returned when it is smaller than the approximation, otherwise the approximation is.
+ * Every solution returned is checked to be a feedback vertex set of the graph.
+ */
+public class Anytime {
+
+    /**
+     * How long after the deadline the algorithm may take to give back its partial solution, in ms
+     */
+    public static final long GRACE = 100;
+
+    /**
+     * Solve the graph with the algorithm, returning before the deadline
+     *
+     * @param algorithm
+     * @param graph The graph, is not changed
+     * @param deadline
+     * @return
+     */
+    public static AnytimeResult solve(FVSAlgorithmInterface algorithm, Multigraph<Integer, DefaultEdge> graph, Instant deadline) {
+        Budget budget = new Budget(deadline);
+        FutureTask<List<Integer>> exact = new FutureTask<>(
+                () -> budget.call(() -> algorithm.findFeedbackVertexSet(copy(graph))));
+        Thread worker = new Thread(exact, "anytime-solver");
+        worker.setDaemon(true);
+        worker.start();
+
+        // The approximation and the lower bound, per component since the bounds of the components add up
+        List<Integer> approximation = new ArrayList<>();
+        int lowerBound = 0;
+        for (Multigraph<Integer, DefaultEdge> component : Splitter.split(copy(graph))) {
+            ReductionSolution approx = Approximation.determineFVS2(component, new Integer[0], 1);
+            approximation.addAll(approx.verticesToRemoved);
+            lowerBound += (approx.totalFVSweight + 1) / 2;
+        }
+
+        try {
+            if (lowerBound >= approximation.size() && isFeedbackVertexSet(graph, approximation)) {
+                // The approximation is optimal already, the algorithm is stopped unless it happens to be done
+                budget.cancel();
+                exact.cancel(true);
+                return new AnytimeResult(approximation, true, approximation.size(), finished(exact));
+            }
+
+            long remaining = Duration.between(Instant.now(), deadline).toNanos();
+            List<Integer> solution = exact.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            if (isFeedbackVertexSet(graph, solution) && solution.size() <= approximation.size()) {
+                boolean optimal = algorithm.isExact() || solution.size() <= lowerBound;
+                return new AnytimeResult(solution, optimal, optimal ? solution.size() : lowerBound, true);
+            }
+        } catch (TimeoutException ex) {
+            budget.cancel();
+            List<Integer> partial = partial(exact);
+            if (partial != null && partial.size() < approximation.size() && isFeedbackVertexSet(graph, partial)) {
+                return new AnytimeResult(partial, partial.size() <= lowerBound, lowerBound, false);
+            }
+        } catch (ExecutionException ex) {
+            // Fall back on the approximation
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            budget.cancel();
+            exact.cancel(true);
+        }
+
+        if (!isFeedbackVertexSet(graph, approximation)) {
+            throw new IllegalStateException("The approximation is not a feedback vertex set");
+        }
+        return new AnytimeResult(approximation, false, lowerBound, finished(exact));
+    }
+
+    /**
+     * Whether the algorithm finished with a solution, and was not cancelled or failed
+     */
+    private static boolean finished(FutureTask<List<Integer>> exact) {
+        if (!exact.isDone() || exact.isCancelled()) {
+            return false;
+        }
+        try {
+            exact.get();
+            return true;
+        } catch (ExecutionException | InterruptedException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * The partial solution the cancelled algorithm gives back within GRACE, or its solution when it just finished, or
+     * null
+     */
+    private static List<Integer> partial(FutureTask<List<Integer>> exact) {
+        try {
+            return exact.get(GRACE, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            Budget.Cancelled cancelled = Budget.cancelledCause(ex);
+            return cancelled == null ? null : cancelled.partial;
+        } catch (TimeoutException ex) {
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Same as solve with a deadline, with the deadline timeLimit from now
+     *
+     * @param algorithm
+     * @param graph The graph, is not changed
+     * @param timeLimit
+     * @return
+     */
+    public static AnytimeResult solve(FVSAlgorithmInterface algorithm, Multigraph<Integer, DefaultEdge> graph, Duration timeLimit) {
+        return solve(algorithm, graph, Instant.now().plus(timeLimit));
+    }
+
+    /**
+     * Whether removing the solution from the graph leaves a forest
+     *
+     * @param graph
+     * @param solution
+     * @return
+     */
+    public static boolean isFeedbackVertexSet(Multigraph<Integer, DefaultEdge> graph, List<Integer> solution) {
+        if (new HashSet<>(solution).size() != solution.size()) {
+            return false;
+        }
+        Multigraph<Integer, DefaultEdge> rest = copy(graph);
+        rest.removeAllVertices(solution);
+        return !CycleDetector.hasCycle(rest);
+    }
+
+    private static Multigraph<Integer, DefaultEdge> copy(Multigraph<Integer, DefaultEdge> graph) {
+        Metrics.get().cloned(graph);
+        return (Multigraph<Integer, DefaultEdge>) graph.clone();
+    }
+}
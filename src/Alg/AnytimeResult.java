@@ -0,0 +1,51 @@
+package Alg;
+
+import java.util.List;
+
+/**
+ * The outcome of solving within a time limit: the best feedback vertex set found, and how far it may be from optimal
+ */
+public class AnytimeResult {
+
+    /**
+     * Labels of the vertices in the best feedback vertex set found, always a verified FVS of the graph
+     */
+    public final List<Integer> solution;
+
+    /**
+     * Whether the solution is known to be a minimum feedback vertex set
+     */
+    public final boolean optimal;
+
+    /**
+     * No feedback vertex set of the graph is smaller than this
+     */
+    public final int lowerBound;
+
+    /**
+     * Whether the algorithm finished before the deadline
+     */
+    public final boolean finished;
+
+    public AnytimeResult(List<Integer> solution, boolean optimal, int lowerBound, boolean finished) {
+        this.solution = solution;
+        this.optimal = optimal;
+        this.lowerBound = lowerBound;
+        this.finished = finished;
+    }
+
+    /**
+     * How many vertices the solution may have too many
+     *
+     * @return
+     */
+    public int gap() {
+        return this.solution.size() - this.lowerBound;
+    }
+
+    @Override
+    public String toString() {
+        return "k=" + this.solution.size() + ", lower bound=" + this.lowerBound
+                + (this.optimal ? ", optimal" : "") + (this.finished ? "" : ", timed out");
+    }
+}
@@ -0,0 +1,303 @@
+package Alg;
+
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Byte level tokenizer for the .graph edge list format: one edge per line, two vertex names separated by a space, and
+ * lines starting with # are comments.
+ *
+ * The parser is fed chunks of bytes and keeps its state between chunks, so it works the same on one memory mapped
+ * buffer as on a stream read in pieces. Names that are plain numbers are parsed to a long and looked up in a primitive
+ * hash table, only other names are turned into Strings. The edges are collected in int arrays and the graphs are built
+ * in one go at the end.
+ */
+class EdgeListParser {
+
+    /**
+     * Numbers with more digits than this may not fit in a long, so they are treated as text
+     */
+    private static final int MAX_DIGITS = 18;
+
+    // Vertex names: ids are given in order of first appearance. For a numeric name we store the number, for any
+    // other name the String.
+    private long[] numbers = new long[1024];
+    private String[] texts = new String[1024];
+    private int vertexCount = 0;
+
+    // Open addressing table from numeric name to id
+    private long[] tableKeys = new long[2048];
+    private int[] tableIds = newTable(2048);
+    private final HashMap<String, Integer> textIds = new HashMap<>();
+
+    // Edges and self loops
+    private int[] sources = new int[1024];
+    private int[] targets = new int[1024];
+    private int edges = 0;
+    private int[] loops = new int[16];
+    private int loopCount = 0;
+
+    // Tokenizer state
+    private boolean lineStart = true;
+    private boolean comment = false;
+    private boolean inToken = false;
+    private boolean numeric;
+    private long value;
+    private byte[] token = new byte[64];
+    private int tokenLength;
+    private int tokensOnLine = 0;
+    private final int[] lineIds = new int[2];
+
+    /**
+     * Parse the remaining bytes of the buffer
+     *
+     * @param buffer
+     */
+    void parse(ByteBuffer buffer)
+    {
+        while (buffer.hasRemaining()) {
+            this.accept(buffer.get());
+        }
+    }
+
+    /**
+     * Parse length bytes of the array, starting at offset
+     *
+     * @param bytes
+     * @param offset
+     * @param length
+     */
+    void parse(byte[] bytes, int offset, int length)
+    {
+        for (int i = offset; i < offset + length; i++) {
+            this.accept(bytes[i]);
+        }
+    }
+
+    /**
+     * Must be called after the last chunk, to process a last line without a line break
+     */
+    void finish()
+    {
+        this.endToken();
+        this.endLine();
+    }
+
+    int vertexCount()
+    {
+        return this.vertexCount;
+    }
+
+    int edgeCount()
+    {
+        return this.edges;
+    }
+
+    /**
+     * The vertices that had a self loop, in the order they were read. A vertex is listed once per loop.
+     *
+     * @return
+     */
+    int[] selfLoops()
+    {
+        return Arrays.copyOf(this.loops, this.loopCount);
+    }
+
+    /**
+     * Build the jgrapht graph, with vertices 0..n-1
+     *
+     * @return
+     */
+    Multigraph<Integer, DefaultEdge> buildMultigraph()
+    {
+        Multigraph<Integer, DefaultEdge> graph = new Multigraph<>(DefaultEdge.class);
+        for (int v = 0; v < this.vertexCount; v++) {
+            graph.addVertex(v);
+        }
+        for (int j = 0; j < this.edges; j++) {
+            graph.addEdge(this.sources[j], this.targets[j]);
+        }
+        return graph;
+    }
+
+    /**
+     * The mapping from vertex ids to the names in the input
+     *
+     * @return
+     */
+    HashMap<Integer, String> nameMapping()
+    {
+        HashMap<Integer, String> mapping = new HashMap<>();
+        for (int v = 0; v < this.vertexCount; v++) {
+            mapping.put(v, this.texts[v] != null ? this.texts[v] : Long.toString(this.numbers[v]));
+        }
+        return mapping;
+    }
+
+    private void accept(byte b)
+    {
+        if (b == '\n') {
+            this.endToken();
+            this.endLine();
+            this.lineStart = true;
+            this.comment = false;
+            return;
+        }
+        if (this.comment) {
+            return;
+        }
+        if (this.lineStart && b == '#') {
+            this.comment = true;
+            return;
+        }
+        this.lineStart = false;
+
+        if (b == ' ' || b == '\t' || b == '\r') {
+            this.endToken();
+            return;
+        }
+
+        if (!this.inToken) {
+            this.inToken = true;
+            this.numeric = true;
+            this.value = 0;
+            this.tokenLength = 0;
+        }
+        // Only names that are written the way Long.toString would write them are numeric, such that "007" and "7"
+        // remain different vertices
+        if (this.numeric) {
+            if (b >= '0' && b <= '9' && this.tokenLength < MAX_DIGITS && !(this.tokenLength == 1 && this.value == 0)) {
+                this.value = this.value * 10 + (b - '0');
+            } else {
+                this.numeric = false;
+            }
+        }
+        if (this.tokenLength == this.token.length) {
+            this.token = Arrays.copyOf(this.token, 2 * this.tokenLength);
+        }
+        this.token[this.tokenLength++] = b;
+    }
+
+    private void endToken()
+    {
+        if (!this.inToken) {
+            return;
+        }
+        this.inToken = false;
+
+        int id = this.numeric
+                ? this.idOf(this.value)
+                : this.idOf(new String(this.token, 0, this.tokenLength, StandardCharsets.UTF_8));
+        if (this.tokensOnLine < 2) {
+            this.lineIds[this.tokensOnLine] = id;
+        }
+        this.tokensOnLine++;
+    }
+
+    private void endLine()
+    {
+        if (this.tokensOnLine >= 2) {
+            int source = this.lineIds[0];
+            int target = this.lineIds[1];
+
+            // Document self-loops
+            if (source == target) {
+                if (this.loopCount == this.loops.length) {
+                    this.loops = Arrays.copyOf(this.loops, 2 * this.loopCount);
+                }
+                this.loops[this.loopCount++] = source;
+            } else {
+                if (this.edges == this.sources.length) {
+                    this.sources = Arrays.copyOf(this.sources, 2 * this.edges);
+                    this.targets = Arrays.copyOf(this.targets, 2 * this.edges);
+                }
+                this.sources[this.edges] = source;
+                this.targets[this.edges] = target;
+                this.edges++;
+            }
+        }
+        this.tokensOnLine = 0;
+    }
+
+    private int idOf(String name)
+    {
+        Integer id = this.textIds.get(name);
+        if (id == null) {
+            id = this.newVertex();
+            this.texts[id] = name;
+            this.textIds.put(name, id);
+        }
+        return id;
+    }
+
+    private int idOf(long number)
+    {
+        int mask = this.tableIds.length - 1;
+        int slot = hash(number) & mask;
+        while (this.tableIds[slot] >= 0) {
+            if (this.tableKeys[slot] == number) {
+                return this.tableIds[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = this.newVertex();
+        this.numbers[id] = number;
+        this.tableKeys[slot] = number;
+        this.tableIds[slot] = id;
+
+        // Keep the table at most half full
+        if (2 * this.vertexCount > this.tableIds.length) {
+            this.growTable();
+        }
+        return id;
+    }
+
+    private int newVertex()
+    {
+        if (this.vertexCount == this.numbers.length) {
+            this.numbers = Arrays.copyOf(this.numbers, 2 * this.vertexCount);
+            this.texts = Arrays.copyOf(this.texts, 2 * this.vertexCount);
+        }
+        return this.vertexCount++;
+    }
+
+    private void growTable()
+    {
+        long[] oldKeys = this.tableKeys;
+        int[] oldIds = this.tableIds;
+        this.tableKeys = new long[2 * oldKeys.length];
+        this.tableIds = newTable(2 * oldIds.length);
+
+        int mask = this.tableIds.length - 1;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] < 0) {
+                continue;
+            }
+            int slot = hash(oldKeys[i]) & mask;
+            while (this.tableIds[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            this.tableKeys[slot] = oldKeys[i];
+            this.tableIds[slot] = oldIds[i];
+        }
+    }
+
+    private static int[] newTable(int size)
+    {
+        int[] table = new int[size];
+        Arrays.fill(table, -1);
+        return table;
+    }
+
+    private static int hash(long number)
+    {
+        long h = number * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
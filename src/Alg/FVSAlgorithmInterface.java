@@ -1,9 +1,12 @@
 package Alg;
 
 import Alg.Kernelization.ReductionSolution;
+import Alg.Lib.IntGraph;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.Multigraph;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,4 +28,62 @@ public interface FVSAlgorithmInterface
      * @return
      */
     List<Integer> findFeedbackVertexSet(Multigraph<Integer, DefaultEdge> graph);
+
+    /**
+     * Return the labels of all the vertices that are in the feedback vertex set of a compact graph
+     *
+     * @return
+     */
+    List<Integer> findFeedbackVertexSet(IntGraph graph);
+
+    /**
+     * Whether the feedback vertex sets found are always minimum ones
+     *
+     * @return
+     */
+    default boolean isExact()
+    {
+        return false;
+    }
+
+    /**
+     * Find a feedback vertex set before the deadline: the one of this algorithm if it finishes in time, else the best
+     * one known by then. See Anytime.
+     *
+     * @param graph The graph, is not changed
+     * @param deadline
+     * @return
+     */
+    default AnytimeResult findFeedbackVertexSet(Multigraph<Integer, DefaultEdge> graph, Instant deadline)
+    {
+        return Anytime.solve(this, graph, deadline);
+    }
+
+    /**
+     * Find a feedback vertex set within the time limit, see findFeedbackVertexSet with a deadline
+     *
+     * @param graph The graph, is not changed
+     * @param timeLimit
+     * @return
+     */
+    default AnytimeResult findFeedbackVertexSet(Multigraph<Integer, DefaultEdge> graph, Duration timeLimit)
+    {
+        return Anytime.solve(this, graph, timeLimit);
+    }
+
+    /**
+     * Find a feedback vertex set within the time limit, including the vertices already in the partial solution
+     *
+     * @param partialSolution
+     * @param timeLimit
+     * @return
+     */
+    default AnytimeResult findFeedbackVertexSet(ReductionSolution partialSolution, Duration timeLimit)
+    {
+        AnytimeResult result = Anytime.solve(this, partialSolution.reducedGraph, timeLimit);
+        List<Integer> solution = new ArrayList<>(result.solution);
+        solution.addAll(partialSolution.verticesToRemoved);
+        int removed = partialSolution.verticesToRemoved.size();
+        return new AnytimeResult(solution, result.optimal, result.lowerBound + removed, result.finished);
+    }
 }
@@ -3,10 +3,17 @@ package Alg;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.Multigraph;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 import Alg.Kernelization.ReductionSolution;
 import Alg.Kernelization.Kernelization;
+import Alg.Lib.Metrics;
 
 /**
  * Class with logic to read in the data and produces a Graph suitable for the Feedback Vertex Set problem
@@ -96,6 +103,84 @@ public class InputReader {
         return wrapper;
     }
     
+    /**
+     * Read in the file through a memory mapped channel, and return the reduction solution,
+     * including graph with self looped vertices moved to removed vertices
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static InputWrapper loopSafeReadGraph(File file) throws IOException
+    {
+        Metrics metrics = Metrics.get();
+        long start = metrics.start();
+        EdgeListParser parser = new EdgeListParser();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            // A single mapping can not be larger than 2GB, so larger files are mapped in parts
+            for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+                MappedByteBuffer buffer = channel.map(
+                        FileChannel.MapMode.READ_ONLY, position, Math.min(Integer.MAX_VALUE, size - position)
+                );
+                parser.parse(buffer);
+            }
+        }
+        parser.finish();
+        InputWrapper wrapper = wrap(parser);
+        metrics.stop("stage.parse", start);
+        return wrapper;
+    }
+
+    /**
+     * Read in a stream (for example System.in) in blocks, and return the reduction solution,
+     * including graph with self looped vertices moved to removed vertices
+     *
+     * @param stream
+     * @return
+     * @throws IOException
+     */
+    public static InputWrapper loopSafeReadGraph(InputStream stream) throws IOException
+    {
+        Metrics metrics = Metrics.get();
+        long start = metrics.start();
+        EdgeListParser parser = new EdgeListParser();
+        byte[] buffer = new byte[1 << 16];
+        int read;
+        while ((read = stream.read(buffer)) >= 0) {
+            parser.parse(buffer, 0, read);
+        }
+        parser.finish();
+        InputWrapper wrapper = wrap(parser);
+        metrics.stop("stage.parse", start);
+        return wrapper;
+    }
+
+    /**
+     * Build the graphs from a parser that has read all input
+     *
+     * @param parser
+     * @return
+     */
+    private static InputWrapper wrap(EdgeListParser parser)
+    {
+        InputWrapper wrapper = new InputWrapper();
+        wrapper.reductionSolution = new ReductionSolution();
+        wrapper.reductionSolution.reducedGraph = parser.buildMultigraph();
+        wrapper.nameMapping = parser.nameMapping();
+        InputReader.mapping = wrapper.nameMapping;
+
+        // Eliminate self-loops, a vertex with more than one loop is only taken into the solution once
+        int[] selfLoops = parser.selfLoops();
+        for (int i = selfLoops.length - 1; i >= 0; i--) {
+            if (wrapper.reductionSolution.reducedGraph.containsVertex(selfLoops[i])) {
+                Kernelization.removeVertex(wrapper.reductionSolution, selfLoops[i], true);
+            }
+        }
+
+        return wrapper;
+    }
+
     // just for debugging
     private static Map<Integer, String> mapping;
     public static String map(int v)
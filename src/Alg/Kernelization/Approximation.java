@@ -1,5 +1,6 @@
 package Alg.Kernelization;
 
+import Alg.Lib.Metrics;
 import org.jgrapht.Graphs;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.Multigraph;
@@ -114,6 +115,7 @@ public class Approximation {
     public static ReductionSolution determineFVS(Multigraph<Integer, DefaultEdge> ingraph, boolean cloneGraph, Integer[] weightedVertices, int weight) // changed from boolean to int
     {
         Multigraph<Integer, DefaultEdge> graph = cloneGraph ? (Multigraph<Integer, DefaultEdge>) ingraph.clone(): ingraph;
+        if (cloneGraph) Metrics.get().cloned(graph);
         Deque<Integer> STACK = new ArrayDeque();
 
 
@@ -337,188 +339,23 @@ public class Approximation {
      * @return
      */
     public static ReductionSolution determineFVS2(Multigraph<Integer, DefaultEdge> ingraph, Integer[] weightedVertices, int weight){
+        FeedbackApproximation approximation = new FeedbackApproximation(ingraph);
+        int[] vertices = approximation.vertices();
+
+        int[] weighted = new int[weightedVertices.length];
+        int count = 0;
+        for (Integer v: weightedVertices){
+            int i = approximation.indexOf(v);
+            if (i >= 0) weighted[count++] = i;
+        }
 
+        FeedbackApproximation.Run run = approximation.newRun();
         ReductionSolution solution = new ReductionSolution();
         // VerticesToRemoved acts as solution set F
-        solution.reducedGraph = (Multigraph<Integer, DefaultEdge>) ingraph.clone();
-        // Skip initial filling of F, by definition, no weights are 0
-        Stack<Integer> stack = new Stack<>(); // The STACK
-
-        cleanUp2(solution.reducedGraph, new LinkedList<>(solution.reducedGraph.vertexSet()), new TreeSet<>());
-
-        // Create mapping from vertices to weights
-        HashMap<Integer, Float> weightMap = new HashMap<>();
-        for(Integer v: ingraph.vertexSet()){
-            weightMap.put(v, 1.0f);
-            for(Integer u: weightedVertices){
-                if(v.equals(u)) weightMap.put(v, (float) weight);
-            }
-        }
-
-        // Set of vertices
-        TreeSet<Integer> vertices = new TreeSet<>(solution.reducedGraph.vertexSet());
-
-        // Main algorithm loop
-        while(!vertices.isEmpty()){
-
-            // Detect semidisjoint cycle
-            boolean hasSDC = false;
-            LinkedList<Integer> semiDisjointCycle = new LinkedList<>();
-            LinkedList<Integer> degreeTwoVertices = new LinkedList<>();
-
-            for (Integer v: vertices){
-                if(solution.reducedGraph.degreeOf(v) == 2) degreeTwoVertices.push(v);
-            }
-
-            while(!degreeTwoVertices.isEmpty()){
-                Integer v = degreeTwoVertices.pop();// Get potential cycle segment
-                semiDisjointCycle = new LinkedList();
-                semiDisjointCycle.push(v);
-                List<Integer> neighbours = Graphs.neighborListOf(solution.reducedGraph, v);
-
-                if(neighbours.get(0).equals(neighbours.get(1))){
-                    semiDisjointCycle.push(neighbours.get(0));
-                    hasSDC = true;
-                    break; // Found a semidisjoint cycle of size 2
-                }
-                else {
-                    Integer lastNeighbour = v;
-                    Integer leftNeighbour = neighbours.get(0);
-                    // Walk left from v
-                    while (degreeTwoVertices.contains(leftNeighbour)){
-                        List<Integer> surroundings = Graphs.neighborListOf(solution.reducedGraph, leftNeighbour);
-                        for (Integer s: surroundings){
-                            if (!s.equals(lastNeighbour)){
-                                semiDisjointCycle.push(leftNeighbour);
-                                degreeTwoVertices.remove(leftNeighbour);
-                                lastNeighbour = leftNeighbour;
-                                leftNeighbour = s;
-                                break;
-                            }
-                        }
-                    }
-                    if(leftNeighbour.equals(v)){
-                        hasSDC = true;
-                        break; // Found a disjoint cycle
-                    }
-
-                    lastNeighbour = v;
-                    Integer rightNeighbour = neighbours.get(1);
-                    // Walk right from v
-                    while (degreeTwoVertices.contains(rightNeighbour)){
-                        List<Integer> surroundings = Graphs.neighborListOf(solution.reducedGraph, rightNeighbour);
-                        for (Integer s: surroundings){
-                            if (!s.equals(lastNeighbour)){
-                                semiDisjointCycle.push(leftNeighbour);
-                                degreeTwoVertices.remove(leftNeighbour);
-                                lastNeighbour = rightNeighbour;
-                                rightNeighbour = s;
-                                break;
-                            }
-                        }
-                    }
-                    if(leftNeighbour.equals(rightNeighbour)){
-                        semiDisjointCycle.push(leftNeighbour);
-                        hasSDC = true;
-                        break; // Found a semidisjoint cycle, left and right arrived at same vertex
-                    }
-                }
-            }
-
-            if(hasSDC){
-                // Semidisjoint circle case
-                float gamma = Float.MAX_VALUE;
-                for (Integer v: semiDisjointCycle){
-                    gamma = Math.min(gamma, (float) weightMap.get(v));
-                }
-                for (Integer v: semiDisjointCycle){
-                    weightMap.put(v, (float) weightMap.get(v) - gamma);
-                }
-            }
-            else {
-                // Non semidisjoint circle case
-                float gamma = Float.MAX_VALUE;
-                for (Integer v: vertices){
-                    gamma = Math.min(gamma, weightMap.get(v)/((float) solution.reducedGraph.degreeOf(v) - 1));
-                }
-                for (Integer v: vertices){
-                    weightMap.put(v, weightMap.get(v) - gamma*((float) solution.reducedGraph.degreeOf(v) -1));
-                }
-            }
-
-            // Remove zero weight vertices, add to stack and solution
-            for (Integer v: new LinkedList<>(vertices)){
-                if(weightMap.get(v) <= 1E-40){
-                    vertices.remove(v);
-                    stack.push(v);
-                    solution.reducedGraph.removeVertex(v);
-                }
-            }
-
-            cleanUp2(solution.reducedGraph, new LinkedList<>(solution.reducedGraph.vertexSet()), vertices);
-        }
-
-
-        // Set up union find
-        UnionFind<Integer> union = new UnionFind(ingraph.vertexSet());
-        TreeSet<Integer> unionedVertices = new TreeSet<>();
-        for (Integer v: ingraph.vertexSet()){
-            if(!stack.contains(v)){
-                union.addElement(v);
-                for (Integer u: Graphs.neighborListOf(ingraph, v)){
-                    if(unionedVertices.contains(u)){
-                        union.union(v, u);
-                    }
-                }
-                unionedVertices.add(v);
-            }
-        }
-
-        // Process the STACK
-        while (!stack.isEmpty()){
-            Integer currentVertex = stack.pop(); // view top item from stack
-
-            // get all edges from current vertex in the original graph G
-            LinkedList<DefaultEdge> edges = new LinkedList(ingraph.edgesOf(currentVertex));
-            // get all corresponding neigbors n and, if n in G-F, store them in collection: neighbors
-            List<Integer> neighbors = new ArrayList();
-            for (DefaultEdge e:edges) {
-                neighbors.add(Graphs.getOppositeVertex(ingraph, e, currentVertex));
-            }
-
-            // check if v is connected to the same component more than once using a treeset (duplicates)
-            TreeSet<Integer> neighborComponents = new TreeSet<>();
-            boolean hasDuplicates = false;
-            // check for multiple neighbors of currentVertex that are members of the same component
-            for ( Integer n:neighbors ) {
-                if(unionedVertices.contains(n)) hasDuplicates |= !neighborComponents.add(union.find(n));
-                if (hasDuplicates) break; // we found a loop
-            }
-
-            // in case we didn't find a loop, currentVertex is redundant
-            if(!hasDuplicates){
-                for ( Integer n:neighbors ) {
-                    if (unionedVertices.contains(n)) {
-                        union.union(currentVertex, n); // connect the vertex to its neighbors in G-F (UnionFind components)
-                    }
-                }
-            } else { //if we found a loop, currentVertex is essential
-                solution.verticesToRemoved.add(currentVertex); // add currentVertex to solution F
-            }
-
-            unionedVertices.add(currentVertex);
-        }
-
-
-        //Determine solution weight
-        solution.totalFVSweight = 0;
-        for (Integer v: solution.verticesToRemoved){
-            solution.totalFVSweight++;
-            for (Integer u: weightedVertices){
-                if (v.equals(u)){
-                    solution.totalFVSweight += weight-1;
-                }
-            }
+        solution.reducedGraph = new Multigraph<>(DefaultEdge.class);
+        solution.totalFVSweight = run.solve(Arrays.copyOf(weighted, count), weight);
+        for (int i: run.solution()){
+            solution.verticesToRemoved.add(vertices[i]);
         }
         return solution;
     }
@@ -0,0 +1,496 @@
+package Alg.Kernelization;
+
+import Alg.Lib.Budget;
+import Alg.Lib.UnionFind;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+
+import java.util.Arrays;
+
+/**
+ * The weighted 2-approximation FEEDBACK (see Approximation) on primitive arrays.
+ *
+ * The graph is converted once, and cleaned (rule 0 and 1) once. A Run is the scratch space for one execution, so
+ * several weightings of the same graph can be approximated after each other (or next to each other, one Run per
+ * thread) without allocating.
+ *
+ * Every round of FEEDBACK needs a semidisjoint cycle if there is one, or else the vertex with the smallest
+ * w(u)/(d(u)-1). A semidisjoint cycle is a chain of degree two vertices whose two ends are the same vertex, or a cycle
+ * of degree two vertices only. Chains only change when a vertex gets degree two, so only the chain of such a vertex
+ * has to be walked, after which all vertices on that chain are done. The subtraction of gamma*(d(u)-1) from all
+ * vertices lowers every ratio w(u)/(d(u)-1) by the same gamma, so the ratios are kept in a heap relative to the sum of
+ * all gammas so far. A ratio only has to be updated when the degree or the weight of a vertex changes, the old heap
+ * entry is then skipped when it comes up.
+ */
+public class FeedbackApproximation {
+
+    /**
+     * Weights at most this are zero
+     */
+    private static final double EPSILON = 1E-9;
+
+    // The vertices in increasing order, index i is vertex vertices[i]
+    private final int[] vertices;
+    private final int n;
+
+    // Edge j runs between source[j] and target[j], incident[v] lists all edges of v
+    private final int[] source;
+    private final int[] target;
+    private final int[][] incident;
+
+    // The graph after the first clean up, the live edges of v are adjacency[start[v] .. start[v]+degree[v])
+    private final boolean[] cleanPresent;
+    private final int[] cleanDegree;
+    private final int[] cleanAdjacency;
+    private final int[] cleanPosition;
+    private final int[] start;
+    private final int cleanCount;
+
+    /**
+     * @param graph The graph, is not changed
+     */
+    public FeedbackApproximation(Multigraph<Integer, DefaultEdge> graph) {
+        this.n = graph.vertexSet().size();
+        this.vertices = new int[this.n];
+        int i = 0;
+        for (Integer v: graph.vertexSet()) {
+            this.vertices[i++] = v;
+        }
+        Arrays.sort(this.vertices);
+
+        int m = graph.edgeSet().size();
+        this.source = new int[m];
+        this.target = new int[m];
+        int[] degree = new int[this.n];
+        int j = 0;
+        for (DefaultEdge e: graph.edgeSet()) {
+            this.source[j] = this.indexOf(graph.getEdgeSource(e));
+            this.target[j] = this.indexOf(graph.getEdgeTarget(e));
+            degree[this.source[j]]++;
+            degree[this.target[j]]++;
+            j++;
+        }
+        this.incident = new int[this.n][];
+        this.start = new int[this.n + 1];
+        for (int v = 0; v < this.n; v++) {
+            this.incident[v] = new int[degree[v]];
+            this.start[v + 1] = this.start[v] + degree[v];
+        }
+        int[] fill = new int[this.n];
+        for (j = 0; j < m; j++) {
+            this.incident[this.source[j]][fill[this.source[j]]++] = j;
+            this.incident[this.target[j]][fill[this.target[j]]++] = j;
+        }
+
+        // Clean the full graph once, every run starts from the result
+        Run run = new Run(true);
+        for (int v = 0; v < this.n; v++) {
+            if (run.degree[v] <= 1) run.cleanQueue[run.cleanSize++] = v;
+        }
+        run.clean();
+        this.cleanPresent = run.present;
+        this.cleanDegree = run.degree;
+        this.cleanAdjacency = run.adjacency;
+        this.cleanPosition = run.position;
+        this.cleanCount = run.count;
+    }
+
+    /**
+     * The vertices of the graph in increasing order, indices refer to this order
+     *
+     * @return
+     */
+    public int[] vertices() {
+        return this.vertices.clone();
+    }
+
+    /**
+     * Position of vertex v in the vertices, or a negative number if it is not in the graph
+     *
+     * @param v
+     * @return
+     */
+    public int indexOf(int v) {
+        return Arrays.binarySearch(this.vertices, v);
+    }
+
+    /**
+     * The number of vertices
+     *
+     * @return
+     */
+    public int size() {
+        return this.n;
+    }
+
+    /**
+     * Scratch space for approximations on this graph, to be used by one thread at a time
+     *
+     * @return
+     */
+    public Run newRun() {
+        return new Run(false);
+    }
+
+    private int other(int edge, int v) {
+        return this.source[edge] == v ? this.target[edge] : this.source[edge];
+    }
+
+    /**
+     * Position of edge in the position array, for its end v
+     */
+    private int slot(int edge, int v) {
+        return 2 * edge + (this.source[edge] == v ? 0 : 1);
+    }
+
+    /**
+     * One execution of FEEDBACK at a time
+     */
+    public class Run {
+        // The current graph
+        final boolean[] present;
+        final int[] degree;
+        final int[] adjacency;
+        final int[] position;
+        int count;
+
+        // The ratio w(v)/(d(v)-1) of v is key[v] - offset
+        final double[] key = new double[n];
+        double offset;
+
+        // Binary heap of (key, vertex), entries whose key is no longer the key of the vertex are skipped
+        double[] heapKey = new double[16];
+        int[] heapVertex = new int[16];
+        int heapSize;
+
+        // Vertices that got degree two, whose chain still has to be checked
+        final int[] pending = new int[n];
+        final boolean[] isPending = new boolean[n];
+        int pendingSize;
+
+        // The semidisjoint cycle found, every vertex once
+        final int[] cycle = new int[n];
+        int cycleLength;
+
+        // Vertices whose weight became zero, and vertices to clean up
+        final int[] zero = new int[n];
+        int zeroSize;
+        int[] cleanQueue = new int[Math.max(16, n)];
+        int cleanSize;
+
+        // The STACK, and the solution
+        final int[] stack = new int[n];
+        int top;
+        final int[] solution = new int[n];
+        int solutionSize;
+
+        final UnionFind union = new UnionFind(n);
+        final boolean[] unioned = new boolean[n];
+        final int[] seen = new int[n];
+        int stamp = 0;
+
+        /**
+         * @param full Start from the full graph instead of the cleaned one
+         */
+        Run(boolean full) {
+            this.present = new boolean[n];
+            this.degree = new int[n];
+            this.adjacency = new int[2 * source.length];
+            this.position = new int[2 * source.length];
+            if (full) {
+                Arrays.fill(this.present, true);
+                for (int v = 0; v < n; v++) {
+                    this.degree[v] = incident[v].length;
+                    for (int i = 0; i < incident[v].length; i++) {
+                        int edge = incident[v][i];
+                        this.adjacency[start[v] + i] = edge;
+                        this.position[slot(edge, v)] = i;
+                    }
+                }
+                this.count = n;
+            }
+        }
+
+        /**
+         * Approximates the FVS where the given vertices have the given weight, and the others weight 1
+         *
+         * @param weighted Indices of the weighted vertices
+         * @param weight
+         * @return The total weight of the solution
+         */
+        public int solve(int[] weighted, int weight) {
+            this.reset();
+            for (int v = 0; v < n; v++) {
+                if (this.present[v]) this.setWeight(v, 1.0);
+            }
+            for (int v: weighted) {
+                if (this.present[v]) this.setWeight(v, weight);
+            }
+            for (int v = 0; v < n; v++) {
+                if (this.present[v] && this.degree[v] == 2) this.makePending(v);
+            }
+
+            Budget budget = Budget.current();
+            while (this.count > 0) {
+                budget.check();
+                this.zeroSize = 0;
+                if (this.findSemiDisjointCycle()) {
+                    // Semidisjoint circle case
+                    double gamma = Double.MAX_VALUE;
+                    for (int c = 0; c < this.cycleLength; c++) {
+                        gamma = Math.min(gamma, this.weight(this.cycle[c]));
+                    }
+                    for (int c = 0; c < this.cycleLength; c++) {
+                        int v = this.cycle[c];
+                        double w = this.weight(v) - gamma;
+                        if (w <= EPSILON) this.zero[this.zeroSize++] = v;
+                        else this.setWeight(v, w);
+                    }
+                } else {
+                    // Non semidisjoint circle case, gamma is the smallest ratio
+                    while (!this.validTop()) {
+                        this.pop();
+                    }
+                    this.offset = this.heapKey[0];
+                    while (this.heapSize > 0 && this.heapKey[0] - this.offset <= EPSILON) {
+                        if (this.validTop()) this.zero[this.zeroSize++] = this.heapVertex[0];
+                        this.pop();
+                    }
+                }
+
+                // Remove zero weight vertices, add to stack
+                Arrays.sort(this.zero, 0, this.zeroSize);
+                for (int z = 0; z < this.zeroSize; z++) {
+                    int v = this.zero[z];
+                    if (!this.present[v]) continue;
+                    this.stack[this.top++] = v;
+                    this.remove(v);
+                }
+                this.clean();
+            }
+
+            return this.processStack(weighted, weight);
+        }
+
+        /**
+         * The indices of the vertices in the last solution, in the order they were found
+         *
+         * @return
+         */
+        public int[] solution() {
+            return Arrays.copyOf(this.solution, this.solutionSize);
+        }
+
+        void reset() {
+            System.arraycopy(cleanPresent, 0, this.present, 0, n);
+            System.arraycopy(cleanDegree, 0, this.degree, 0, n);
+            System.arraycopy(cleanAdjacency, 0, this.adjacency, 0, this.adjacency.length);
+            System.arraycopy(cleanPosition, 0, this.position, 0, this.position.length);
+            this.count = cleanCount;
+            this.offset = 0;
+            this.heapSize = 0;
+            this.pendingSize = 0;
+            this.top = 0;
+            this.solutionSize = 0;
+        }
+
+        double weight(int v) {
+            return (this.key[v] - this.offset) * (this.degree[v] - 1);
+        }
+
+        void setWeight(int v, double w) {
+            this.key[v] = this.offset + w / (this.degree[v] - 1);
+            this.push(this.key[v], v);
+        }
+
+        void makePending(int v) {
+            if (!this.isPending[v]) {
+                this.isPending[v] = true;
+                this.pending[this.pendingSize++] = v;
+            }
+        }
+
+        /**
+         * Removes v from the graph, the ratios of its neighbours are updated to their new degree
+         */
+        void remove(int v) {
+            this.present[v] = false;
+            this.isPending[v] = false;
+            this.count--;
+            for (int i = start[v]; i < start[v] + this.degree[v]; i++) {
+                int edge = this.adjacency[i];
+                int u = other(edge, v);
+                double w = this.weight(u);
+
+                // Swap the edge with the last live edge of u
+                int p = this.position[slot(edge, u)];
+                int last = this.adjacency[start[u] + this.degree[u] - 1];
+                this.adjacency[start[u] + p] = last;
+                this.position[slot(last, u)] = p;
+                this.degree[u]--;
+
+                if (this.degree[u] <= 1) {
+                    if (this.cleanSize == this.cleanQueue.length) {
+                        this.cleanQueue = Arrays.copyOf(this.cleanQueue, 2 * this.cleanSize);
+                    }
+                    this.cleanQueue[this.cleanSize++] = u;
+                } else {
+                    this.setWeight(u, w);
+                    if (this.degree[u] == 2) this.makePending(u);
+                }
+            }
+            this.degree[v] = 0;
+        }
+
+        /**
+         * Rule 0 and 1 on the vertices in the clean queue
+         */
+        void clean() {
+            while (this.cleanSize > 0) {
+                int v = this.cleanQueue[--this.cleanSize];
+                if (this.present[v] && this.degree[v] <= 1) this.remove(v);
+            }
+        }
+
+        /**
+         * Walks the chains of the pending vertices, until one of them is a semidisjoint cycle
+         *
+         * @return whether one was found, it is in cycle
+         */
+        boolean findSemiDisjointCycle() {
+            while (this.pendingSize > 0) {
+                int v = this.pending[--this.pendingSize];
+                if (!this.isPending[v]) continue;
+                this.isPending[v] = false;
+                if (!this.present[v] || this.degree[v] != 2) continue;
+
+                this.cycleLength = 0;
+                this.cycle[this.cycleLength++] = v;
+                int left = this.walk(v, this.adjacency[start[v]]);
+                if (left == v) return true; // Found a cycle of degree two vertices
+                int right = this.walk(v, this.adjacency[start[v] + 1]);
+                if (left == right) {
+                    this.cycle[this.cycleLength++] = left;
+                    return true; // Found a semidisjoint cycle, both ends of the chain are the same vertex
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Walks from degree two vertex v over edge along the degree two vertices, adding them to the cycle
+         *
+         * @return The first vertex that does not have degree two, or v
+         */
+        int walk(int v, int edge) {
+            int x = other(edge, v);
+            while (x != v && this.degree[x] == 2) {
+                this.cycle[this.cycleLength++] = x;
+                this.isPending[x] = false;
+                int next = this.adjacency[start[x]];
+                edge = next == edge ? this.adjacency[start[x] + 1] : next;
+                x = other(edge, x);
+            }
+            return x;
+        }
+
+        /**
+         * Whether the top of the heap is the current key of a vertex in the graph
+         */
+        boolean validTop() {
+            int v = this.heapVertex[0];
+            return this.present[v] && this.key[v] == this.heapKey[0];
+        }
+
+        void push(double k, int v) {
+            if (this.heapSize == this.heapKey.length) {
+                this.heapKey = Arrays.copyOf(this.heapKey, 2 * this.heapSize);
+                this.heapVertex = Arrays.copyOf(this.heapVertex, 2 * this.heapSize);
+            }
+            int i = this.heapSize++;
+            while (i > 0 && this.heapKey[(i - 1) / 2] > k) {
+                this.heapKey[i] = this.heapKey[(i - 1) / 2];
+                this.heapVertex[i] = this.heapVertex[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            this.heapKey[i] = k;
+            this.heapVertex[i] = v;
+        }
+
+        void pop() {
+            double k = this.heapKey[--this.heapSize];
+            int v = this.heapVertex[this.heapSize];
+            int i = 0;
+            while (2 * i + 1 < this.heapSize) {
+                int c = 2 * i + 1;
+                if (c + 1 < this.heapSize && this.heapKey[c + 1] < this.heapKey[c]) c++;
+                if (this.heapKey[c] >= k) break;
+                this.heapKey[i] = this.heapKey[c];
+                this.heapVertex[i] = this.heapVertex[c];
+                i = c;
+            }
+            this.heapKey[i] = k;
+            this.heapVertex[i] = v;
+        }
+
+        /**
+         * Puts the vertices of the STACK back in reverse order, and keeps only those that close a cycle in the
+         * original graph
+         *
+         * @return The total weight of the solution
+         */
+        int processStack(int[] weighted, int weight) {
+            boolean[] onStack = this.isPending; // all false again, reused as scratch
+            for (int s = 0; s < this.top; s++) {
+                onStack[this.stack[s]] = true;
+            }
+
+            this.union.reset();
+            for (int v = 0; v < n; v++) {
+                this.unioned[v] = !onStack[v];
+            }
+            for (int v = 0; v < n; v++) {
+                if (!this.unioned[v]) continue;
+                for (int edge: incident[v]) {
+                    int u = other(edge, v);
+                    if (u > v && this.unioned[u]) this.union.union(v, u);
+                }
+            }
+
+            int total = 0;
+            while (this.top > 0) {
+                int current = this.stack[--this.top];
+                onStack[current] = false;
+
+                // Check for multiple neighbours in the same component
+                this.stamp++;
+                boolean hasDuplicates = false;
+                for (int edge: incident[current]) {
+                    int u = other(edge, current);
+                    if (!this.unioned[u]) continue;
+                    int root = this.union.find(u);
+                    if (this.seen[root] == this.stamp) {
+                        hasDuplicates = true;
+                        break;
+                    }
+                    this.seen[root] = this.stamp;
+                }
+
+                if (!hasDuplicates) {
+                    for (int edge: incident[current]) {
+                        int u = other(edge, current);
+                        if (this.unioned[u]) this.union.union(current, u);
+                    }
+                } else {
+                    this.solution[this.solutionSize++] = current;
+                    total++;
+                    for (int v: weighted) {
+                        if (v == current) total += weight - 1;
+                    }
+                }
+                this.unioned[current] = true;
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package Alg.Kernelization;
+
+import Alg.Lib.Budget;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes the importance of every vertex of a graph at once: the weight of the 2-approximation of Approximation
+ * .determineFVS2 when that vertex gets a (very) large weight. See Kernelization.getImportanceApprox.
+ *
+ * The runs for the different vertices have a lot in common, so everything that does not depend on the weights is
+ * done once: the graph is converted to arrays and cleaned (rule 0 and 1) by FeedbackApproximation. Every run then
+ * only copies the cleaned state into its scratch space, instead of cloning the graph and filling a weight map.
+ *
+ * The runs are independent, so they can be spread over a pool, where every worker has its own scratch space.
+ */
+public class ImportanceApproximation {
+
+    /**
+     * Vertices per task taken by a worker
+     */
+    private static final int CHUNK = 8;
+
+    private final FeedbackApproximation approximation;
+    private final int n;
+
+    /**
+     * @param graph The graph, is not changed
+     */
+    public ImportanceApproximation(Multigraph<Integer, DefaultEdge> graph) {
+        this.approximation = new FeedbackApproximation(graph);
+        this.n = this.approximation.size();
+    }
+
+    /**
+     * The vertices of the graph in increasing order, the importance array has the same order
+     *
+     * @return
+     */
+    public int[] vertices() {
+        return this.approximation.vertices();
+    }
+
+    /**
+     * Position of vertex v in the vertices, or a negative number if it is not in the graph
+     *
+     * @param v
+     * @return
+     */
+    public int indexOf(int v) {
+        return this.approximation.indexOf(v);
+    }
+
+    /**
+     * The importance of every vertex, where vertex vertices()[i] gets weight Integer.MAX_VALUE in run i
+     *
+     * @param pool Pool to spread the runs over, or null to do them all in this thread
+     * @return
+     */
+    public int[] importance(ForkJoinPool pool) {
+        int[] all = new int[this.n];
+        for (int i = 0; i < this.n; i++) {
+            all[i] = i;
+        }
+        return this.approximate(all, Integer.MAX_VALUE, pool);
+    }
+
+    /**
+     * Same as importance, as a map from vertex to importance
+     *
+     * @param pool Pool to spread the runs over, or null to do them all in this thread
+     * @return
+     */
+    public HashMap<Integer, Integer> importanceMap(ForkJoinPool pool) {
+        int[] importance = this.importance(pool);
+        int[] vertices = this.vertices();
+        HashMap<Integer, Integer> result = new HashMap<>();
+        for (int i = 0; i < this.n; i++) {
+            result.put(vertices[i], importance[i]);
+        }
+        return result;
+    }
+
+    /**
+     * The total weight of the approximation for each of the given vertices, when only that vertex has the given weight
+     *
+     * @param indices Positions of the vertices in vertices()
+     * @param weight
+     * @param pool Pool to spread the runs over, or null to do them all in this thread
+     * @return The weights, in the order of the indices
+     */
+    public int[] approximate(int[] indices, int weight, ForkJoinPool pool) {
+        int[] result = new int[indices.length];
+        Budget budget = Budget.current();
+        if (pool == null || indices.length < 2 * CHUNK) {
+            FeedbackApproximation.Run run = this.approximation.newRun();
+            for (int i = 0; i < indices.length; i++) {
+                budget.checkNow();
+                result[i] = run.solve(new int[]{indices[i]}, weight);
+            }
+            return result;
+        }
+
+        AtomicInteger next = new AtomicInteger(0);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int w = 0; w < pool.getParallelism(); w++) {
+            // The workers check the budget of the caller
+            tasks.add(ForkJoinTask.adapt(() -> budget.run(() -> {
+                FeedbackApproximation.Run run = this.approximation.newRun();
+                for (int start = next.getAndAdd(CHUNK); start < indices.length; start = next.getAndAdd(CHUNK)) {
+                    budget.checkNow();
+                    for (int i = start; i < Math.min(start + CHUNK, indices.length); i++) {
+                        result[i] = run.solve(new int[]{indices[i]}, weight);
+                    }
+                }
+            })));
+        }
+        if (ForkJoinTask.getPool() == pool) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        }
+        return result;
+    }
+}
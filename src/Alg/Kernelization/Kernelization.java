@@ -1,10 +1,13 @@
 package Alg.Kernelization;
 
-import org.jgrapht.Graphs;
+import Alg.Lib.Budget;
+import Alg.Lib.IntGraph;
+import Alg.Lib.Metrics;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.Multigraph;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Created on 5/24/2016.
@@ -87,7 +90,7 @@ public class Kernelization {
     }
 
     /**
-     * Applies Rule 0 and 1 to the graph. Mainly meant for outside usage.
+     * Applies Rule 0 and 1 exhaustively to the graph. Mainly meant for outside usage.
      *
      * @param solution
      * @param graph
@@ -95,38 +98,40 @@ public class Kernelization {
      */
     public static boolean rule0and1(ReductionSolution solution, Multigraph<Integer, DefaultEdge> graph)
     {
-        Integer[] vertices = (graph.vertexSet()).toArray(new Integer[graph.vertexSet().size()]);
-        return Kernelization.rule0and1(solution, graph, vertices);
-
+        ReductionEngine engine = new ReductionEngine(solution);
+        engine.markAll();
+        return engine.reduce(false);
     }
 
     /**
-     * Fast application of rule 0 and 1 to the graph, where the set of vertices is already extracted. Is faster than
-     * the other rule0and1 method therefore
+     * Applies Rule 0 and 1 exhaustively, starting from the given vertices. Only vertices that are in this set, or that
+     * lose a neighbour, are inspected.
      */
     public static boolean rule0and1(ReductionSolution solution, Multigraph<Integer, DefaultEdge> graph, Integer[] vertices)
     {
-        boolean changed = false;
-        for (int v:vertices) {        //Returns the degree of the specified vertex.
-            int degree = graph.degreeOf(v); // swap vertex "v" with actual vertex identifier
-
-            // Rule 0 & Rule 1
-            if (degree <= 1) {
-                Kernelization.removeVertex(solution, v, false);
-                changed = true;
-            }
+        ReductionEngine engine = new ReductionEngine(solution);
+        for (Integer v: vertices) {
+            engine.mark(v);
         }
-        return changed;
+        return engine.reduce(false);
     }
 
+    /**
+     * Applies Rule 2 to the graph, together with the other simple rules that become applicable
+     *
+     * @param solution
+     * @param graph
+     * @return
+     */
     public static boolean rule2(ReductionSolution solution, Multigraph<Integer, DefaultEdge> graph)
     {
-        Integer[] vertices = (graph.vertexSet()).toArray(new Integer[graph.vertexSet().size()]);
-        return Kernelization.rule2(solution, graph, vertices);
+        ReductionEngine engine = new ReductionEngine(solution);
+        engine.markAll();
+        return engine.reduce();
     }
 
     /**
-     * Fast application of rule 2
+     * Applies Rule 2 starting from the given vertices, together with the other simple rules that become applicable
      *
      * @param solution
      * @param graph
@@ -134,34 +139,11 @@ public class Kernelization {
      * @return
      */
     public static boolean rule2(ReductionSolution solution, Multigraph<Integer, DefaultEdge> graph, Integer[] vertices){
-        boolean changed = false;
-        for (int v:vertices) {
-            // Vertex might be removed already
-            if(!graph.containsVertex(v)) continue;
-
-            int degree = graph.degreeOf(v);
-            // Rule 2
-            if (degree == 2) {
-                //Returns a list of vertices which are adjacent to a specified vertex.
-                List<Integer> neighbors = Graphs.neighborListOf(graph, v); // get neighbors a and b of vertex v (allowing possibly a = b)
-                int a = neighbors.get(0);
-                int b = neighbors.get(1);
-
-                // If the new edge that is places introduces a self loop, then it can be removed,
-                // also remove the "self-loop vertex" and add it to the solution
-                if (a == b) {
-                    Kernelization.removeVertex(solution, v, false);
-                    Kernelization.removeVertex(solution, a, true);
-                } else {
-                    //Creates a new edge in this graph, going from the source vertex to the target vertex, and returns the created edge.
-                    graph.addEdge(a, b); // a = sourceVertex, b = targetVertex
-                    Kernelization.removeVertex(solution, v, false);
-                }
-
-                changed = true;
-            }
+        ReductionEngine engine = new ReductionEngine(solution);
+        for (Integer v: vertices) {
+            engine.mark(v);
         }
-        return changed;
+        return engine.reduce();
     }
 
     /**
@@ -174,58 +156,13 @@ public class Kernelization {
     public static ReductionSolution kernelize( Multigraph<Integer, DefaultEdge> graph, int k, boolean cloneGraph) {
 
         ReductionSolution solution = new ReductionSolution();
-
+        solution.reducedGraph = cloneGraph ? (Multigraph<Integer, DefaultEdge>) graph.clone(): graph;
+        if(cloneGraph) Metrics.get().cloned(graph);
         solution.reducedK = k;
 
-        final Multigraph<Integer, DefaultEdge> reducedGraph = solution.reducedGraph;
-        boolean changed;
+        simpleVertexRules(solution);
 
-        do {
-            changed = false;
-            changed |= Kernelization.rule0and1(solution, reducedGraph);
-            changed |= Kernelization.rule2(solution, reducedGraph);
-
-
-
-//            // Rule 4
-//            LinkedList<DefaultEdge> edges = new LinkedList(reducedGraph.edgeSet());
-//            Collections.sort(edges, (o1, o2) -> {
-//                int a = reducedGraph.getEdgeSource(o1) - reducedGraph.getEdgeSource(o2);
-//                if ( a > 0 ) {
-//                    return 1;
-//                }
-//                if ( a < 0 ) {
-//                    return -1;
-//                }
-//                return reducedGraph.getEdgeTarget(o1) - reducedGraph.getEdgeTarget(o2);
-//            });
-//            Iterator<DefaultEdge> it = edges.iterator();
-//
-//            // If the iterator does not have a next item, we do not have edges. Thus rule 1 will take care of this
-//            // in the next run
-//            if (!it.hasNext()) {
-//                continue;
-//            }
-//            DefaultEdge current = it.next();
-//
-//            while (it.hasNext()) {
-//                DefaultEdge next = it.next();
-//                if ( reducedGraph.getEdgeSource(current) == reducedGraph.getEdgeSource(next) ) {
-//                    if ( reducedGraph.getEdgeTarget(current) == reducedGraph.getEdgeTarget(next) ) {
-//                        reducedGraph.removeEdge(current);
-//                        changed = true;
-//                        continue;
-//                    }
-//                }
-//                current = next;
-//            }
-
-            // Rule 5
-
-            // Rule 6
-        } while(changed);
-
-        solution.stillPossible = solution.reducedK > 0 || (solution.reducedK == 0 && reducedGraph.edgeSet().size() == 0);
+        solution.stillPossible = solution.reducedK > 0 || (solution.reducedK == 0 && solution.reducedGraph.edgeSet().size() == 0);
         return solution;
     }
 
@@ -266,7 +203,23 @@ public class Kernelization {
      * @return
      */
     public static ReductionSolution kernelot( Multigraph<Integer, DefaultEdge> graph, boolean cloneGraph) {
-        return kernelize( graph, 0, cloneGraph, false, false);
+        return kernelot( graph, cloneGraph, null);
+    }
+
+    /**
+     *
+     * @param graph
+     * @param cloneGraph Do we clone the graph, or work on the original graph directly
+     * @param pool Pool to apply the Strongly Forced Vertex Rule on, or null to apply it in this thread
+     * @return
+     */
+    public static ReductionSolution kernelot( Multigraph<Integer, DefaultEdge> graph, boolean cloneGraph, ForkJoinPool pool) {
+        ReductionSolution solution = new ReductionSolution();
+        solution.reducedGraph = cloneGraph ? (Multigraph<Integer, DefaultEdge>) graph.clone(): graph;
+        if(cloneGraph) Metrics.get().cloned(graph);
+        solution.reducedK = 0;
+        solution.stillPossible = true;
+        return kernelize(solution, solution.reducedGraph, false, false, pool);
     }
 
 
@@ -282,48 +235,64 @@ public class Kernelization {
     public static ReductionSolution kernelize( Multigraph<Integer, DefaultEdge> graph, int k, boolean cloneGraph, boolean simpleOnly, boolean useK) {
         ReductionSolution solution = new ReductionSolution();
         solution.reducedGraph = cloneGraph ? (Multigraph<Integer, DefaultEdge>) graph.clone(): graph;
+        if(cloneGraph) Metrics.get().cloned(graph);
         if(useK) solution.reducedK = k;
         else solution.reducedK = 0;
         solution.stillPossible = true;
-        return kernelize(solution, solution.reducedGraph, simpleOnly, useK, false); //Don't use queue, overhead makes slower
+        return kernelize(solution, solution.reducedGraph, simpleOnly, useK);
     }
 
+    /**
+     *
+     * @param solution
+     * @param simpleOnly Do we perform only quick, simple kernelization, or include more costly reductions
+     * @param useK Do we use the value for K from the input, or make our own where needed
+     * @return
+     */
+    public static ReductionSolution kernelize( ReductionSolution solution, Multigraph<Integer, DefaultEdge> graph, boolean simpleOnly, boolean useK) {
+        return kernelize(solution, graph, simpleOnly, useK, null);
+    }
 
-        /**
-         *
-         * @param solution
-         * @param simpleOnly Do we perform only quick, simple kernelization, or include more costly reductions
-         * @param useK Do we use the value for K from the input, or make our own where needed
-         * @return
-         */
-    public static ReductionSolution kernelize( ReductionSolution solution, Multigraph<Integer, DefaultEdge> graph, boolean simpleOnly, boolean useK, boolean useQueue) {
-
-        LinkedList<Integer> relevantVertices = new LinkedList<>();
-        if(useQueue){
-            // Set up set of relevant vertices
-            for (Integer v: graph.vertexSet()) {
-                relevantVertices.add(v);
-            }
+    /**
+     *
+     * @param solution
+     * @param simpleOnly Do we perform only quick, simple kernelization, or include more costly reductions
+     * @param useK Do we use the value for K from the input, or make our own where needed
+     * @param pool Pool to apply the Strongly Forced Vertex Rule on, or null to apply it in this thread
+     * @return
+     */
+    public static ReductionSolution kernelize( ReductionSolution solution, Multigraph<Integer, DefaultEdge> graph, boolean simpleOnly, boolean useK, ForkJoinPool pool) {
+        Metrics metrics = Metrics.get();
+        long start = metrics.start();
+        try {
+            return reduce(solution, simpleOnly, useK, pool);
+        } finally {
+            metrics.stop("stage.kernelize", start);
         }
+    }
 
-        LinkedList<Integer> flowerCoreVertices = new LinkedList<>();
-        if (!simpleOnly){
-            flowerCoreVertices = new LinkedList(solution.reducedGraph.vertexSet());
-            Collections.sort(flowerCoreVertices, (o1, o2) ->
-                    solution.reducedGraph.degreeOf(o1)-solution.reducedGraph.degreeOf(o2));
-        }
+    /**
+     * Applies the rules until none applies any more, see kernelize
+     */
+    private static ReductionSolution reduce( ReductionSolution solution, boolean simpleOnly, boolean useK, ForkJoinPool pool) {
+
+        // Every vertex is dirty at the start, afterwards only the neighbours of changed vertices are
+        ReductionEngine engine = new ReductionEngine(solution);
+
+        // Vertices whose neighbourhood changed have to be checked for the Strongly Forced Vertex Rule again
+        StronglyForcedVertexRule sfv = new StronglyForcedVertexRule(pool);
+        engine.onMark(sfv::invalidate);
+
+        engine.removeMultiEdges();
+        engine.markAll();
 
         boolean changed;
         do {
+            Budget.current().checkNow();
             changed = false;
-            //System.out.println("Pre: " + solution.reducedK);
-
-            // Call Rule 4, reducing any multi edge of multiplicity >2 to multiplicity 2
-            //rule4Q(solution, solution.reducedGraph.edgeSet());
 
             //Perform all reduction rules on vertex degree <3, eliminating self-loops and >2 multi edges along the way
-            if(useQueue) simpleVertexRulesQ(solution, relevantVertices);
-            else simpleVertexRules(solution);
+            engine.reduce();
 
             // Call Rule 5, if possible
             if (useK) {
@@ -340,347 +309,216 @@ public class Kernelization {
             // Return if finished, graph is empty
             if(solution.reducedGraph.vertexSet().isEmpty()) return solution;
 
-            //if(!simpleOnly) System.out.println("Pre: " + solution.reducedK);
-
             // Do advanced rules, if desired
             if (!simpleOnly) {
-                relevantVertices = new LinkedList<>();
-                //System.out.println("post0: "  + solution.reducedK);
-
                 ReductionSolution approxSolution = Approximation.determineFVS2(solution.reducedGraph, new Integer[0], 0);
 
-                /*System.out.println("Weight: " + approxSolution.totalFVSweight);
-                System.out.println(solution.reducedGraph.toString());
-                System.out.println(approxSolution.verticesToRemoved.toString());*/
-
                 int getApprox = approxSolution.totalFVSweight;
                 int usedK = useK ? Math.min(solution.reducedK, getApprox) : getApprox;
-                relevantVertices.addAll(ruleSFV(solution, flowerCoreVertices, usedK));
-                changed |= !relevantVertices.isEmpty();
-                //System.out.println(changed);
 
+                // The neighbours of a forced vertex are the only ones the simple rules have to look at again
+                Set<Integer> changedVertices = sfv.apply(solution, usedK);
+                for (Integer v: changedVertices) {
+                    engine.mark(v);
+                }
+                changed |= !changedVertices.isEmpty();
             }
         } while (changed);
 
-        //if(!simpleOnly) System.out.println("Post: " + solution.reducedK);
-        
-        //System.out.println("post1: "  + solution.reducedK);
-
         return solution;
     }
 
     /**
-     * Applies Rule 0, 1, 2 and 3 to the graph.
-     *
-     * @param solution
-     * @param relevantVertices set of vertices to consider
-     * @return set of changed vertices required to re-inspect
-     */
-    public static LinkedList<Integer> simpleVertexRulesQ(ReductionSolution solution, LinkedList<Integer> relevantVertices)
-    {
-        while (!relevantVertices.isEmpty()) {
-            Integer current = relevantVertices.pop();
-            relevantVertices.addAll(simpleVertexRulesQ(solution, current, relevantVertices));
-            relevantVertices.remove(current);
-        }
-        return new LinkedList<>();
-    }
-
-    /**
-     * Applies Rule 0, 1, 2 and 3 to the graph.
+     * Applies Rule 0, 1, 2, 3 and 4 exhaustively to the graph.
      *
      * @param solution
-     * @return set of changed vertices required to re-inspect
      */
     public static void simpleVertexRules(ReductionSolution solution)
     {
-        boolean changed;
-        Integer[] vertices = ((Set<Integer>) solution.reducedGraph.vertexSet()).toArray(new Integer[solution.reducedGraph.vertexSet().size()]);
-        do {
-            changed = false;
-            for(Integer v: vertices){
-                if(solution.reducedGraph.containsVertex(v)) changed |= simpleVertexRules(solution, v);
-            }
-        } while (changed);
+        ReductionEngine engine = new ReductionEngine(solution);
+        engine.removeMultiEdges();
+        engine.markAll();
+        engine.reduce();
     }
 
-    /**
-     * Applies Rule 0, 1, 2 and 3 to the graph.
-     *
-     * @param solution
-     * @return set of changed vertices required to re-inspect
-     */
-    public static Set<Integer> simpleVertexRulesQ(ReductionSolution solution, Integer v, LinkedList<Integer> relevantVertices)
-    {
-        if(!solution.reducedGraph.containsVertex(v)) return new TreeSet<>();
-        Set<Integer> changedVertices;
-        int d = solution.reducedGraph.degreeOf(v);
-        changedVertices = rule0and1Q(solution, v, d);
-        if(changedVertices.isEmpty()){
-            changedVertices = rule2Q(solution, v, d, relevantVertices);
-        }
-        return changedVertices;
-    }
 
     /**
-     * Applies Rule 0, 1, 2 and 3 to the graph.
+     * Applies Rule 5 to the graph.
      *
      * @param solution
-     * @return set of changed vertices required to re-inspect
+     * @return
      */
-    public static boolean simpleVertexRules(ReductionSolution solution, Integer v)
+    public static boolean rule5(ReductionSolution solution)
     {
-        boolean changed = false;
-        int d = solution.reducedGraph.degreeOf(v);
-        changed |= rule0and1(solution, v, d);
-        if(!changed){
-            changed |= rule2(solution, v, d);
+        if(solution.reducedK < 0){
+            solution.stillPossible = false;
         }
-        return changed;
+        return solution.stillPossible;
     }
 
 
     /**
-     * Applies Rule 0 and 1 to the graph.
+     * Applies Rule 6 to the graph.
      *
      * @param solution
-     * @param v
      * @return
      */
-    public static Set<Integer> rule0and1Q(ReductionSolution solution, Integer v, int d)
+    public static boolean rule6(ReductionSolution solution)
     {
-        TreeSet<Integer> changedVertices = new TreeSet<>();
-        if(d<=1){
-            changedVertices.addAll(Graphs.neighborListOf(solution.reducedGraph, v));
-            removeVertex(solution, v, false);
+        int maxDegree = 0;
+        Multigraph<Integer, DefaultEdge> graph = solution.reducedGraph;
+        for (Integer v: graph.vertexSet()){
+            maxDegree = Math.max(maxDegree, graph.degreeOf(v));
         }
-        return changedVertices;
+        if(graph.vertexSet().size() >= solution.reducedK*(1+maxDegree)){
+            solution.stillPossible = false;
+        }
+        if(graph.edgeSet().size() >= solution.reducedK*(2*maxDegree)){
+            solution.stillPossible = false;
+        }
+        return solution.stillPossible;
     }
 
 
     /**
-     * Applies Rule 0 and 1 to the graph.
+     * Uses approximation to determine the importance of vertices to the FVS.
+     * If a vertex maps to the lowest value in the mapping, the vertex can be replaced by another in the FVS.
+     * If a vertex maps to over twice the lowest value in the mapping, the vertex is mandatory.
      *
-     * @param solution
-     * @param v
+     * @param graph The graph on which the mapping is determined
      * @return
      */
-    public static boolean rule0and1(ReductionSolution solution, Integer v, int d)
-    {
-        if(d<=1){
-            removeVertex(solution, v, false);
-            return true;
-        }
-        return false;
+    public static HashMap<Integer, Integer> getImportanceApprox(Multigraph<Integer, DefaultEdge> graph){
+        return getImportanceApprox(graph, null);
     }
 
-
     /**
-     * Applies Rule 2 to the graph. Takes care to apply Rule 3 and 4 when needed.
+     * Same as getImportanceApprox, with the approximations for the different vertices spread over a pool
      *
-     * @param solution
-     * @param v
+     * @param graph The graph on which the mapping is determined
+     * @param pool The pool, or null to determine them all in this thread
      * @return
      */
-    public static Set<Integer> rule2Q(ReductionSolution solution, Integer v, int d, LinkedList<Integer> relevantVertices)
-    {
-        TreeSet<Integer> changedVertices = new TreeSet<>();
-        if(d==2){
-            changedVertices.addAll(Graphs.neighborListOf(solution.reducedGraph, v));
-            removeVertex(solution, v, false);
-            //Check for rule 3
-            if(changedVertices.first().equals(changedVertices.last())){
-                removeVertex(solution, changedVertices.first(), true);
-                relevantVertices.remove(changedVertices.first());
-                return new TreeSet<>();
-            } else{
-                solution.reducedGraph.addEdge(changedVertices.first(), changedVertices.last());
-                if(Graphs.neighborListOf(solution.reducedGraph, changedVertices.first()).contains(changedVertices.last()))
-                    rule4Q(solution, solution.reducedGraph.edgesOf(changedVertices.first()));
-            }
-        }
-        return changedVertices;
+    public static HashMap<Integer, Integer> getImportanceApprox(Multigraph<Integer, DefaultEdge> graph, ForkJoinPool pool){
+        return new ImportanceApproximation(graph).importanceMap(pool);
     }
 
-
     /**
-     * Applies Rule 2 to the graph. Takes care to apply Rule 3 and 4 when needed.
+     * Helper function to remove a vertex from the graph
      *
-     * @param solution
-     * @param v
-     * @return
+     * @param solution The solution found thus far
+     * @param vertex Vertex that needs to be removed
+     * @param inSolution IF the vertex needs to be in the solution, or if it can be removed, but is not in the solution
      */
-    public static boolean rule2(ReductionSolution solution, Integer v, int d)
-    {
-        return !rule2Q(solution, v, d, new LinkedList<>()).isEmpty();
-    }
+    public static void removeVertex(ReductionSolution solution, int vertex, boolean inSolution) {
+        solution.reducedGraph.removeVertex(vertex);
 
+        if (inSolution) {
+            solution.verticesToRemoved.add(vertex);
+            solution.reducedK -= 1;
+        }
+    }
 
     /**
-     * Applies Rule 4 to the graph, with respect to a set of edges.
+     * Helper function to remove a vertex from a compact graph
      *
-     * @param solution
-     * @return
+     * @param solution The solution found thus far
+     * @param graph The graph to remove the vertex from
+     * @param vertex Vertex that needs to be removed
+     * @param inSolution IF the vertex needs to be in the solution, or if it can be removed, but is not in the solution
      */
-    public static Set<Integer> rule4Q(ReductionSolution solution, Set<DefaultEdge> relevantEdges)
-    {
-        Multigraph<Integer, DefaultEdge> graph = solution.reducedGraph;
-        LinkedList<DefaultEdge> edges = new LinkedList(relevantEdges);
-        Collections.sort(edges, (o1, o2) -> {
-            int a = Math.max(graph.getEdgeSource(o1), graph.getEdgeTarget(o1))
-                    - Math.max(graph.getEdgeSource(o2), graph.getEdgeTarget(o2));
-            if ( a > 0 ) {
-                return 1;
-            }
-            if ( a < 0 ) {
-                return -1;
-            }
-            return Math.min(graph.getEdgeSource(o1), graph.getEdgeTarget(o1))
-                    - Math.min(graph.getEdgeSource(o2), graph.getEdgeTarget(o2));
-        });
-        Iterator<DefaultEdge> it = edges.iterator();
-
-        // If the iterator does not have a next item, we do not have edges. Thus rule 1 will take care of this
-        // in the next run
-        TreeSet<Integer> changedVertices = new TreeSet<>();
-
-        if (!it.hasNext()) return changedVertices;
-        DefaultEdge twoBack = it.next();
-
-        if (!it.hasNext()) return changedVertices;
-        DefaultEdge oneBack = it.next();
-
-        while (it.hasNext()) {
-            DefaultEdge current = it.next();
-            if ( Math.max(graph.getEdgeSource(twoBack), graph.getEdgeTarget(twoBack)) ==
-                    Math.max(graph.getEdgeSource(current), graph.getEdgeTarget(current)) &&
-                    Math.min(graph.getEdgeSource(twoBack), graph.getEdgeTarget(twoBack)) ==
-                    Math.min(graph.getEdgeSource(current), graph.getEdgeTarget(current))
-                    ) {
-                changedVertices.add(graph.getEdgeSource(current));
-                changedVertices.add(graph.getEdgeTarget(current));
-                graph.removeEdge(current);
-                continue;
-            }
-            twoBack = oneBack;
-            oneBack = current;
+    public static void removeVertex(ReductionSolution solution, IntGraph graph, int vertex, boolean inSolution) {
+        graph.removeVertex(vertex);
+
+        if (inSolution) {
+            solution.verticesToRemoved.add(vertex);
+            solution.reducedK -= 1;
         }
-        return changedVertices;
     }
 
-
     /**
-     * Applies Rule 5 to the graph.
+     * Applies the simple rules to a compact graph, working on the graph directly
      *
-     * @param solution
+     * @param graph
+     * @param k The parameter for maximum FVS size
      * @return
      */
-    public static boolean rule5(ReductionSolution solution)
-    {
-        if(solution.reducedK < 0){
-            solution.stillPossible = false;
-        }
-        return solution.stillPossible;
+    public static ReductionSolution kernelittle(IntGraph graph, int k) {
+        return kernelize(graph, k, true);
     }
 
-
     /**
-     * Applies Rule 6 to the graph.
+     * Applies the simple rules to a compact graph, working on the graph directly
      *
-     * @param solution
+     * @param graph
      * @return
      */
-    public static boolean rule6(ReductionSolution solution)
-    {
-        int maxDegree = 0;
-        Multigraph<Integer, DefaultEdge> graph = solution.reducedGraph;
-        for (Integer v: graph.vertexSet()){
-            maxDegree = Math.max(maxDegree, graph.degreeOf(v));
-        }
-        if(graph.vertexSet().size() >= solution.reducedK*(1+maxDegree)){
-            solution.stillPossible = false;
-        }
-        if(graph.edgeSet().size() >= solution.reducedK*(2*maxDegree)){
-            solution.stillPossible = false;
-        }
-        return solution.stillPossible;
+    public static ReductionSolution kernelittle(IntGraph graph) {
+        return kernelize(graph, 0, false);
     }
 
-
     /**
-     * Applies the Strongly Forced Vertex Rule to the graph.
+     * Quick, simple kernelization of a compact graph. The vertices in the returned solution are vertex ids of the
+     * graph, the graph itself is the reduced graph.
      *
-     * @param solution
+     * @param graph
+     * @param k The parameter for maximum FVS size
+     * @param useK Do we use the value for K from the input
      * @return
      */
-    public static Set<Integer> ruleSFV(ReductionSolution solution, LinkedList<Integer> flowerCoreVertices, int k)
-    {
-        Set<Integer> changedVertices = new TreeSet<>();
-        while(!flowerCoreVertices.isEmpty()){
-            Integer currentVertex = flowerCoreVertices.pollLast();
-            if(solution.reducedGraph.containsVertex(currentVertex)) changedVertices = ruleSFV(solution, currentVertex, k);
-            if(!changedVertices.isEmpty()){
-                return changedVertices;
-            }
+    public static ReductionSolution kernelize(IntGraph graph, int k, boolean useK) {
+        ReductionSolution solution = new ReductionSolution();
+        solution.reducedK = useK ? k : 0;
+        solution.stillPossible = true;
+
+        simpleVertexRules(solution, graph);
+
+        if (useK) {
+            rule5(solution);
+            if(!solution.stillPossible) return solution;
+
+            // Return if finished, graph is empty
+            if(graph.vertexCount() == 0) return solution;
+
+            rule6(solution, graph);
         }
-        return new TreeSet<>();
+        return solution;
     }
 
-
     /**
-     * Applies the Strongly Forced Vertex Rule to the graph.
+     * Applies Rule 0, 1, 2, 3 and 4 exhaustively to a compact graph. Only the neighbours of a changed vertex are
+     * inspected again.
      *
      * @param solution
-     * @return
+     * @param graph
      */
-    public static Set<Integer> ruleSFV(ReductionSolution solution, Integer v, int k)
+    public static void simpleVertexRules(ReductionSolution solution, IntGraph graph)
     {
-        TreeSet<Integer> changedVertices = new TreeSet<>();
-        //Get approximation with uniform weights, except v with weight 2k+1
-        ReductionSolution approxSolution = Approximation.determineFVS2(solution.reducedGraph, new Integer[]{v}, 2*k+1);
-        int getApprox = approxSolution.totalFVSweight;
-        //System.out.println("Realk: " + k + ", foundK: " + getApprox + ", vertex: " + v);
-        //System.out.println(solution.reducedGraph.toString());
-        if (getApprox >= (2*k+1)) {
-            // v should be removed, all neighbours flagged for change
-            // (should remove neighbours as well and flag their neighbours??)
-            changedVertices.addAll(Graphs.neighborListOf(solution.reducedGraph, v));
-            removeVertex(solution, v, true);
-            //System.out.println("Forced removal: " + v);
-        }
-        return changedVertices;
+        ReductionEngine engine = new ReductionEngine(solution, graph);
+        engine.markAll();
+        engine.removeMultiEdges();
+        engine.reduce();
     }
 
-
     /**
-     * Uses approximation to determine the importance of vertices to the FVS.
-     * If a vertex maps to the lowest value in the mapping, the vertex can be replaced by another in the FVS.
-     * If a vertex maps to over twice the lowest value in the mapping, the vertex is mandatory.
+     * Applies Rule 6 to a compact graph.
      *
-     * @param graph The graph on which the mapping is determined
+     * @param solution
+     * @param graph
      * @return
      */
-    public static HashMap<Integer, Integer> getImportanceApprox(Multigraph<Integer, DefaultEdge> graph){
-        HashMap<Integer, Integer> result = new HashMap<>();
-        for (Integer v: graph.vertexSet()){
-            result.put(v, Approximation.determineFVS2(graph, new Integer[]{v}, Integer.MAX_VALUE).totalFVSweight);
+    public static boolean rule6(ReductionSolution solution, IntGraph graph)
+    {
+        int maxDegree = 0;
+        for (int v = 0; v < graph.capacity(); v++) {
+            if (graph.containsVertex(v)) maxDegree = Math.max(maxDegree, graph.degreeOf(v));
         }
-        return result;
-    }
-
-    /**
-     * Helper function to remove a vertex from the graph
-     *
-     * @param solution The solution found thus far
-     * @param vertex Vertex that needs to be removed
-     * @param inSolution IF the vertex needs to be in the solution, or if it can be removed, but is not in the solution
-     */
-    public static void removeVertex(ReductionSolution solution, int vertex, boolean inSolution) {
-        solution.reducedGraph.removeVertex(vertex);
-
-        if (inSolution) {
-            solution.verticesToRemoved.add(vertex);
-            solution.reducedK -= 1;
+        if(graph.vertexCount() >= solution.reducedK*(1+maxDegree)){
+            solution.stillPossible = false;
         }
+        if(graph.edgeCount() >= solution.reducedK*(2*maxDegree)){
+            solution.stillPossible = false;
+        }
+        return solution.stillPossible;
     }
 }
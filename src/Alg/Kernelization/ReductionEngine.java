@@ -0,0 +1,403 @@
+package Alg.Kernelization;
+
+import Alg.Lib.Budget;
+import Alg.Lib.IntGraph;
+import org.jgrapht.Graphs;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Applies rule 0 to 4 exhaustively to the reduced graph of a solution, driven by a worklist of dirty vertices.
+ *
+ * Only a vertex whose neighbourhood changed can become reducible, so when a rule removes or bypasses a vertex only its
+ * neighbours are queued again. This way the graph is not scanned again for every pass, and the rules run in time
+ * linear in the size of the graph. Other rules (like the strongly forced vertex rule) can mark the vertices they
+ * changed, and the next call to reduce continues from there.
+ *
+ * The rules are written once, against a Target: the jgrapht graph of the solution, or a compact graph.
+ */
+public class ReductionEngine {
+
+    /**
+     * The graph the rules work on, together with the worklist of its dirty vertices
+     */
+    private interface Target {
+        boolean containsVertex(int v);
+
+        int degreeOf(int v);
+
+        /**
+         * The other end of edge i of v, for i smaller than the degree of v, which is at most 2; parallel edges count
+         * separately
+         */
+        int endOf(int v, int i);
+
+        void forEachNeighbour(int v, IntConsumer action);
+
+        void forEachVertex(IntConsumer action);
+
+        boolean hasDoubleEdge(int a, int b);
+
+        void addEdge(int a, int b);
+
+        void removeVertex(ReductionSolution solution, int v, boolean inSolution);
+
+        /**
+         * Removes all but two of the edges between every pair of vertices, touched gets both ends of every edge
+         *
+         * @return The number of edges removed
+         */
+        int removeMultiEdges(IntConsumer touched);
+
+        /**
+         * @return false if v was queued already
+         */
+        boolean enqueue(int v);
+
+        boolean isEmpty();
+
+        int poll();
+    }
+
+    private final ReductionSolution solution;
+    private final Target graph;
+
+    private IntConsumer onMark = null;
+
+    /**
+     * @param solution The solution whose reduced graph is reduced
+     */
+    public ReductionEngine(ReductionSolution solution) {
+        this.solution = solution;
+        this.graph = new JGraphTarget(solution.reducedGraph);
+    }
+
+    /**
+     * @param solution The solution that gets the vertices of the compact graph that are removed
+     * @param graph The compact graph that is reduced, instead of the reduced graph of the solution
+     */
+    public ReductionEngine(ReductionSolution solution, IntGraph graph) {
+        this.solution = solution;
+        this.graph = new IntGraphTarget(graph);
+    }
+
+    /**
+     * Marks every vertex of the graph as dirty
+     */
+    public void markAll() {
+        this.graph.forEachVertex(this::mark);
+    }
+
+    /**
+     * Lets listener know about every vertex that is marked, which are the vertices whose neighbourhood changed
+     *
+     * @param listener
+     */
+    public void onMark(IntConsumer listener) {
+        this.onMark = listener;
+    }
+
+    /**
+     * Marks v as dirty, such that the rules are applied to it again
+     *
+     * @param v
+     */
+    public void mark(int v) {
+        if (this.onMark != null) {
+            this.onMark.accept(v);
+        }
+        this.graph.enqueue(v);
+    }
+
+    /**
+     * Marks all neighbours of v as dirty
+     *
+     * @param v
+     */
+    public void markNeighbours(int v) {
+        this.graph.forEachNeighbour(v, this::mark);
+    }
+
+    /**
+     * Applies Rule 4 to every pair of vertices of the graph. After this only Rule 2 adds edges, and it never adds a
+     * third edge between two vertices, so this only has to be done once.
+     *
+     * @return Whether any edge was removed
+     */
+    public boolean removeMultiEdges() {
+        int removed = this.graph.removeMultiEdges(this::mark);
+        for (int i = 0; i < removed; i++) {
+            this.solution.ruleCounters.fired(RuleCounters.RULE4);
+        }
+        return removed > 0;
+    }
+
+    /**
+     * Applies Rule 0, 1, 2, 3 and 4 to the dirty vertices, until none are left
+     *
+     * @return Whether the graph changed
+     */
+    public boolean reduce() {
+        return this.reduce(true);
+    }
+
+    /**
+     * Applies the rules to the dirty vertices, until none are left
+     *
+     * @param degreeTwo Whether to apply Rule 2 (and Rule 3 and 4 where it needs them), or only Rule 0 and 1
+     * @return Whether the graph changed
+     */
+    public boolean reduce(boolean degreeTwo) {
+        boolean changed = false;
+        Budget budget = Budget.current();
+        while (!this.graph.isEmpty()) {
+            budget.check();
+            int v = this.graph.poll();
+            if (!this.graph.containsVertex(v)) continue;
+
+            int d = this.graph.degreeOf(v);
+            if (d == 0) {
+                // Rule 0
+                this.graph.removeVertex(this.solution, v, false);
+                this.solution.ruleCounters.fired(RuleCounters.RULE0);
+                changed = true;
+            } else if (d == 1) {
+                // Rule 1
+                this.markNeighbours(v);
+                this.graph.removeVertex(this.solution, v, false);
+                this.solution.ruleCounters.fired(RuleCounters.RULE1);
+                changed = true;
+            } else if (d == 2 && degreeTwo) {
+                this.bypass(v);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Rule 2: replaces degree two vertex v by an edge between its neighbours
+     *
+     * @param v
+     */
+    private void bypass(int v) {
+        int a = this.graph.endOf(v, 0);
+        int b = this.graph.endOf(v, 1);
+
+        this.graph.removeVertex(this.solution, v, false);
+        this.solution.ruleCounters.fired(RuleCounters.RULE2);
+
+        if (a == b) {
+            // The new edge would be a self-loop on a, so Rule 3 takes a into the solution
+            this.markNeighbours(a);
+            this.graph.removeVertex(this.solution, a, true);
+            this.solution.ruleCounters.fired(RuleCounters.RULE3);
+        } else {
+            // Rule 4 makes sure there are never more than two edges between a and b
+            if (this.graph.hasDoubleEdge(a, b)) {
+                this.solution.ruleCounters.fired(RuleCounters.RULE4);
+            } else {
+                this.graph.addEdge(a, b);
+            }
+            this.mark(a);
+            this.mark(b);
+        }
+    }
+
+    /**
+     * The reduced graph of a solution, with a first in first out worklist
+     */
+    private static class JGraphTarget implements Target {
+
+        private final Multigraph<Integer, DefaultEdge> graph;
+        private final ArrayDeque<Integer> dirty = new ArrayDeque<>();
+        private final HashSet<Integer> queued = new HashSet<>();
+
+        JGraphTarget(Multigraph<Integer, DefaultEdge> graph) {
+            this.graph = graph;
+        }
+
+        public boolean containsVertex(int v) {
+            return this.graph.containsVertex(v);
+        }
+
+        public int degreeOf(int v) {
+            return this.graph.degreeOf(v);
+        }
+
+        public int endOf(int v, int i) {
+            Iterator<DefaultEdge> edges = this.graph.edgesOf(v).iterator();
+            for (; i > 0; i--) {
+                edges.next();
+            }
+            return Graphs.getOppositeVertex(this.graph, edges.next(), v);
+        }
+
+        public void forEachNeighbour(int v, IntConsumer action) {
+            for (DefaultEdge e: this.graph.edgesOf(v)) {
+                action.accept(Graphs.getOppositeVertex(this.graph, e, v));
+            }
+        }
+
+        public void forEachVertex(IntConsumer action) {
+            for (Integer v: this.graph.vertexSet()) {
+                action.accept(v);
+            }
+        }
+
+        /**
+         * Only the edges of the vertex with the lowest degree are inspected
+         */
+        public boolean hasDoubleEdge(int a, int b) {
+            if (this.graph.degreeOf(b) < this.graph.degreeOf(a)) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+            int count = 0;
+            for (DefaultEdge e: this.graph.edgesOf(a)) {
+                if (b == Graphs.getOppositeVertex(this.graph, e, a) && ++count == 2) return true;
+            }
+            return false;
+        }
+
+        public void addEdge(int a, int b) {
+            this.graph.addEdge(a, b);
+        }
+
+        public void removeVertex(ReductionSolution solution, int v, boolean inSolution) {
+            Kernelization.removeVertex(solution, v, inSolution);
+        }
+
+        public int removeMultiEdges(IntConsumer touched) {
+            ArrayList<DefaultEdge> surplus = new ArrayList<>();
+            HashMap<Integer, Integer> count = new HashMap<>();
+            for (Integer v: this.graph.vertexSet()) {
+                count.clear();
+                for (DefaultEdge e: this.graph.edgesOf(v)) {
+                    Integer w = Graphs.getOppositeVertex(this.graph, e, v);
+                    // Every pair is handled from its smallest vertex
+                    if (w < v) continue;
+                    if (count.merge(w, 1, Integer::sum) > 2) surplus.add(e);
+                }
+            }
+
+            for (DefaultEdge e: surplus) {
+                touched.accept(this.graph.getEdgeSource(e));
+                touched.accept(this.graph.getEdgeTarget(e));
+                this.graph.removeEdge(e);
+            }
+            return surplus.size();
+        }
+
+        public boolean enqueue(int v) {
+            return this.queued.add(v) && this.dirty.add(v);
+        }
+
+        public boolean isEmpty() {
+            return this.dirty.isEmpty();
+        }
+
+        public int poll() {
+            Integer v = this.dirty.poll();
+            this.queued.remove(v);
+            return v;
+        }
+    }
+
+    /**
+     * A compact graph, with a last in first out worklist
+     */
+    private static class IntGraphTarget implements Target {
+
+        private final IntGraph graph;
+        private final int[] stack;
+        private final boolean[] queued;
+        private int top = 0;
+
+        IntGraphTarget(IntGraph graph) {
+            this.graph = graph;
+            this.stack = new int[graph.capacity()];
+            this.queued = new boolean[graph.capacity()];
+        }
+
+        public boolean containsVertex(int v) {
+            return this.graph.containsVertex(v);
+        }
+
+        public int degreeOf(int v) {
+            return this.graph.degreeOf(v);
+        }
+
+        public int endOf(int v, int i) {
+            // Two parallel edges are one neighbour
+            return this.graph.neighbourAt(v, Math.min(i, this.graph.neighbourCount(v) - 1));
+        }
+
+        public void forEachNeighbour(int v, IntConsumer action) {
+            for (int i = 0; i < this.graph.neighbourCount(v); i++) {
+                action.accept(this.graph.neighbourAt(v, i));
+            }
+        }
+
+        public void forEachVertex(IntConsumer action) {
+            for (int v: this.graph.vertices()) {
+                action.accept(v);
+            }
+        }
+
+        public boolean hasDoubleEdge(int a, int b) {
+            return this.graph.multiplicity(a, b) >= 2;
+        }
+
+        public void addEdge(int a, int b) {
+            this.graph.addEdge(a, b);
+        }
+
+        public void removeVertex(ReductionSolution solution, int v, boolean inSolution) {
+            Kernelization.removeVertex(solution, this.graph, v, inSolution);
+        }
+
+        public int removeMultiEdges(IntConsumer touched) {
+            int removed = 0;
+            for (int v: this.graph.vertices()) {
+                for (int i = 0; i < this.graph.neighbourCount(v); i++) {
+                    int w = this.graph.neighbourAt(v, i);
+                    for (int m = this.graph.multiplicityAt(v, i); m > 2; m--) {
+                        touched.accept(v);
+                        touched.accept(w);
+                        this.graph.removeEdge(v, w);
+                        removed++;
+                    }
+                }
+            }
+            return removed;
+        }
+
+        public boolean enqueue(int v) {
+            if (this.queued[v]) {
+                return false;
+            }
+            this.queued[v] = true;
+            this.stack[this.top++] = v;
+            return true;
+        }
+
+        public boolean isEmpty() {
+            return this.top == 0;
+        }
+
+        public int poll() {
+            int v = this.stack[--this.top];
+            this.queued[v] = false;
+            return v;
+        }
+    }
+}
@@ -36,12 +36,18 @@ public class ReductionSolution
      */
     public Multigraph reducedGraph;
 
+    /**
+     * How many times each reduction rule fired to get to the reduced graph
+     */
+    public RuleCounters ruleCounters = new RuleCounters();
+
     public String toString()
     {
         return  "Reduction Solution:\n" +
                 "\t Still possible? " + (stillPossible ? "Yes" : "No") + "\n" +
                 "\t Vertices to be removed: " + verticesToRemoved + "\n" +
                 "\t FVS weight (approx): " + totalFVSweight + "\n" +
-                "\t Reduced k: " + reducedK + "\n";
+                "\t Reduced k: " + reducedK + "\n" +
+                "\t Rules fired: " + ruleCounters + "\n";
     }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package Alg.Kernelization;
+
+import Alg.Lib.Metrics;
+
+/**
+ * Counts how many times each reduction rule fired during a kernelization. Every firing is counted in the Metrics as
+ * well, as kernel.rule0 and so on, without looking the counter up by name each time.
+ */
+public class RuleCounters
+{
+    public static final int RULE0 = 0;
+    public static final int RULE1 = 1;
+    public static final int RULE2 = 2;
+    public static final int RULE3 = 3;
+    public static final int RULE4 = 4;
+    public static final int SFV = 5;
+
+    private static final String[] NAMES = {"rule0", "rule1", "rule2", "rule3", "rule4", "sfv"};
+    private static final String[] METRICS = {
+            "kernel.rule0", "kernel.rule1", "kernel.rule2", "kernel.rule3", "kernel.rule4", "kernel.sfv"
+    };
+
+    /**
+     * The Metrics counters of the rules, taken once per Metrics instead of looked up by name at every firing
+     */
+    private static class Shared
+    {
+        private final Metrics metrics;
+        private final Metrics.Counter[] counters = new Metrics.Counter[METRICS.length];
+
+        private Shared(Metrics metrics)
+        {
+            this.metrics = metrics;
+            for (int i = 0; i < METRICS.length; i++) {
+                this.counters[i] = metrics.counter(METRICS[i]);
+            }
+        }
+    }
+
+    private static volatile Shared shared;
+
+    private final long[] counts = new long[NAMES.length];
+
+    /**
+     * Record that the given rule fired once
+     *
+     * @param rule One of the rule constants
+     */
+    public void fired(int rule)
+    {
+        this.counts[rule]++;
+        metricsCounter(rule).increment();
+    }
+
+    private static Metrics.Counter metricsCounter(int rule)
+    {
+        Metrics metrics = Metrics.get();
+        Shared current = shared;
+        if (current == null || current.metrics != metrics) {
+            // Metrics were enabled or disabled since; two threads may both get here, their counters are the same
+            current = new Shared(metrics);
+            shared = current;
+        }
+        return current.counters[rule];
+    }
+
+    /**
+     * The number of times the given rule fired
+     *
+     * @param rule One of the rule constants
+     * @return
+     */
+    public long get(int rule)
+    {
+        return this.counts[rule];
+    }
+
+    /**
+     * Adds the counts of other to these counts
+     *
+     * @param other
+     */
+    public void add(RuleCounters other)
+    {
+        for (int i = 0; i < this.counts.length; i++) {
+            this.counts[i] += other.counts[i];
+        }
+    }
+
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < NAMES.length; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(NAMES[i]).append('=').append(this.counts[i]);
+        }
+        return builder.toString();
+    }
+}
@@ -1,5 +1,6 @@
 package Alg.Kernelization;
 
+import org.jgrapht.Graphs;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.Multigraph;
 
@@ -45,7 +46,10 @@ public class SimpleDisjointKernelization extends Kernelization {
     }
 
     /**
-     * Checks if vertex v is in a cycle with only edges from set withSet
+     * Checks if vertex v is in a cycle with only vertices from set withSet.
+     *
+     * Walks the trees of the neighbours of v one by one (without recursion, and without passing v). If a neighbour
+     * was already reached from an earlier neighbour, or v has two parallel edges to it, v is on a cycle.
      *
      * @param v
      * @param graph
@@ -54,62 +58,32 @@ public class SimpleDisjointKernelization extends Kernelization {
      */
     public static boolean inCycleWith(Integer v, Multigraph<Integer, DefaultEdge> graph, Set<Integer> withSet)
     {
-        return SimpleDisjointKernelization.inCycleWithRecursive(v, graph, withSet, v, v, new HashSet<>(v));
-    }
-
-    public static class Switch
-    {
-        protected boolean value = false;
-    }
+        HashSet<Integer> visited = new HashSet<>();
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
 
-    /**
-     * Recursive function to check if vertex v is in a cycle with only edges from set withSet
-     *
-     * @param v target vertex we have to search
-     * @param graph base graph
-     * @param withSet set of other vertices we can use
-     * @param currentVertex current vertex we are searching at
-     * @param lastVertex Last vertex, needed to ensure we do not go back the same way
-     * @return
-     */
-    protected static boolean inCycleWithRecursive(
-            Integer v,
-            Multigraph<Integer, DefaultEdge> graph,
-            Set<Integer> withSet,
-            Integer currentVertex,
-            Integer lastVertex,
-            Set<Integer> done
-    ) {
-        final Switch secondBack = new Switch();
-
-        return SimpleDisjointKernelization.getNeighbours(graph, currentVertex).anyMatch(vertex -> {
-            // Do not go back the same way
-            // unless the lastVertex is the vertex we are looking for (v) and this is the second time
-            // we can go back (meaning two edges going back, one already visited to get here, the
-            // other one completing the cycle)
-            if (vertex.equals(lastVertex) && !(secondBack.value && lastVertex.equals(v))) {
-                secondBack.value = true;
-                return false;
+        for (DefaultEdge e: graph.edgesOf(v)) {
+            Integer u = Graphs.getOppositeVertex(graph, e, v);
+            if (!withSet.contains(u)) {
+                continue;
             }
 
             // We found a cycle
-            if (vertex.equals(v)) {
+            if (!visited.add(u)) {
                 return true;
             }
 
-            // We have already checked this vertex.
-            if (done.contains(vertex)) {
-                return false;
-            }
-
-            if (withSet.contains(vertex)) {
-                done.add(vertex);
-                if (SimpleDisjointKernelization.inCycleWithRecursive(v, graph, withSet, vertex, currentVertex, done)) {
-                    return true;
+            stack.push(u);
+            while (!stack.isEmpty()) {
+                Integer current = stack.pop();
+                for (DefaultEdge f: graph.edgesOf(current)) {
+                    Integer next = Graphs.getOppositeVertex(graph, f, current);
+                    if (!next.equals(v) && withSet.contains(next) && visited.add(next)) {
+                        stack.push(next);
+                    }
                 }
             }
-            return false;
-        });
+        }
+        return false;
     }
 
     /**
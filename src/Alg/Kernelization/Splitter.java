@@ -1,13 +1,17 @@
 package Alg.Kernelization;
 
+import Alg.Lib.Metrics;
+import org.jgrapht.Graphs;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.Multigraph;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Class that removes vertices not part of a cycle, and splits the remaining graph into subgraphs that can be solved independently
+ *
+ * The edges not on a cycle are found with one iterative Tarjan search, which also gives the biconnected blocks. Blocks
+ * share articulation points, so they can not be solved independently, see SplitSolve for how they are combined.
  */
 public class Splitter {
 
@@ -18,42 +22,124 @@ public class Splitter {
      */
     public static List<Multigraph<Integer, DefaultEdge>> split(Multigraph<Integer, DefaultEdge> graph)
     {
+        Metrics metrics = Metrics.get();
+        long start = metrics.start();
         removeEdgesNotInCylce(graph);
 
+        List<Multigraph<Integer, DefaultEdge>> split = splitGraph(graph);
+        metrics.stop("stage.split", start);
+        return split;
+    }
+
+    /**
+     * A biconnected block of a graph that contains a cycle. Two parallel edges count as a cycle.
+     */
+    public static class Block {
 
-        return splitGraph(graph);
+        /**
+         * The vertices and edges of the block
+         */
+        public final Multigraph<Integer, DefaultEdge> graph;
+
+        /**
+         * Index of the block this block hangs from, -1 if it is the root of its part of the graph
+         */
+        public final int parent;
+
+        /**
+         * The only vertex this block, and everything hanging below it, shares with the parent. Null for a root
+         */
+        public final Integer articulationPoint;
+
+        Block(Multigraph<Integer, DefaultEdge> graph, int parent, Integer articulationPoint) {
+            this.graph = graph;
+            this.parent = parent;
+            this.articulationPoint = articulationPoint;
+        }
     }
 
     /**
-     * Remove all the edges from the graph that are not part of a cycle
+     * Splits the graph into its biconnected blocks that contain a cycle, the bridges and trees between them are left
+     * out. The blocks form a forest through their parent, and are listed such that every block comes after all the
+     * blocks that hang below it. The graph itself is not changed.
      *
      * @param graph
+     * @return
      */
-    public static void removeEdgesNotInCylce(Multigraph<Integer, DefaultEdge> graph)
+    public static List<Block> splitBlocks(Multigraph<Integer, DefaultEdge> graph)
     {
-        Set<DefaultEdge> edgeSet = graph.edgeSet();
-        DefaultEdge[] edgeArray = edgeSet.toArray(new DefaultEdge[edgeSet.size()]);
-        for (DefaultEdge edge: edgeArray) {
-            HashSet<Integer> done = new HashSet<>();
-            done.add(graph.getEdgeSource(edge)); // Makes sure that we do not visit the source againrce(edge) + " -> " + graph.getEdgeTarget(edge));
-            // Only works because our implementation does not visit nodes twice. So it won't visit the start node again
-            // Furthermore, it does not go to the target node directly
-            // So it only finds the target node if
-            if (! Splitter.DFSRecursive(
-                    graph.getEdgeTarget(edge),  // Find the target of the edge
-                    graph,
-                    graph.getEdgeSource(edge), // From the source of the edge
-                    graph.getEdgeTarget(edge), // And we are not allowed to go back directly
-                    done
-            )) {
-                graph.removeEdge(edge);
+        Decomposition d = new Decomposition(graph);
+
+        // Number the blocks with a cycle in the order in which they were found
+        int[] index = new int[d.blockCount];
+        int count = 0;
+        for (int b = 0; b < d.blockCount; b++) {
+            index[b] = d.isCyclic(b) ? count++ : -1;
+        }
+
+        // Blocks with a cycle that hang from the same vertex, but have no block with a cycle above it, are all
+        // attached to the last of them
+        int[] rootAt = new int[d.vertices.length];
+        Arrays.fill(rootAt, -1);
+        for (int b = 0; b < d.blockCount; b++) {
+            int above = d.innerBlock[d.top[b]];
+            if (index[b] >= 0 && (above < 0 || index[above] < 0)) {
+                rootAt[d.top[b]] = b;
             }
         }
 
+        List<Multigraph<Integer, DefaultEdge>> graphs = new ArrayList<>(count);
+        for (int b = 0; b < count; b++) {
+            graphs.add(new Multigraph<>(DefaultEdge.class));
+        }
+        for (int e = 0; e < d.edges.length; e++) {
+            int b = index[d.blockOfEdge[e]];
+            if (b >= 0) {
+                Multigraph<Integer, DefaultEdge> g = graphs.get(b);
+                Integer source = d.vertices[d.source[e]];
+                Integer target = d.vertices[d.target[e]];
+                g.addVertex(source);
+                g.addVertex(target);
+                g.addEdge(source, target);
+            }
+        }
+
+        List<Block> blocks = new ArrayList<>(count);
+        for (int b = 0; b < d.blockCount; b++) {
+            if (index[b] < 0) {
+                continue;
+            }
+            int top = d.top[b];
+            int above = d.innerBlock[top];
+            if (above >= 0 && index[above] >= 0) {
+                blocks.add(new Block(graphs.get(index[b]), index[above], d.vertices[top]));
+            } else if (rootAt[top] != b) {
+                blocks.add(new Block(graphs.get(index[b]), index[rootAt[top]], d.vertices[top]));
+            } else {
+                blocks.add(new Block(graphs.get(index[b]), -1, null));
+            }
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Remove all the edges from the graph that are not part of a cycle, these are exactly the bridges
+     *
+     * @param graph
+     */
+    public static void removeEdgesNotInCylce(Multigraph<Integer, DefaultEdge> graph)
+    {
+        Decomposition d = new Decomposition(graph);
+        for (int e = 0; e < d.edges.length; e++) {
+            if (!d.isCyclic(d.blockOfEdge[e])) {
+                graph.removeEdge(d.edges[e]);
+            }
+        }
     }
 
     /**
-     * Creates a new
+     * Creates a new graph for every connected component, the original graph is emptied
      * @param graph
      */
     public static List<Multigraph<Integer, DefaultEdge>> splitGraph(Multigraph<Integer, DefaultEdge> graph)
@@ -83,71 +169,163 @@ public class Splitter {
             Multigraph<Integer, DefaultEdge> newgraph,
             int vertex
     )  {
-        // add vertex to new graph
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
         newgraph.addVertex(vertex);
+        queue.add(vertex);
 
-        // Copy all the neighbours, and edges
-        SimpleDisjointKernelization.getNeighbours(originalGraph, vertex)
-                .collect(Collectors.toCollection(ArrayList::new))  // Collect to prevent concurrentmodificationexceptions
-                .forEach(v -> {
-                    // Only continue with our recursive copy if the vertex is not copied yet
-                    if (!newgraph.containsVertex(v)) {
-                        copySubGraph(originalGraph, newgraph, v);
-                    }
+        while (!queue.isEmpty()) {
+            Integer v = queue.poll();
 
-                    // Make sure that edges are only copied once
-                    if (!newgraph.containsEdge(vertex, v)) {
-                        newgraph.addEdge(vertex, v);
-                    }
-                });
+            // Copy all the edges, every edge is copied from the first of its vertices that is taken from the queue
+            for (DefaultEdge edge : originalGraph.edgesOf(v)) {
+                Integer w = Graphs.getOppositeVertex(originalGraph, edge, v);
+                if (newgraph.addVertex(w)) {
+                    queue.add(w);
+                }
+                newgraph.addEdge(v, w);
+            }
 
-        // Remove the vertex from the original graph, and return new graph
-        originalGraph.removeVertex(vertex);
+            // Remove the vertex and its edges from the original graph
+            originalGraph.removeVertex(v);
+        }
     }
 
-
     /**
-     * Recursive function to do a dfs for a node v from node currentVertex
-     *
-     * @param v target vertex we have to search
-     * @param graph base graph
-     * @param currentVertex current vertex we are searching at
-     * @param lastVertex Last vertex, needed to ensure we do not go back the same way
-     * @return
+     * Iterative Tarjan search on an array copy of the graph. Every edge gets the index of its biconnected block. A
+     * block consisting of a single edge is a bridge, every other block contains a cycle.
      */
-    protected static boolean DFSRecursive(
-            Integer v,
-            Multigraph<Integer, DefaultEdge> graph,
-            Integer currentVertex,
-            Integer lastVertex,
-            HashSet<Integer> done
-    ) {
-        Collection<Integer> neighbours = SimpleDisjointKernelization.getNeighbours(graph, currentVertex)
-                .collect(Collectors.toCollection(ArrayList<Integer>::new));
-
-        for (int vertex : neighbours) {
-            // Do not go back the same way
-            if (vertex == lastVertex) {
-                continue;
-            }
+    private static class Decomposition {
+
+        final Integer[] vertices;
+        final DefaultEdge[] edges;
+        final int[] source;
+        final int[] target;
+
+        final int[] blockOfEdge;
+        int blockCount = 0;
 
-            // We found a cycle
-            if (vertex == v) {
-                return true;
+        // Per block the vertex closest to the root of the search, and the number of edges
+        int[] top = new int[16];
+        int[] size = new int[16];
+
+        // Per vertex the block that contains the edge to its parent in the search, -1 for the roots
+        final int[] innerBlock;
+
+        Decomposition(Multigraph<Integer, DefaultEdge> graph) {
+            Set<Integer> vertexSet = graph.vertexSet();
+            Set<DefaultEdge> edgeSet = graph.edgeSet();
+            int n = vertexSet.size();
+            int m = edgeSet.size();
+
+            this.vertices = vertexSet.toArray(new Integer[n]);
+            HashMap<Integer, Integer> ids = new HashMap<>(2 * n);
+            for (int v = 0; v < n; v++) {
+                ids.put(this.vertices[v], v);
             }
 
-            // We have already checked this vertex.
-            if (done.contains(vertex)) {
-                continue;
+            this.edges = edgeSet.toArray(new DefaultEdge[m]);
+            this.source = new int[m];
+            this.target = new int[m];
+            int[] start = new int[n + 1];
+            for (int e = 0; e < m; e++) {
+                this.source[e] = ids.get(graph.getEdgeSource(this.edges[e]));
+                this.target[e] = ids.get(graph.getEdgeTarget(this.edges[e]));
+                start[this.source[e] + 1]++;
+                start[this.target[e] + 1]++;
             }
+            for (int v = 0; v < n; v++) {
+                start[v + 1] += start[v];
+            }
+            int[] incident = new int[2 * m];
+            int[] fill = Arrays.copyOf(start, n);
+            for (int e = 0; e < m; e++) {
+                incident[fill[this.source[e]]++] = e;
+                incident[fill[this.target[e]]++] = e;
+            }
+
+            this.blockOfEdge = new int[m];
+            this.innerBlock = new int[n];
+            Arrays.fill(this.innerBlock, -1);
+
+            int[] discovered = new int[n];
+            int[] low = new int[n];
+            int[] parentEdge = new int[n];
+            int[] next = Arrays.copyOf(start, n);
+            int[] vertexStack = new int[n];
+            int[] edgeStack = new int[m];
+            int edgeTop = 0;
+            int time = 0;
+
+            for (int root = 0; root < n; root++) {
+                if (discovered[root] != 0) {
+                    continue;
+                }
+                int vertexTop = 0;
+                vertexStack[vertexTop++] = root;
+                parentEdge[root] = -1;
+                discovered[root] = low[root] = ++time;
+
+                while (vertexTop > 0) {
+                    int v = vertexStack[vertexTop - 1];
+
+                    if (next[v] < start[v + 1]) {
+                        int e = incident[next[v]++];
+                        // Only the edge we came through is skipped, so a parallel edge is a way back
+                        if (e == parentEdge[v]) {
+                            continue;
+                        }
+                        int w = this.source[e] == v ? this.target[e] : this.source[e];
+                        if (discovered[w] == 0) {
+                            edgeStack[edgeTop++] = e;
+                            parentEdge[w] = e;
+                            discovered[w] = low[w] = ++time;
+                            vertexStack[vertexTop++] = w;
+                        } else if (discovered[w] < discovered[v]) {
+                            edgeStack[edgeTop++] = e;
+                            low[v] = Math.min(low[v], discovered[w]);
+                        }
+                        continue;
+                    }
 
-            done.add(vertex);
-            if (Splitter.DFSRecursive(v, graph, vertex, currentVertex, done)) {
-                return true;
+                    // All neighbours are done, go back to the parent
+                    vertexTop--;
+                    if (parentEdge[v] < 0) {
+                        continue;
+                    }
+                    int u = this.source[parentEdge[v]] == v ? this.target[parentEdge[v]] : this.source[parentEdge[v]];
+                    low[u] = Math.min(low[u], low[v]);
+
+                    // Nothing below v reaches above u, so the edges on the stack down to the parent edge of v form a block
+                    if (low[v] >= discovered[u]) {
+                        int b = this.newBlock(u);
+                        int e;
+                        do {
+                            e = edgeStack[--edgeTop];
+                            this.blockOfEdge[e] = b;
+                            this.size[b]++;
+                            if (this.source[e] != u) {
+                                this.innerBlock[this.source[e]] = b;
+                            }
+                            if (this.target[e] != u) {
+                                this.innerBlock[this.target[e]] = b;
+                            }
+                        } while (e != parentEdge[v]);
+                    }
+                }
             }
         }
 
-        // We could not find
-        return false;
+        boolean isCyclic(int block) {
+            return this.size[block] > 1;
+        }
+
+        private int newBlock(int top) {
+            if (this.blockCount == this.top.length) {
+                this.top = Arrays.copyOf(this.top, 2 * this.blockCount);
+                this.size = Arrays.copyOf(this.size, 2 * this.blockCount);
+            }
+            this.top[this.blockCount] = top;
+            return this.blockCount++;
+        }
     }
 }
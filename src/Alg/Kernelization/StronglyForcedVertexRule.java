@@ -0,0 +1,89 @@
+package Alg.Kernelization;
+
+import org.jgrapht.Graphs;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The Strongly Forced Vertex Rule, applied to all candidates of a round at once.
+ *
+ * A vertex v is forced when the approximation with weight 2k+1 on v (and 1 on the others) weighs at least 2k+1: then
+ * every FVS of size at most k contains v. All vertices that are forced in the same graph can be removed together,
+ * since taking one of them keeps the others forced in what remains. So every round the approximations of all
+ * candidates are computed on the same graph, spread over the pool.
+ *
+ * A vertex that was not forced is remembered, and is only a candidate again once its neighbourhood changed, which is
+ * reported through invalidate (the reduction engine does so for every vertex it marks).
+ */
+public class StronglyForcedVertexRule {
+
+    private final ForkJoinPool pool;
+
+    // The vertices that were not forced, and whose neighbourhood did not change since
+    private final HashSet<Integer> notForced = new HashSet<>();
+
+    /**
+     * @param pool Pool to compute the approximations on, or null to compute them in this thread
+     */
+    public StronglyForcedVertexRule(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Makes v a candidate again, because its neighbourhood changed
+     *
+     * @param v
+     */
+    public void invalidate(Integer v) {
+        this.notForced.remove(v);
+    }
+
+    /**
+     * Removes all forced candidates from the reduced graph and adds them to the solution
+     *
+     * @param solution
+     * @param k
+     * @return The remaining neighbours of the removed vertices
+     */
+    public Set<Integer> apply(ReductionSolution solution, int k) {
+        Multigraph<Integer, DefaultEdge> graph = solution.reducedGraph;
+        ImportanceApproximation approximation = new ImportanceApproximation(graph);
+
+        List<Integer> candidates = new ArrayList<>();
+        for (Integer v: graph.vertexSet()) {
+            if (!this.notForced.contains(v)) candidates.add(v);
+        }
+        if (candidates.isEmpty()) return new TreeSet<>();
+
+        int[] indices = new int[candidates.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = approximation.indexOf(candidates.get(i));
+        }
+        int[] weights = approximation.approximate(indices, 2*k+1, this.pool);
+
+        List<Integer> forced = new ArrayList<>();
+        for (int i = 0; i < indices.length; i++) {
+            if (weights[i] >= 2*k+1) forced.add(candidates.get(i));
+            else this.notForced.add(candidates.get(i));
+        }
+
+        TreeSet<Integer> changedVertices = new TreeSet<>();
+        for (Integer v: forced) {
+            changedVertices.addAll(Graphs.neighborListOf(graph, v));
+            Kernelization.removeVertex(solution, v, true);
+            solution.ruleCounters.fired(RuleCounters.SFV);
+        }
+        changedVertices.removeAll(forced);
+        for (Integer v: changedVertices) {
+            this.invalidate(v);
+        }
+        return changedVertices;
+    }
+}
@@ -0,0 +1,237 @@
+package Alg.Lib;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A cancellation token with an optional time limit, that the solvers and the kernelization check while they run.
+ *
+ * A budget is cancelled when cancel is called, when its deadline has passed, or when the thread that checks it or the
+ * thread that created it is interrupted. Every thread has a current budget: the one installed with call or run, or
+ * else one without deadline that only reacts to interrupts, which is how the solvers always behaved. Work that is
+ * spread over a pool takes the budget of the caller along, so cancelling the caller stops the workers too.
+ *
+ * Loops call check once per step. Only every INTERVAL-th call looks at the clock and the interrupt flags, so a check
+ * costs about an increment. When the budget is cancelled, check throws Cancelled, which may carry the best solution the
+ * solver knew at that point.
+ */
+public class Budget
+{
+    /**
+     * Calls of check per real check
+     */
+    public static final int INTERVAL = 1024;
+
+    private static final ThreadLocal<Budget> CURRENT = ThreadLocal.withInitial(Budget::new);
+
+    private static final Budget UNLIMITED = new Budget(Long.MAX_VALUE, null, false);
+
+    /**
+     * Thrown when the budget is cancelled. The cause is an InterruptedException, as for the interrupts the solvers
+     * always reacted to.
+     */
+    public static class Cancelled extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The labels of a feedback vertex set of the graph the solver was given, or null when it had none yet
+         */
+        public final List<Integer> partial;
+
+        public Cancelled()
+        {
+            this(null);
+        }
+
+        public Cancelled(List<Integer> partial)
+        {
+            super(new InterruptedException());
+            this.partial = partial;
+        }
+    }
+
+    private final long deadline;
+    private final Thread owner;
+    private final boolean interruptible;
+    private volatile boolean cancelled = false;
+
+    // Shared by all threads checking this budget, lost updates only make a check come a bit later
+    private int ticks = 0;
+
+    /**
+     * A budget without deadline, for the current thread
+     */
+    public Budget()
+    {
+        this(Long.MAX_VALUE, Thread.currentThread(), true);
+    }
+
+    /**
+     * A budget that ends after the time limit
+     *
+     * @param timeLimit
+     */
+    public Budget(Duration timeLimit)
+    {
+        this(deadline(timeLimit), Thread.currentThread(), true);
+    }
+
+    /**
+     * A budget that ends at the deadline
+     *
+     * @param deadline
+     */
+    public Budget(Instant deadline)
+    {
+        this(Duration.between(Instant.now(), deadline));
+    }
+
+    private Budget(long deadline, Thread owner, boolean interruptible)
+    {
+        this.deadline = deadline;
+        this.owner = owner;
+        this.interruptible = interruptible;
+    }
+
+    /**
+     * The budget of the current thread
+     *
+     * @return
+     */
+    public static Budget current()
+    {
+        return CURRENT.get();
+    }
+
+    /**
+     * A budget that is never cancelled, not even by interrupts, for work that has to finish to give a result
+     *
+     * @return
+     */
+    public static Budget unlimited()
+    {
+        return UNLIMITED;
+    }
+
+    /**
+     * Run the task with this as the budget of the current thread
+     *
+     * @param task
+     * @param <T>
+     * @return The result of the task
+     */
+    public <T> T call(Supplier<T> task)
+    {
+        Budget previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Run the task with this as the budget of the current thread
+     *
+     * @param task
+     */
+    public void run(Runnable task)
+    {
+        this.call(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Cancel the budget, the work checking it stops at its next real check
+     */
+    public void cancel()
+    {
+        if (this != UNLIMITED) {
+            this.cancelled = true;
+        }
+    }
+
+    /**
+     * Whether the budget is cancelled, looking at the clock and the interrupt flags right now
+     *
+     * @return
+     */
+    public boolean isCancelled()
+    {
+        if (this.cancelled) {
+            return true;
+        }
+        if (this.deadline != Long.MAX_VALUE && System.nanoTime() - this.deadline >= 0) {
+            this.cancelled = true;
+        } else if (this.interruptible && (Thread.currentThread().isInterrupted()
+                || (this.owner != null && this.owner.isInterrupted()))) {
+            return true;
+        }
+        return this.cancelled;
+    }
+
+    /**
+     * Throws Cancelled when the budget is cancelled, looking only once per INTERVAL calls
+     */
+    public void check()
+    {
+        if ((++this.ticks & (INTERVAL - 1)) == 0) {
+            this.checkNow();
+        }
+    }
+
+    /**
+     * Throws Cancelled when the budget is cancelled
+     */
+    public void checkNow()
+    {
+        if (this.isCancelled()) {
+            throw new Cancelled();
+        }
+    }
+
+    /**
+     * The time left before the deadline, or null when there is none
+     *
+     * @return
+     */
+    public Duration remaining()
+    {
+        if (this.deadline == Long.MAX_VALUE) {
+            return null;
+        }
+        return Duration.ofNanos(Math.max(0, this.deadline - System.nanoTime()));
+    }
+
+    /**
+     * Whether the cause of the exception, or the cause of that, and so on, is a Cancelled
+     *
+     * @param ex
+     * @return The Cancelled, or null
+     */
+    public static Cancelled cancelledCause(Throwable ex)
+    {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof Cancelled) {
+                return (Cancelled) cause;
+            }
+        }
+        return null;
+    }
+
+    private static long deadline(Duration timeLimit)
+    {
+        // Long.MAX_VALUE means no deadline, and limits of centuries are the same as none
+        if (timeLimit.compareTo(Duration.ofDays(365L * 100)) > 0) {
+            return Long.MAX_VALUE;
+        }
+        long deadline = System.nanoTime() + Math.max(0, timeLimit.toNanos());
+        return deadline == Long.MAX_VALUE ? deadline - 1 : deadline;
+    }
+}
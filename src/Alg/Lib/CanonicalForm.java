@@ -0,0 +1,255 @@
+package Alg.Lib;
+
+import java.util.Arrays;
+
+/**
+ * A canonical labelling of a compact multigraph, by colour refinement and individualization.
+ *
+ * The vertices are first coloured by their degree, then over and over by their colour and the colours and
+ * multiplicities of their edges, until the number of colours stays the same. When some vertices still share a colour,
+ * every vertex of the first such colour is tried as the one that goes first, and the labelling whose edge list is the
+ * smallest wins. Isomorphic graphs get the same encoding, as long as the number of labellings tried stays within the
+ * budget; beyond that the smallest one found so far is used, which still only ever gives the same encoding for
+ * isomorphic graphs, since the encoding is the whole graph.
+ */
+public class CanonicalForm
+{
+    /**
+     * The vertex ids in canonical order
+     */
+    public final int[] order;
+
+    /**
+     * The number of vertices, the number of distinct edges, then per edge its ends in canonical order and its
+     * multiplicity, the edges sorted
+     */
+    public final int[] encoding;
+
+    // The vertex ids, and per index in vertices its neighbours as indices with their multiplicities
+    private final int[] vertices;
+    private final int[][] neighbours;
+    private final int[][] multiplicities;
+
+    private int leaves;
+    private int[] bestEncoding;
+    private int[] bestOrder;
+
+    /**
+     * Labellings tried at most
+     */
+    public static final int LEAVES = 256;
+
+    public CanonicalForm(IntGraph graph)
+    {
+        this(graph, LEAVES);
+    }
+
+    /**
+     * @param graph
+     * @param budget The number of labellings tried at most
+     */
+    public CanonicalForm(IntGraph graph, int budget)
+    {
+        this.vertices = graph.vertices();
+        int n = this.vertices.length;
+        int[] index = new int[graph.capacity()];
+        for (int i = 0; i < n; i++) {
+            index[this.vertices[i]] = i;
+        }
+        this.neighbours = new int[n][];
+        this.multiplicities = new int[n][];
+        int[] colours = new int[n];
+        for (int i = 0; i < n; i++) {
+            int v = this.vertices[i];
+            int count = graph.neighbourCount(v);
+            this.neighbours[i] = new int[count];
+            this.multiplicities[i] = new int[count];
+            for (int j = 0; j < count; j++) {
+                this.neighbours[i][j] = index[graph.neighbourAt(v, j)];
+                this.multiplicities[i][j] = graph.multiplicityAt(v, j);
+            }
+            colours[i] = graph.degreeOf(v);
+        }
+
+        this.leaves = budget;
+        this.search(this.refine(rank(colours, n)));
+
+        this.encoding = this.bestEncoding;
+        this.order = new int[n];
+        for (int i = 0; i < n; i++) {
+            this.order[i] = this.vertices[this.bestOrder[i]];
+        }
+    }
+
+    /**
+     * A 64 bit hash of the encoding
+     *
+     * @return
+     */
+    public long hash()
+    {
+        long hash = 0xcbf29ce484222325L;
+        for (int x : this.encoding) {
+            hash = (hash ^ x) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Tries every vertex of the first colour that is shared as the one that goes first, while the budget lasts
+     */
+    private void search(int[] colours)
+    {
+        int n = colours.length;
+        int[] size = new int[n];
+        for (int c : colours) {
+            size[c]++;
+        }
+        int cell = -1;
+        for (int c = 0; c < n && cell < 0; c++) {
+            if (size[c] > 1) cell = c;
+        }
+
+        if (cell < 0) {
+            this.leaves--;
+            this.leaf(colours);
+            return;
+        }
+
+        for (int i = 0; i < n && this.leaves > 0; i++) {
+            if (colours[i] != cell) continue;
+            int[] individualized = new int[n];
+            for (int j = 0; j < n; j++) {
+                individualized[j] = 2 * colours[j] + (colours[j] == cell && j != i ? 1 : 0);
+            }
+            this.search(this.refine(rank(individualized, n)));
+        }
+    }
+
+    /**
+     * Keeps the labelling of the discrete colouring, if its encoding is the smallest so far
+     */
+    private void leaf(int[] colours)
+    {
+        int n = colours.length;
+        int m = 0;
+        for (int[] row : this.neighbours) {
+            m += row.length;
+        }
+        long[] edges = new long[m];
+        m = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < this.neighbours[i].length; j++) {
+                int a = colours[i];
+                int b = colours[this.neighbours[i][j]];
+                // Every edge once, a loop is in the row of its vertex once
+                if (a <= b) {
+                    edges[m++] = ((long) a << 40) | ((long) b << 16) | this.multiplicities[i][j];
+                }
+            }
+        }
+        Arrays.sort(edges, 0, m);
+
+        int[] encoding = new int[2 + 3 * m];
+        encoding[0] = n;
+        encoding[1] = m;
+        for (int e = 0; e < m; e++) {
+            encoding[2 + 3 * e] = (int) (edges[e] >>> 40);
+            encoding[3 + 3 * e] = (int) (edges[e] >>> 16) & 0xFFFFFF;
+            encoding[4 + 3 * e] = (int) edges[e] & 0xFFFF;
+        }
+
+        if (this.bestEncoding == null || compare(encoding, this.bestEncoding) < 0) {
+            this.bestEncoding = encoding;
+            this.bestOrder = new int[n];
+            for (int i = 0; i < n; i++) {
+                this.bestOrder[colours[i]] = i;
+            }
+        }
+    }
+
+    /**
+     * Refines the colouring until it is stable. A new colour is the rank of the old colour together with the sorted
+     * colours and multiplicities of the edges, so it does not depend on the ids of the vertices.
+     */
+    private int[] refine(int[] colours)
+    {
+        int n = colours.length;
+        int count = countColours(colours);
+        while (true) {
+            long[][] signatures = new long[n][];
+            for (int i = 0; i < n; i++) {
+                long[] signature = new long[this.neighbours[i].length + 1];
+                for (int j = 0; j < this.neighbours[i].length; j++) {
+                    signature[j + 1] = ((long) colours[this.neighbours[i][j]] << 20) | this.multiplicities[i][j];
+                }
+                Arrays.sort(signature, 1, signature.length);
+                signature[0] = colours[i];
+                signatures[i] = signature;
+            }
+
+            Integer[] sorted = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, (a, b) -> compare(signatures[a], signatures[b]));
+            int[] refined = new int[n];
+            int colour = 0;
+            for (int i = 0; i < n; i++) {
+                if (i > 0 && compare(signatures[sorted[i - 1]], signatures[sorted[i]]) != 0) colour++;
+                refined[sorted[i]] = colour;
+            }
+
+            int refinedCount = n == 0 ? 0 : colour + 1;
+            colours = refined;
+            if (refinedCount == count) {
+                return colours;
+            }
+            count = refinedCount;
+        }
+    }
+
+    /**
+     * Renumbers the colours to 0 .. c-1, keeping their order
+     */
+    private static int[] rank(int[] colours, int n)
+    {
+        int[] distinct = Arrays.stream(colours).sorted().distinct().toArray();
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = Arrays.binarySearch(distinct, colours[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Lexicographic order, a prefix first
+     */
+    private static int compare(int[] a, int[] b)
+    {
+        for (int i = 0; i < a.length && i < b.length; i++) {
+            if (a[i] != b[i]) {
+                return Integer.compare(a[i], b[i]);
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    /**
+     * Lexicographic order, a prefix first
+     */
+    private static int compare(long[] a, long[] b)
+    {
+        for (int i = 0; i < a.length && i < b.length; i++) {
+            if (a[i] != b[i]) {
+                return Long.compare(a[i], b[i]);
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    private static int countColours(int[] colours)
+    {
+        return (int) Arrays.stream(colours).distinct().count();
+    }
+}
@@ -1,14 +1,9 @@
 package Alg.Lib;
 
-import org.jgrapht.Graphs;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.Multigraph;
 
-import javax.print.DocFlavor;
-import java.lang.reflect.Array;
 import java.util.*;
-import java.util.stream.Collector;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -19,53 +14,27 @@ public class CycleDetector {
     /**
      * Detect if a graph has a cycle or not
      *
+     * Adds the edges one by one to a union-find of the vertices: an edge closes a cycle exactly when both its ends are
+     * in the same tree already. This does not recurse, so long paths are no problem.
+     *
      * @param graph
      * @return
      */
     public static boolean hasCycle(Multigraph<Integer, DefaultEdge> graph)
     {
-        HashSet<Integer> foundVertices = new HashSet<>();
+        HashMap<Integer, Integer> ids = new HashMap<>();
         for (Integer vertex: graph.vertexSet()) {
-            if (!foundVertices.contains(vertex)) {
-                boolean isCyclicDisjoint = CycleDetector.hasCycleDisjoint(graph, vertex, vertex, foundVertices);
-                if (isCyclicDisjoint) {
-                    return true;
-                }
-            }
+            ids.put(vertex, ids.size());
         }
 
-        return false;
-    }
-
-    /**
-     * Try to find a cycle in one disjoint part of the graph
-     *
-     * @param graph
-     * @param vertex
-     * @param lastVertex
-     * @param foundVertices
-     * @return
-     */
-    public static boolean hasCycleDisjoint(Multigraph<Integer, DefaultEdge> graph, Integer vertex, Integer lastVertex, HashSet<Integer> foundVertices)
-    {
-        Set<DefaultEdge> edges = graph.edgesOf(vertex);
-
-        return CycleDetector.getNeighbours(graph, vertex).anyMatch(neighbour -> {
-
-            // Do not go back the path we came from, this will result a false negative
-            if (neighbour.equals(lastVertex)) {
-                return false;
-            }
-
-            // The neighbour has already been found, and thus we have a cycle
-            if (foundVertices.contains(neighbour)) {
+        UnionFind forest = new UnionFind(ids.size());
+        for (DefaultEdge edge: graph.edgeSet()) {
+            if (!forest.union(ids.get(graph.getEdgeSource(edge)), ids.get(graph.getEdgeTarget(edge)))) {
                 return true;
             }
+        }
 
-            // Mark as found, and check recursively in the tree
-            foundVertices.add(neighbour);
-            return CycleDetector.hasCycleDisjoint(graph, neighbour, vertex, foundVertices);
-        });
+        return false;
     }
 
     /**
@@ -0,0 +1,143 @@
+package Alg.Lib;
+
+/**
+ * Small interface for an undirected multigraph on primitive vertex ids 0 .. capacity()-1.
+ *
+ * Parallel edges are not separate objects, but a multiplicity stored with the neighbour. Self-loops are not allowed,
+ * just like in jgrapht's Multigraph. Every vertex id carries a label: the name of the vertex in the graph it was
+ * created from, such that solutions found on the compact graph can be translated back.
+ */
+public interface IntGraph
+{
+    /**
+     * All vertex ids of this graph are smaller than the capacity
+     *
+     * @return
+     */
+    int capacity();
+
+    /**
+     * Number of vertices currently in the graph
+     *
+     * @return
+     */
+    int vertexCount();
+
+    /**
+     * Number of edges currently in the graph, counting parallel edges separately
+     *
+     * @return
+     */
+    int edgeCount();
+
+    boolean containsVertex(int v);
+
+    /**
+     * Degree of v, counting parallel edges separately
+     *
+     * @param v
+     * @return
+     */
+    int degreeOf(int v);
+
+    /**
+     * Number of distinct neighbours of v
+     *
+     * @param v
+     * @return
+     */
+    int neighbourCount(int v);
+
+    /**
+     * The i-th distinct neighbour of v, for 0 <= i < neighbourCount(v). The order changes when the graph changes.
+     *
+     * @param v
+     * @param i
+     * @return
+     */
+    int neighbourAt(int v, int i);
+
+    /**
+     * The number of edges between v and its i-th distinct neighbour
+     *
+     * @param v
+     * @param i
+     * @return
+     */
+    int multiplicityAt(int v, int i);
+
+    /**
+     * The number of edges between u and w
+     *
+     * @param u
+     * @param w
+     * @return
+     */
+    int multiplicity(int u, int w);
+
+    /**
+     * Copy of the distinct neighbours of v, safe to use while changing the graph
+     *
+     * @param v
+     * @return
+     */
+    int[] neighboursOf(int v);
+
+    /**
+     * All the vertices currently in the graph, in increasing order
+     *
+     * @return
+     */
+    int[] vertices();
+
+    /**
+     * Adds vertex v back to the graph, without any edges
+     *
+     * @param v
+     * @return false if the vertex was already in the graph
+     */
+    boolean addVertex(int v);
+
+    /**
+     * Removes vertex v and all its edges from the graph
+     *
+     * @param v
+     * @return false if the vertex was not in the graph
+     */
+    boolean removeVertex(int v);
+
+    void addEdge(int u, int w);
+
+    /**
+     * Add the given number of parallel edges between u and w
+     *
+     * @param u
+     * @param w
+     * @param multiplicity
+     */
+    void addEdge(int u, int w, int multiplicity);
+
+    /**
+     * Removes one edge between u and w
+     *
+     * @param u
+     * @param w
+     * @return false if there was no such edge
+     */
+    boolean removeEdge(int u, int w);
+
+    /**
+     * The name of vertex v in the graph this graph was created from
+     *
+     * @param v
+     * @return
+     */
+    int label(int v);
+
+    /**
+     * Creates an independent copy of this graph, with the same vertex ids and labels
+     *
+     * @return
+     */
+    IntGraph copy();
+}
@@ -0,0 +1,457 @@
+package Alg.Lib;
+
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Compact int-array implementation of IntGraph.
+ *
+ * Every vertex has one adjacency row holding each distinct neighbour once, together with the number of parallel edges
+ * to that neighbour. There are no edge objects and no hashing: degrees are kept up to date, neighbours are found by
+ * scanning the (usually short) rows.
+ */
+public class IntMultigraph implements IntGraph
+{
+    private static final int[] EMPTY = new int[0];
+
+    private final int[] labels;
+    private final boolean[] present;
+    private final int[] degree;
+    private final int[] size;
+    private final int[][] neighbours;
+    private final int[][] multiplicities;
+
+    private int vertexCount;
+    private int edgeCount;
+
+    /**
+     * Create a graph with n vertices labeled 0..n-1 and no edges
+     *
+     * @param n
+     */
+    public IntMultigraph(int n)
+    {
+        this(identity(n));
+    }
+
+    /**
+     * Create a graph without edges, where vertex i has name labels[i]
+     *
+     * @param labels
+     */
+    public IntMultigraph(int[] labels)
+    {
+        int n = labels.length;
+        this.labels = labels;
+        this.present = new boolean[n];
+        this.degree = new int[n];
+        this.size = new int[n];
+        this.neighbours = new int[n][];
+        this.multiplicities = new int[n][];
+
+        Arrays.fill(this.present, true);
+        Arrays.fill(this.neighbours, EMPTY);
+        Arrays.fill(this.multiplicities, EMPTY);
+        this.vertexCount = n;
+    }
+
+    /**
+     * Copy constructor
+     *
+     * @param other
+     */
+    private IntMultigraph(IntMultigraph other)
+    {
+        int n = other.capacity();
+        this.labels = other.labels;
+        this.present = other.present.clone();
+        this.degree = other.degree.clone();
+        this.size = other.size.clone();
+        this.neighbours = new int[n][];
+        this.multiplicities = new int[n][];
+        // The flat arrays and the two arrays of rows, with their headers
+        long bytes = 17L * n + 80;
+        for (int v = 0; v < n; v++) {
+            this.neighbours[v] = other.size[v] == 0 ? EMPTY : Arrays.copyOf(other.neighbours[v], other.size[v]);
+            this.multiplicities[v] = other.size[v] == 0 ? EMPTY : Arrays.copyOf(other.multiplicities[v], other.size[v]);
+            bytes += other.size[v] == 0 ? 0 : 32 + 8L * other.size[v];
+        }
+        this.vertexCount = other.vertexCount;
+        this.edgeCount = other.edgeCount;
+        Metrics.get().cloned(bytes);
+    }
+
+    /**
+     * Build a graph in bulk from an edge list. Vertex i gets name labels[i], edge j runs between sources[j] and
+     * targets[j]. The rows are sized exactly, so this is the cheapest way to create a large graph.
+     *
+     * @param labels
+     * @param sources
+     * @param targets
+     * @param edges Number of edges to read from sources and targets
+     * @return
+     */
+    public static IntMultigraph fromEdges(int[] labels, int[] sources, int[] targets, int edges)
+    {
+        IntMultigraph graph = new IntMultigraph(labels);
+        int n = labels.length;
+
+        // Count the raw degree of every vertex, which bounds the size of its row
+        int[] rawDegree = new int[n];
+        for (int j = 0; j < edges; j++) {
+            if (sources[j] == targets[j]) {
+                throw new IllegalArgumentException("loops not allowed");
+            }
+            rawDegree[sources[j]]++;
+            rawDegree[targets[j]]++;
+        }
+        for (int v = 0; v < n; v++) {
+            if (rawDegree[v] > 0) {
+                graph.neighbours[v] = new int[rawDegree[v]];
+                graph.multiplicities[v] = new int[rawDegree[v]];
+            }
+        }
+
+        // position[u][w] would be too large, but we only need it for one row at a time, so we keep the position of
+        // each neighbour of the row we are filling, and clean it up afterwards
+        int[] position = new int[n];
+        Arrays.fill(position, -1);
+        int[] offset = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            offset[v + 1] = offset[v] + rawDegree[v];
+        }
+        int[] fill = Arrays.copyOf(offset, n);
+        int[] raw = new int[offset[n]];
+        for (int j = 0; j < edges; j++) {
+            raw[fill[sources[j]]++] = targets[j];
+            raw[fill[targets[j]]++] = sources[j];
+        }
+
+        for (int v = 0; v < n; v++) {
+            int[] row = graph.neighbours[v];
+            int[] count = graph.multiplicities[v];
+            int s = 0;
+            for (int i = offset[v]; i < offset[v + 1]; i++) {
+                int w = raw[i];
+                if (position[w] < 0) {
+                    position[w] = s;
+                    row[s] = w;
+                    count[s++] = 1;
+                } else {
+                    count[position[w]]++;
+                }
+            }
+            for (int i = 0; i < s; i++) {
+                position[row[i]] = -1;
+            }
+            graph.size[v] = s;
+            graph.degree[v] = rawDegree[v];
+        }
+        graph.edgeCount = edges;
+
+        return graph;
+    }
+
+    /**
+     * Converts a jgrapht multigraph to a compact graph. The vertices get the ids 0..n-1 in increasing order of their
+     * names, the names are kept as labels.
+     *
+     * @param graph
+     * @return
+     */
+    public static IntMultigraph fromMultigraph(Multigraph<Integer, DefaultEdge> graph)
+    {
+        Set<Integer> vertexSet = graph.vertexSet();
+        int[] labels = new int[vertexSet.size()];
+        int i = 0;
+        for (Integer v : vertexSet) {
+            labels[i++] = v;
+        }
+        Arrays.sort(labels);
+
+        Set<DefaultEdge> edgeSet = graph.edgeSet();
+        int[] sources = new int[edgeSet.size()];
+        int[] targets = new int[edgeSet.size()];
+        int j = 0;
+        for (DefaultEdge e : edgeSet) {
+            sources[j] = Arrays.binarySearch(labels, graph.getEdgeSource(e));
+            targets[j] = Arrays.binarySearch(labels, graph.getEdgeTarget(e));
+            j++;
+        }
+
+        return fromEdges(labels, sources, targets, j);
+    }
+
+    /**
+     * Converts a compact graph back to a jgrapht multigraph, using the labels as vertices
+     *
+     * @param graph
+     * @return
+     */
+    public static Multigraph<Integer, DefaultEdge> toMultigraph(IntGraph graph)
+    {
+        Multigraph<Integer, DefaultEdge> result = new Multigraph<>(DefaultEdge.class);
+        int[] vertices = graph.vertices();
+        for (int v : vertices) {
+            result.addVertex(graph.label(v));
+        }
+        for (int v : vertices) {
+            for (int i = 0; i < graph.neighbourCount(v); i++) {
+                int w = graph.neighbourAt(v, i);
+                if (w < v) {
+                    continue;
+                }
+                for (int m = graph.multiplicityAt(v, i); m > 0; m--) {
+                    result.addEdge(graph.label(v), graph.label(w));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int capacity()
+    {
+        return this.labels.length;
+    }
+
+    @Override
+    public int vertexCount()
+    {
+        return this.vertexCount;
+    }
+
+    @Override
+    public int edgeCount()
+    {
+        return this.edgeCount;
+    }
+
+    @Override
+    public boolean containsVertex(int v)
+    {
+        return v >= 0 && v < this.present.length && this.present[v];
+    }
+
+    @Override
+    public int degreeOf(int v)
+    {
+        return this.degree[v];
+    }
+
+    @Override
+    public int neighbourCount(int v)
+    {
+        return this.size[v];
+    }
+
+    @Override
+    public int neighbourAt(int v, int i)
+    {
+        return this.neighbours[v][i];
+    }
+
+    @Override
+    public int multiplicityAt(int v, int i)
+    {
+        return this.multiplicities[v][i];
+    }
+
+    @Override
+    public int multiplicity(int u, int w)
+    {
+        // Scan the shortest of the two rows
+        if (this.size[w] < this.size[u]) {
+            int t = u;
+            u = w;
+            w = t;
+        }
+        int i = this.indexOf(u, w);
+        return i < 0 ? 0 : this.multiplicities[u][i];
+    }
+
+    @Override
+    public int[] neighboursOf(int v)
+    {
+        return Arrays.copyOf(this.neighbours[v], this.size[v]);
+    }
+
+    @Override
+    public int[] vertices()
+    {
+        int[] result = new int[this.vertexCount];
+        int i = 0;
+        for (int v = 0; v < this.present.length; v++) {
+            if (this.present[v]) {
+                result[i++] = v;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean addVertex(int v)
+    {
+        if (this.present[v]) {
+            return false;
+        }
+        this.present[v] = true;
+        this.vertexCount++;
+        return true;
+    }
+
+    @Override
+    public boolean removeVertex(int v)
+    {
+        if (!this.containsVertex(v)) {
+            return false;
+        }
+
+        int[] row = this.neighbours[v];
+        int[] count = this.multiplicities[v];
+        for (int i = 0; i < this.size[v]; i++) {
+            int w = row[i];
+            this.removeFromRow(w, this.indexOf(w, v));
+            this.degree[w] -= count[i];
+            this.edgeCount -= count[i];
+        }
+
+        this.size[v] = 0;
+        this.degree[v] = 0;
+        this.present[v] = false;
+        this.vertexCount--;
+        return true;
+    }
+
+    @Override
+    public void addEdge(int u, int w)
+    {
+        this.addEdge(u, w, 1);
+    }
+
+    @Override
+    public void addEdge(int u, int w, int multiplicity)
+    {
+        if (!this.containsVertex(u) || !this.containsVertex(w)) {
+            throw new IllegalArgumentException("no such vertex in graph");
+        }
+        if (u == w) {
+            throw new IllegalArgumentException("loops not allowed");
+        }
+
+        int i = this.indexOf(u, w);
+        if (i < 0) {
+            this.appendToRow(u, w, multiplicity);
+            this.appendToRow(w, u, multiplicity);
+        } else {
+            this.multiplicities[u][i] += multiplicity;
+            this.multiplicities[w][this.indexOf(w, u)] += multiplicity;
+        }
+        this.degree[u] += multiplicity;
+        this.degree[w] += multiplicity;
+        this.edgeCount += multiplicity;
+    }
+
+    @Override
+    public boolean removeEdge(int u, int w)
+    {
+        if (!this.containsVertex(u) || !this.containsVertex(w)) {
+            return false;
+        }
+        int i = this.indexOf(u, w);
+        if (i < 0) {
+            return false;
+        }
+
+        int j = this.indexOf(w, u);
+        if (this.multiplicities[u][i] == 1) {
+            this.removeFromRow(u, i);
+            this.removeFromRow(w, j);
+        } else {
+            this.multiplicities[u][i]--;
+            this.multiplicities[w][j]--;
+        }
+        this.degree[u]--;
+        this.degree[w]--;
+        this.edgeCount--;
+        return true;
+    }
+
+    @Override
+    public int label(int v)
+    {
+        return this.labels[v];
+    }
+
+    @Override
+    public IntMultigraph copy()
+    {
+        return new IntMultigraph(this);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder("[");
+        for (int v : this.vertices()) {
+            builder.append(this.label(v)).append(':');
+            for (int i = 0; i < this.size[v]; i++) {
+                builder.append(' ').append(this.label(this.neighbours[v][i]));
+                if (this.multiplicities[v][i] > 1) {
+                    builder.append('x').append(this.multiplicities[v][i]);
+                }
+            }
+            builder.append("; ");
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * Position of w in the row of u, or -1 if they are not adjacent
+     */
+    private int indexOf(int u, int w)
+    {
+        int[] row = this.neighbours[u];
+        for (int i = this.size[u] - 1; i >= 0; i--) {
+            if (row[i] == w) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void appendToRow(int u, int w, int multiplicity)
+    {
+        int s = this.size[u];
+        if (s == this.neighbours[u].length) {
+            int length = Math.max(4, 2 * s);
+            this.neighbours[u] = Arrays.copyOf(this.neighbours[u], length);
+            this.multiplicities[u] = Arrays.copyOf(this.multiplicities[u], length);
+        }
+        this.neighbours[u][s] = w;
+        this.multiplicities[u][s] = multiplicity;
+        this.size[u] = s + 1;
+    }
+
+    /**
+     * Removes the i-th entry of the row of u by moving the last entry into its place
+     */
+    private void removeFromRow(int u, int i)
+    {
+        int last = --this.size[u];
+        this.neighbours[u][i] = this.neighbours[u][last];
+        this.multiplicities[u][i] = this.multiplicities[u][last];
+    }
+
+    private static int[] identity(int n)
+    {
+        int[] labels = new int[n];
+        for (int i = 0; i < n; i++) {
+            labels[i] = i;
+        }
+        return labels;
+    }
+}
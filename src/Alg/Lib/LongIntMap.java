@@ -0,0 +1,134 @@
+package Alg.Lib;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from long keys to int values, with open addressing and linear probing. Keys and values are kept in plain
+ * arrays, so there is no boxing and no object per entry. Entries can not be removed, only cleared all at once.
+ */
+public class LongIntMap
+{
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size = 0;
+
+    // The table is grown when it gets fuller than this
+    private static final double LOAD = 0.6;
+
+    public LongIntMap()
+    {
+        this(16);
+    }
+
+    /**
+     * Create a map that holds the expected number of entries without growing
+     *
+     * @param expected
+     */
+    public LongIntMap(int expected)
+    {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expected / LOAD)) - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.used = new boolean[capacity];
+    }
+
+    /**
+     * The number of keys in the map
+     *
+     * @return
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * The value of the key, or missing if the key is not in the map
+     *
+     * @param key
+     * @param missing
+     * @return
+     */
+    public int get(long key, int missing)
+    {
+        int slot = this.slot(key);
+        return this.used[slot] ? this.values[slot] : missing;
+    }
+
+    public boolean containsKey(long key)
+    {
+        return this.used[this.slot(key)];
+    }
+
+    /**
+     * Set the value of the key
+     *
+     * @param key
+     * @param value
+     */
+    public void put(long key, int value)
+    {
+        int slot = this.slot(key);
+        if (!this.used[slot]) {
+            if (this.size + 1 > this.keys.length * LOAD) {
+                this.grow();
+                slot = this.slot(key);
+            }
+            this.used[slot] = true;
+            this.keys[slot] = key;
+            this.size++;
+        }
+        this.values[slot] = value;
+    }
+
+    /**
+     * Removes all keys
+     */
+    public void clear()
+    {
+        Arrays.fill(this.used, false);
+        this.size = 0;
+    }
+
+    /**
+     * The slot of the key, or the empty slot where it would go
+     */
+    private int slot(long key)
+    {
+        int mask = this.keys.length - 1;
+        int slot = hash(key) & mask;
+        while (this.used[slot] && this.keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow()
+    {
+        long[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        boolean[] oldUsed = this.used;
+        this.keys = new long[oldKeys.length * 2];
+        this.values = new int[oldKeys.length * 2];
+        this.used = new boolean[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = this.slot(oldKeys[i]);
+                this.used[slot] = true;
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Mixes all bits of the key into the low ones, keys that differ only in their high bits would collide otherwise
+     */
+    private static int hash(long key)
+    {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32) ^ (key >>> 17));
+    }
+}
@@ -0,0 +1,256 @@
+package Alg.Lib;
+
+import org.jgrapht.Graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and stage times of the whole JVM, to see where the time of a run goes.
+ *
+ * By default the metrics are off: get returns an instance that records nothing, and its counters and timers do not
+ * even read the clock. After enable every counter is a LongAdder, so threads of a pool can count at the same time
+ * without locking. Counters are found by name; code that counts in a loop takes the Counter once before the loop.
+ *
+ * The names in use:
+ *   stage.parse, stage.split, stage.kernelize, stage.solve   Time in ns (.ns) and number of times (.calls) per stage;
+ *                                                            solvers that kernelize themselves count in both stages
+ *   kernel.rule0 .. kernel.rule4, kernel.sfv                 Times a reduction rule fired
+ *   compression.rounds.k=K, compression.subsets.k=K          Compressions and subsets of the old solution tried per k
+ *   disjoint.nodes                                           Nodes of the search of the disjoint problem
+ *   montecarlo.trials.k=K                                    Monte Carlo trials per k
+ *   clone.count, clone.bytes                                 Copies of graphs, and an estimate of their size
+ */
+public class Metrics
+{
+    private static final Metrics NONE = new Metrics(false);
+
+    private static volatile Metrics current = NONE;
+
+    /**
+     * A counter of a Metrics, that does nothing when the metrics are off
+     */
+    public static class Counter
+    {
+        private static final Counter NONE = new Counter(null);
+
+        private final LongAdder adder;
+
+        private Counter(LongAdder adder)
+        {
+            this.adder = adder;
+        }
+
+        public void increment()
+        {
+            if (this.adder != null) {
+                this.adder.increment();
+            }
+        }
+
+        public void add(long amount)
+        {
+            if (this.adder != null) {
+                this.adder.add(amount);
+            }
+        }
+    }
+
+    // Null when the metrics are off
+    private final ConcurrentHashMap<String, LongAdder> counters;
+    private final long started = System.nanoTime();
+
+    private Metrics(boolean enabled)
+    {
+        this.counters = enabled ? new ConcurrentHashMap<>() : null;
+    }
+
+    /**
+     * The metrics in use
+     *
+     * @return
+     */
+    public static Metrics get()
+    {
+        return current;
+    }
+
+    /**
+     * Start recording, with all counters at 0
+     *
+     * @return The metrics that are recorded now
+     */
+    public static Metrics enable()
+    {
+        current = new Metrics(true);
+        return current;
+    }
+
+    /**
+     * Stop recording, the metrics recorded so far keep their values
+     */
+    public static void disable()
+    {
+        current = NONE;
+    }
+
+    public boolean isEnabled()
+    {
+        return this.counters != null;
+    }
+
+    /**
+     * The counter with the name
+     *
+     * @param name
+     * @return
+     */
+    public Counter counter(String name)
+    {
+        if (this.counters == null) {
+            return Counter.NONE;
+        }
+        return new Counter(this.counters.computeIfAbsent(name, key -> new LongAdder()));
+    }
+
+    /**
+     * Add to the counter with the name
+     *
+     * @param name
+     * @param amount
+     */
+    public void add(String name, long amount)
+    {
+        if (this.counters != null && amount != 0) {
+            this.counters.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+        }
+    }
+
+    /**
+     * The start of a stage, to give to stop at its end
+     *
+     * @return
+     */
+    public long start()
+    {
+        return this.counters == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * The end of a stage
+     *
+     * @param stage The name of the stage, the time goes to stage.ns and the count to stage.calls
+     * @param start What start returned at the start of the stage
+     */
+    public void stop(String stage, long start)
+    {
+        if (this.counters != null) {
+            this.add(stage + ".ns", System.nanoTime() - start);
+            this.add(stage + ".calls", 1);
+        }
+    }
+
+    /**
+     * A graph was copied
+     *
+     * @param bytes The size of the copy
+     */
+    public void cloned(long bytes)
+    {
+        if (this.counters != null) {
+            this.add("clone.count", 1);
+            this.add("clone.bytes", bytes);
+        }
+    }
+
+    /**
+     * A jgrapht graph was copied. Its size is estimated from the objects jgrapht keeps per vertex and per edge.
+     *
+     * @param graph The graph or its copy
+     */
+    public void cloned(Graph<?, ?> graph)
+    {
+        if (this.counters != null) {
+            this.cloned(200L * graph.vertexSet().size() + 150L * graph.edgeSet().size());
+        }
+    }
+
+    /**
+     * The values of all counters, by name
+     *
+     * @return
+     */
+    public Map<String, Long> snapshot()
+    {
+        Map<String, Long> snapshot = new TreeMap<>();
+        if (this.counters != null) {
+            this.counters.forEach((name, adder) -> snapshot.put(name, adder.sum()));
+        }
+        return snapshot;
+    }
+
+    /**
+     * The counters as one line of JSON, together with the time since recording started
+     *
+     * @return
+     */
+    public String toJson()
+    {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"elapsed_ms\":").append((System.nanoTime() - this.started) / 1_000_000).append(",\"counters\":{");
+        boolean first = true;
+        for (Map.Entry<String, Long> entry : this.snapshot().entrySet()) {
+            if (!first) json.append(',');
+            first = false;
+            json.append('"');
+            for (char c : entry.getKey().toCharArray()) {
+                if (c == '"' || c == '\\') json.append('\\');
+                json.append(c);
+            }
+            json.append("\":").append(entry.getValue());
+        }
+        return json.append("}}").toString();
+    }
+
+    /**
+     * Write the counters as JSON to the file
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void writeJson(Path file) throws IOException
+    {
+        Files.write(file, (this.toJson() + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Print the counters as a line of JSON at every interval, until the result is closed
+     *
+     * @param interval
+     * @param out
+     * @return
+     */
+    public Closeable sample(Duration interval, PrintStream out)
+    {
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1, interval.toMillis());
+        sampler.scheduleAtFixedRate(() -> out.println(this.toJson()), millis, millis, TimeUnit.MILLISECONDS);
+        return sampler::shutdownNow;
+    }
+}
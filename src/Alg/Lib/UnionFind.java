@@ -0,0 +1,233 @@
+package Alg.Lib;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Union-find over the vertex ids 0 .. n-1 of a compact graph, with union by rank and path halving.
+ *
+ * Used to keep track of the trees of a forest that only grows: adding a vertex with its edges to the forest closes a
+ * cycle exactly when it has two edges to the same tree, which takes near constant time per edge to find out. Removing
+ * vertices is not possible, when the forest shrinks it has to be built again with build.
+ */
+public class UnionFind
+{
+    private final int[] parent;
+    private final byte[] rank;
+
+    // An id whose epoch is not the current one is a set of its own, so a reset does not have to touch all ids
+    private final int[] epoch;
+    private int current = 0;
+
+    // Marks the roots already seen by closesCycle, the current mark is stamp
+    private final int[] seen;
+    private int stamp = 0;
+
+    /**
+     * Create a union-find where every id 0..n-1 is a set of its own
+     *
+     * @param n
+     */
+    public UnionFind(int n)
+    {
+        this.parent = new int[n];
+        this.rank = new byte[n];
+        this.epoch = new int[n];
+        this.seen = new int[n];
+        this.reset();
+    }
+
+    /**
+     * The number of ids
+     *
+     * @return
+     */
+    public int capacity()
+    {
+        return this.parent.length;
+    }
+
+    /**
+     * Makes every id a set of its own again
+     */
+    public void reset()
+    {
+        if (++this.current == 0) {
+            // After an overflow, old epochs could look current again
+            Arrays.fill(this.epoch, 0);
+            this.current = 1;
+        }
+    }
+
+    /**
+     * The representative of the set of v
+     *
+     * @param v
+     * @return
+     */
+    public int find(int v)
+    {
+        // Once touched, all parents of v are touched as well
+        this.touch(v);
+        while (this.parent[v] != v) {
+            // Path halving: point every other vertex on the path to its grandparent
+            this.parent[v] = this.parent[this.parent[v]];
+            v = this.parent[v];
+        }
+        return v;
+    }
+
+    /**
+     * Merges the sets of a and b
+     *
+     * @param a
+     * @param b
+     * @return false if a and b were in the same set already
+     */
+    public boolean union(int a, int b)
+    {
+        a = this.find(a);
+        b = this.find(b);
+        if (a == b) {
+            return false;
+        }
+
+        if (this.rank[a] < this.rank[b]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        this.parent[b] = a;
+        if (this.rank[a] == this.rank[b]) {
+            this.rank[a]++;
+        }
+        return true;
+    }
+
+    /**
+     * Makes v a set of its own if it was not touched since the last reset
+     */
+    private void touch(int v)
+    {
+        if (this.epoch[v] != this.current) {
+            this.epoch[v] = this.current;
+            this.parent[v] = v;
+            this.rank[v] = 0;
+        }
+    }
+
+    public boolean connected(int a, int b)
+    {
+        return this.find(a) == this.find(b);
+    }
+
+    /**
+     * Checks whether adding v to the forest would close a cycle, that is, whether v has two edges to the same tree.
+     * The forest consists of the vertices accepted by inForest, v itself must not be in it yet. Nothing is changed.
+     *
+     * @param graph
+     * @param v
+     * @param inForest
+     * @return
+     */
+    public boolean closesCycle(IntGraph graph, int v, IntPredicate inForest)
+    {
+        if (++this.stamp == 0) {
+            // After an overflow, old marks could look current again
+            Arrays.fill(this.seen, 0);
+            this.stamp = 1;
+        }
+        for (int i = 0; i < graph.neighbourCount(v); i++) {
+            int u = graph.neighbourAt(v, i);
+            if (!inForest.test(u)) {
+                continue;
+            }
+            if (graph.multiplicityAt(v, i) > 1) {
+                return true;
+            }
+
+            int root = this.find(u);
+            if (this.seen[root] == this.stamp) {
+                return true;
+            }
+            this.seen[root] = this.stamp;
+        }
+        return false;
+    }
+
+    /**
+     * Adds v to the forest, by joining it with the trees of its neighbours accepted by inForest
+     *
+     * @param graph
+     * @param v
+     * @param inForest
+     * @return false if this closed a cycle, in which case the sets no longer describe a forest
+     */
+    public boolean join(IntGraph graph, int v, IntPredicate inForest)
+    {
+        boolean forest = true;
+        for (int i = 0; i < graph.neighbourCount(v); i++) {
+            int u = graph.neighbourAt(v, i);
+            if (inForest.test(u)) {
+                boolean merged = this.union(v, u);
+                forest &= merged && graph.multiplicityAt(v, i) == 1;
+            }
+        }
+        return forest;
+    }
+
+    /**
+     * Resets and builds the trees of the subgraph induced by the members that are in the graph
+     *
+     * @param graph
+     * @param members
+     * @return false if that subgraph has a cycle, so it is not a forest
+     */
+    public boolean build(IntGraph graph, BitSet members)
+    {
+        this.reset();
+        boolean forest = true;
+        for (int v = members.nextSetBit(0); v >= 0; v = members.nextSetBit(v + 1)) {
+            if (!graph.containsVertex(v)) {
+                continue;
+            }
+            for (int i = 0; i < graph.neighbourCount(v); i++) {
+                int u = graph.neighbourAt(v, i);
+                // Every edge once, from its smallest end
+                if (u > v && members.get(u)) {
+                    boolean merged = this.union(v, u);
+                    forest &= merged && graph.multiplicityAt(v, i) == 1;
+                }
+            }
+        }
+        return forest;
+    }
+
+    /**
+     * Same as build with a set of members, for a forest given by a predicate
+     *
+     * @param graph
+     * @param inForest
+     * @return false if that subgraph has a cycle, so it is not a forest
+     */
+    public boolean build(IntGraph graph, IntPredicate inForest)
+    {
+        this.reset();
+        boolean forest = true;
+        for (int v = 0; v < graph.capacity(); v++) {
+            if (!graph.containsVertex(v) || !inForest.test(v)) {
+                continue;
+            }
+            for (int i = 0; i < graph.neighbourCount(v); i++) {
+                int u = graph.neighbourAt(v, i);
+                // Every edge once, from its smallest end
+                if (u > v && inForest.test(u)) {
+                    boolean merged = this.union(v, u);
+                    forest &= merged && graph.multiplicityAt(v, i) == 1;
+                }
+            }
+        }
+        return forest;
+    }
+}
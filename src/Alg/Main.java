@@ -2,33 +2,98 @@ package Alg;
 
 import Alg.Algorithms.IterativeCompression.IterativeCompression;
 import Alg.Algorithms.Randomized.Randomized;
+import Alg.Lib.Metrics;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 
 public class Main {
 
-    public static void main(String[] args) {
+    /**
+     * Solve the graph on standard in, or with --serve keep solving graphs until stopped, see Server
+     *
+     * --serve port     Take sessions from connections to the port on localhost
+     * --serve -        Take one session from standard in, answering on standard out
+     * --workers n      The number of graphs solved at the same time, the number of processors by default
+     * --cache file     Keep the solutions of the kernels in the file, see SolutionCache
+     * --metrics file   Record where the time goes and write it as JSON to the file at the end, see Metrics
+     * --sample s       With --metrics, also print the metrics as JSON to standard error every s seconds
+     *
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        String serve = null;
+        int workers = Runtime.getRuntime().availableProcessors();
+        String cache = null;
+        String metricsFile = null;
+        double sample = 0;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Option " + args[i] + " needs a value");
+            }
+            switch (args[i]) {
+                case "--serve":
+                    serve = args[i + 1];
+                    break;
+                case "--workers":
+                    workers = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--cache":
+                    cache = args[i + 1];
+                    break;
+                case "--metrics":
+                    metricsFile = args[i + 1];
+                    break;
+                case "--sample":
+                    sample = Double.parseDouble(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        Metrics metrics = metricsFile == null ? Metrics.get() : Metrics.enable();
+        Closeable sampler = metricsFile != null && sample > 0
+                ? metrics.sample(Duration.ofMillis((long) (sample * 1000)), System.err)
+                : () -> {};
+        try {
+            if (serve != null) {
+                serve(serve, workers, cache);
+            } else {
+                solve();
+            }
+        } finally {
+            sampler.close();
+            if (metricsFile != null) {
+                metrics.writeJson(Paths.get(metricsFile));
+            }
+        }
+    }
+
+    /**
+     * Solve the graph on standard in, and print the solution on standard out
+     */
+    private static void solve() throws IOException {
 
         // Read from command line
-        Scanner scanner = new Scanner(System.in);
+        InputWrapper input = InputReader.loopSafeReadGraph(System.in);
 
         // Read from file
-//        Scanner scanner = null;
-//        try {
-//            scanner = new Scanner(new File("instances/065.graph"));
-//        } catch (FileNotFoundException e) {
-//            e.printStackTrace();
-//            return;
-//        }
-
-        InputWrapper input = InputReader.loopSafeReadGraph(scanner);
+//        InputWrapper input = InputReader.loopSafeReadGraph(new File("instances/065.graph"));
 
 
         //FVSAlgorithmInterface alg = new Randomized();
         //FVSAlgorithmInterface alg = new SplitSolve(new Randomized());
-        FVSAlgorithmInterface alg = new SplitSolve(new IterativeCompression());
+        //FVSAlgorithmInterface alg = new SplitSolve(new IterativeCompression());
+        FVSAlgorithmInterface alg = new SplitSolve(
+                new IterativeCompression(ForkJoinPool.commonPool()), ForkJoinPool.commonPool()
+        );
 
         List<Integer> solution = alg.findFeedbackVertexSet(input.reductionSolution);
 
@@ -38,4 +103,27 @@ public class Main {
 
 
     }
+
+    /**
+     * The graphs are solved by the workers, so the parts of one graph are solved one after another
+     */
+    private static void serve(String where, int workers, String cacheFile) throws IOException {
+        SplitSolve alg = new SplitSolve(new IterativeCompression());
+        SolutionCache cache = cacheFile == null ? null : new SolutionCache(Paths.get(cacheFile));
+        alg.setCache(cache);
+
+        try (Server server = new Server(alg, workers)) {
+            if (where.equals("-")) {
+                server.serve(System.in, System.out);
+            } else {
+                ServerSocket socket = new ServerSocket(Integer.parseInt(where), 50, InetAddress.getLoopbackAddress());
+                System.err.println("Serving on " + socket.getLocalSocketAddress() + " with " + workers + " workers");
+                server.serve(socket);
+            }
+        } finally {
+            if (cache != null) {
+                cache.close();
+            }
+        }
+    }
 }
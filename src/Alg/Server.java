@@ -0,0 +1,209 @@
+package Alg;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Solves graphs for clients of a long running JVM, so they do not pay for starting it and warming it up every time.
+ *
+ * A session is a stream of requests, one of
+ * - FILE path: solve the graph in the file
+ * - GRAPH, then the lines of the graph, then END: solve the graph in between
+ * - QUIT: end the session
+ * For every request the answer is the names of the vertices in the solution, one per line, followed by a line
+ * "OK k queued solved", with the time in milliseconds the request waited for a worker and the time it took to solve.
+ * When the request fails the answer is a single line "ERROR message". The answers come in the order of the requests,
+ * but the requests of a session are solved at the same time when there are workers free.
+ *
+ * Sessions come from connections to a local socket, or from any pair of streams, like standard in and out or two named
+ * pipes. All sessions share one pool of workers, and at most two requests per worker are taken in at once, further
+ * requests wait until one is done.
+ */
+public class Server implements Closeable {
+
+    private final FVSAlgorithmInterface algorithm;
+    private final ExecutorService workers;
+    private final Semaphore inFlight;
+
+    /**
+     * @param algorithm Called from all workers at once, so it must not keep state between calls
+     * @param workers The number of graphs solved at the same time
+     */
+    public Server(FVSAlgorithmInterface algorithm, int workers) {
+        this.algorithm = algorithm;
+        this.workers = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "server-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.inFlight = new Semaphore(2 * workers);
+    }
+
+    /**
+     * Accept connections until the socket is closed, every connection is a session of its own
+     *
+     * @param socket
+     */
+    public void serve(ServerSocket socket) {
+        while (!socket.isClosed()) {
+            Socket connection;
+            try {
+                connection = socket.accept();
+            } catch (IOException ex) {
+                // Closed
+                return;
+            }
+            Thread session = new Thread(() -> {
+                try (Socket c = connection) {
+                    this.serve(c.getInputStream(), c.getOutputStream());
+                } catch (IOException ex) {
+                    System.err.println("Session ended: " + ex.getMessage());
+                }
+            }, "server-session");
+            session.setDaemon(true);
+            session.start();
+        }
+    }
+
+    /**
+     * Answer the requests of one session, until QUIT or the end of the input
+     *
+     * @param in
+     * @param out
+     * @throws IOException
+     */
+    public void serve(InputStream in, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+        // The answers in the order of the requests, written as soon as the first is done
+        BlockingQueue<Future<String>> answers = new LinkedBlockingQueue<>();
+        Future<String> end = new CompletableFuture<>();
+        Thread answering = new Thread(() -> {
+            try {
+                for (Future<String> answer = answers.take(); answer != end; answer = answers.take()) {
+                    writer.print(answer(answer));
+                    writer.flush();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }, "server-answers");
+        answering.start();
+
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.equals("QUIT")) {
+                    break;
+                }
+                if (line.startsWith("FILE ")) {
+                    File file = new File(line.substring(5).trim());
+                    answers.add(this.submit(() -> InputReader.loopSafeReadGraph(file)));
+                } else if (line.equals("GRAPH")) {
+                    ByteArrayOutputStream graph = new ByteArrayOutputStream();
+                    while ((line = reader.readLine()) != null && !line.trim().equals("END")) {
+                        graph.write(line.getBytes(StandardCharsets.UTF_8));
+                        graph.write('\n');
+                    }
+                    byte[] bytes = graph.toByteArray();
+                    answers.add(this.submit(() -> InputReader.loopSafeReadGraph(new ByteArrayInputStream(bytes))));
+                } else {
+                    answers.add(CompletableFuture.completedFuture(
+                            "ERROR unknown request: " + line + "\n"));
+                }
+            }
+        } finally {
+            answers.add(end);
+            try {
+                answering.join();
+            } catch (InterruptedException ex) {
+                answering.interrupt();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stop the workers, the requests not yet done are interrupted
+     */
+    @Override
+    public void close() {
+        this.workers.shutdownNow();
+    }
+
+    private interface Reader {
+        InputWrapper read() throws IOException;
+    }
+
+    /**
+     * Solve the graph on a worker, waiting for room when there are too many requests already
+     */
+    private Future<String> submit(Reader reader) {
+        long submitted = System.nanoTime();
+        this.inFlight.acquireUninterruptibly();
+        try {
+            return this.workers.submit(() -> {
+                try {
+                    long started = System.nanoTime();
+                    InputWrapper input = reader.read();
+                    List<Integer> solution = this.algorithm.findFeedbackVertexSet(input.reductionSolution);
+                    long done = System.nanoTime();
+
+                    StringBuilder answer = new StringBuilder();
+                    for (Integer v : solution) {
+                        answer.append(input.nameMapping.get(v)).append('\n');
+                    }
+                    answer.append("OK ").append(solution.size())
+                            .append(' ').append(millis(started - submitted))
+                            .append(' ').append(millis(done - started)).append('\n');
+                    return answer.toString();
+                } finally {
+                    this.inFlight.release();
+                }
+            });
+        } catch (RuntimeException ex) {
+            this.inFlight.release();
+            throw ex;
+        }
+    }
+
+    private static String answer(Future<String> answer) throws InterruptedException {
+        try {
+            return answer.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            return "ERROR " + cause.getClass().getSimpleName() + ": " + cause.getMessage() + "\n";
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,313 @@
+package Alg;
+
+import Alg.Lib.CanonicalForm;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optimal solutions of kernels by their canonical form, kept in a memory mapped file so they outlive the JVM.
+ *
+ * The file is a header followed by a fixed number of slots of a fixed size. A kernel goes in one set of WAYS slots,
+ * chosen by the hash of its canonical form, and when the set is full the slot used longest ago is replaced. A slot
+ * holds the whole encoding of the kernel, which is compared on every lookup, so two kernels with the same hash never
+ * get each other's solution. Kernels whose encoding does not fit in a slot are not stored.
+ *
+ * The solutions are stored as positions in the canonical order, so they apply to every kernel with the same canonical
+ * form whatever the names of its vertices are.
+ *
+ * Several processes can use the same file: every lookup and every store holds a lock on the file. Within one JVM a
+ * file must be opened once, and that cache shared, since the locks of the file are per JVM. A slot is marked empty
+ * while it is written, and only marked used again when it is complete, so a process that dies halfway leaves an empty
+ * slot. Still, what is read from the file is only checked to be a set of positions of the kernel; whether it is a
+ * solution is up to the caller to check.
+ */
+public class SolutionCache implements Closeable {
+
+    private static final int MAGIC = 0x46565343;
+    private static final int VERSION = 1;
+
+    // Magic, version, slot count, slot size, clock
+    private static final int HEADER = 64;
+    private static final int CLOCK = 16;
+
+    // Per slot: hash, last used (0 for an empty slot), key length, value length, then the key and the value
+    private static final int SLOT_HEADER = 24;
+
+    /**
+     * Slots per set
+     */
+    public static final int WAYS = 8;
+
+    public static final int DEFAULT_SLOTS = 1024;
+    public static final int DEFAULT_SLOT_SIZE = 16384;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slots;
+    private final int slotSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Open the cache in the file, or create it with the default size
+     *
+     * @param file
+     * @throws IOException
+     */
+    public SolutionCache(Path file) throws IOException {
+        this(file, DEFAULT_SLOTS, DEFAULT_SLOT_SIZE);
+    }
+
+    /**
+     * Open the cache in the file, or create it with room for the number of slots of the size in bytes. An existing
+     * file keeps the size it was created with.
+     *
+     * @param file
+     * @param slots Rounded up to a multiple of WAYS
+     * @param slotSize
+     * @throws IOException When the file exists but is not a cache
+     */
+    public SolutionCache(Path file, int slots, int slotSize) throws IOException {
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = this.channel.lock();
+            try {
+                if (this.channel.size() >= HEADER) {
+                    MappedByteBuffer header = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+                    if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                        throw new IOException(file + " is not a solution cache");
+                    }
+                    slots = header.getInt(8);
+                    slotSize = header.getInt(12);
+                } else {
+                    slots = (Math.max(slots, 1) + WAYS - 1) / WAYS * WAYS;
+                    slotSize = Math.max(slotSize, SLOT_HEADER + 16);
+                }
+                this.slots = slots;
+                this.slotSize = slotSize;
+                this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) slots * slotSize);
+
+                this.buffer.putInt(0, MAGIC);
+                this.buffer.putInt(4, VERSION);
+                this.buffer.putInt(8, this.slots);
+                this.buffer.putInt(12, this.slotSize);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | RuntimeException ex) {
+            this.channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Whether a kernel with this many vertices and edges (counting parallel edges) may fit in a slot, without building
+     * its canonical form. In a kernel there are at most two parallel edges (Rule 4) and every vertex has degree three or
+     * more (Rule 0 to 2), so every vertex has two neighbours or more.
+     *
+     * @param vertexCount
+     * @param edgeCount
+     * @return False when the kernel certainly does not fit
+     */
+    public boolean fits(int vertexCount, int edgeCount) {
+        long distinctEdges = Math.max((edgeCount + 1L) / 2, vertexCount);
+        return SLOT_HEADER + 4 * (2 + 3 * distinctEdges) <= this.slotSize;
+    }
+
+    /**
+     * The solution stored for the kernel, as positions in its canonical order, or null
+     *
+     * @param kernel
+     * @return
+     */
+    public synchronized int[] get(CanonicalForm kernel) {
+        try {
+            FileLock lock = this.channel.lock();
+            try {
+                int[] solution = this.read(kernel);
+                if (solution == null) {
+                    this.misses.increment();
+                } else {
+                    this.hits.increment();
+                }
+                return solution;
+            } finally {
+                lock.release();
+            }
+        } catch (IOException ex) {
+            // Without the lock the cache is not used
+            this.misses.increment();
+            return null;
+        }
+    }
+
+    /**
+     * The solution in the slot of the kernel, when it is a set of positions of the kernel
+     */
+    private int[] read(CanonicalForm kernel) {
+        int slot = this.find(kernel.hash(), kernel.encoding);
+        if (slot < 0) {
+            return null;
+        }
+
+        int offset = this.offset(slot);
+        int keyLength = this.buffer.getInt(offset + 16);
+        int valueLength = this.buffer.getInt(offset + 20);
+        int n = kernel.encoding[0];
+        if (valueLength < 0 || valueLength > n || SLOT_HEADER + 4L * (keyLength + valueLength) > this.slotSize) {
+            return null;
+        }
+        int[] solution = new int[valueLength];
+        boolean[] seen = new boolean[n];
+        int position = offset + SLOT_HEADER + 4 * keyLength;
+        for (int i = 0; i < solution.length; i++) {
+            solution[i] = this.buffer.getInt(position + 4 * i);
+            if (solution[i] < 0 || solution[i] >= n || seen[solution[i]]) {
+                return null;
+            }
+            seen[solution[i]] = true;
+        }
+        this.touch(slot);
+        return solution;
+    }
+
+    /**
+     * Store the solution of the kernel, as positions in its canonical order
+     *
+     * @param kernel
+     * @param solution
+     * @return Whether it fits in a slot
+     */
+    public synchronized boolean put(CanonicalForm kernel, int[] solution) {
+        int[] key = kernel.encoding;
+        if (SLOT_HEADER + 4L * (key.length + solution.length) > this.slotSize) {
+            return false;
+        }
+        try {
+            FileLock lock = this.channel.lock();
+            try {
+                long hash = kernel.hash();
+                int slot = this.find(hash, key);
+                if (slot < 0) {
+                    slot = this.victim(hash);
+                }
+
+                // Empty while it is written, the header and the last used time go last
+                int offset = this.offset(slot);
+                this.buffer.putLong(offset + 8, 0);
+                int position = offset + SLOT_HEADER;
+                for (int x : key) {
+                    this.buffer.putInt(position, x);
+                    position += 4;
+                }
+                for (int x : solution) {
+                    this.buffer.putInt(position, x);
+                    position += 4;
+                }
+                this.buffer.putLong(offset, hash);
+                this.buffer.putInt(offset + 16, key.length);
+                this.buffer.putInt(offset + 20, solution.length);
+                this.touch(slot);
+                return true;
+            } finally {
+                lock.release();
+            }
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Write all changes to the file
+     */
+    public synchronized void flush() {
+        this.buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.flush();
+        this.channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return "SolutionCache{hits=" + this.getHits() + ", misses=" + this.getMisses() + '}';
+    }
+
+    /**
+     * The slot holding the key, or -1
+     */
+    private int find(long hash, int[] key) {
+        if (SLOT_HEADER + 4L * key.length > this.slotSize) {
+            return -1;
+        }
+        int first = this.set(hash);
+        for (int slot = first; slot < first + WAYS; slot++) {
+            int offset = this.offset(slot);
+            if (this.buffer.getLong(offset + 8) == 0
+                    || this.buffer.getLong(offset) != hash
+                    || this.buffer.getInt(offset + 16) != key.length) {
+                continue;
+            }
+            boolean equal = true;
+            for (int i = 0; i < key.length && equal; i++) {
+                equal = this.buffer.getInt(offset + SLOT_HEADER + 4 * i) == key[i];
+            }
+            if (equal) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * An empty slot in the set of the hash, or else the one used longest ago
+     */
+    private int victim(long hash) {
+        int first = this.set(hash);
+        int victim = first;
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (this.buffer.getLong(this.offset(slot) + 8) < this.buffer.getLong(this.offset(victim) + 8)) {
+                victim = slot;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Marks the slot used last, the clock is in the file since it is shared by all processes
+     */
+    private void touch(int slot) {
+        long clock = this.buffer.getLong(CLOCK) + 1;
+        this.buffer.putLong(this.offset(slot) + 8, clock);
+        this.buffer.putLong(CLOCK, clock);
+    }
+
+    /**
+     * The first slot of the set of the hash
+     */
+    private int set(long hash) {
+        return (int) Long.remainderUnsigned(hash, this.slots / WAYS) * WAYS;
+    }
+
+    private int offset(int slot) {
+        return HEADER + slot * this.slotSize;
+    }
+}
@@ -1,12 +1,28 @@
 package Alg;
 
+import Alg.Algorithms.TreewidthDP.TreewidthDP;
+import Alg.Kernelization.Approximation;
 import Alg.Kernelization.Kernelization;
 import Alg.Kernelization.ReductionSolution;
 import Alg.Kernelization.Splitter;
+import Alg.Lib.Budget;
+import Alg.Lib.CanonicalForm;
+import Alg.Lib.IntGraph;
+import Alg.Lib.IntMultigraph;
+import Alg.Lib.Metrics;
+import Alg.TreeDecomposition.Decomposition;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
 import org.jgrapht.Graph;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.Multigraph;
@@ -14,6 +30,13 @@ import org.jgrapht.graph.Multigraph;
 /**
  * Wrapper for the splitter kernelization. Uses the splitter to split the problem into smaller parts. Then calls the
  * algorithm for all the diffferent parts, and combines the result
+ *
+ * When a pool is given the parts are solved in parallel on that pool, the largest kernels first. The result is the
+ * same list as the sequential version would give, in the same order.
+ *
+ * When the budget of the calling thread is cancelled (see Budget), the Cancelled that is thrown carries a solution of
+ * the whole graph: the solutions of the components that were done, and for every other component the partial solution
+ * of the algorithm or else the 2-approximation, whichever is smaller.
  */
 public class SplitSolve implements FVSAlgorithmInterface {
 
@@ -22,50 +45,498 @@ public class SplitSolve implements FVSAlgorithmInterface {
      * @param implementation
      */
     public SplitSolve(FVSAlgorithmInterface implementation) {
+        this(implementation, null);
+    }
+
+    /**
+     * Give the algorithm to solve the problem, and the pool to solve the parts on. The implementation is called from
+     * several threads at once, so it must not keep state between calls.
+     *
+     * @param implementation
+     * @param pool Pool to solve the parts on, or null to solve them one after another in this thread
+     */
+    public SplitSolve(FVSAlgorithmInterface implementation, ForkJoinPool pool) {
         this.implementation = implementation;
+        this.pool = pool;
+    }
+
+    /**
+     * Give the algorithm to solve the problem, the pool to solve the parts on, and the treewidth up to which a kernel
+     * is solved by dynamic programming over a tree decomposition instead of by the algorithm
+     *
+     * @param implementation
+     * @param pool Pool to solve the parts on, or null to solve them one after another in this thread
+     * @param maxTreewidth At most TreewidthDP.MAX_WIDTH, or -1 to always use the algorithm
+     */
+    public SplitSolve(FVSAlgorithmInterface implementation, ForkJoinPool pool, int maxTreewidth) {
+        this(implementation, pool);
+        this.treewidth = maxTreewidth < 0 ? null : new TreewidthDP(maxTreewidth);
     }
 
     FVSAlgorithmInterface implementation;
 
+    ForkJoinPool pool;
+
+    /**
+     * Solves the kernels of small treewidth, or null
+     */
+    TreewidthDP treewidth = null;
+
+    /**
+     * Optimal solutions of kernels solved before, or null
+     */
+    SolutionCache cache = null;
+
+    /**
+     * Look up the kernels in the cache before solving them, and store their solutions when the algorithm is exact. The
+     * cache can be shared by several solvers, and by all graphs they solve.
+     *
+     * @param cache The cache, or null to always solve
+     */
+    public void setCache(SolutionCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean isExact() {
+        return this.implementation.isExact();
+    }
+
     @Override
     public List<Integer> findFeedbackVertexSet(ReductionSolution partialSolution) {
-        List<Integer> result = findFeedbackVertexSet(partialSolution.reducedGraph);
+        List<Integer> result;
+        try {
+            result = findFeedbackVertexSet(partialSolution.reducedGraph);
+        } catch (Budget.Cancelled ex) {
+            if (ex.partial == null) {
+                throw ex;
+            }
+            List<Integer> partial = new ArrayList<>(ex.partial);
+            partial.addAll(partialSolution.verticesToRemoved);
+            throw new Budget.Cancelled(partial);
+        }
         result.addAll(partialSolution.verticesToRemoved);
         return result;
     }
 
+    @Override
+    public List<Integer> findFeedbackVertexSet(IntGraph graph) {
+        return findFeedbackVertexSet(IntMultigraph.toMultigraph(graph));
+    }
+
     @Override
     public List<Integer> findFeedbackVertexSet(Multigraph<Integer, DefaultEdge> graph) {
         List<Multigraph<Integer, DefaultEdge>> split = Splitter.split(graph);
         
+        if (this.pool != null && split.size() > 1) {
+            return this.solveParallel(split);
+        }
+        
         int i=0;
         List<Integer> solution = new LinkedList<>();
         for(Multigraph<Integer, DefaultEdge> g : split)
         {
             i++;
+            int before = solution.size();
+            ReductionSolution reduced = null;
             try
             {
-                ReductionSolution reduced = Kernelization.kernelot(g, true);
+                reduced = Kernelization.kernelot(g, true, this.pool);
                 solution.addAll(reduced.verticesToRemoved);
                 if(!reduced.reducedGraph.vertexSet().isEmpty())
-                    solution.addAll(this.implementation.findFeedbackVertexSet(reduced.reducedGraph));
+                    solution.addAll(this.solveKernel(reduced.reducedGraph));
             }
             catch(RuntimeException ex)
             {
-                System.out.println("Interrupted while solving component "+i+"/"+split.size());
-                throw new RuntimeException(ex);
+                Budget.Cancelled cancelled = Budget.cancelledCause(ex);
+                if(cancelled == null)
+                {
+                    System.err.println("Failed while solving component "+i+"/"+split.size());
+                    throw new RuntimeException(ex);
+                }
+                System.err.println("Interrupted while solving component "+i+"/"+split.size());
+
+                // The partial solution of the algorithm is one of the kernel
+                solution.subList(before, solution.size()).clear();
+                List<Integer> current = null;
+                if(reduced != null && cancelled.partial != null)
+                {
+                    current = new ArrayList<>(reduced.verticesToRemoved);
+                    current.addAll(cancelled.partial);
+                }
+                throw new Budget.Cancelled(partial(solution, split.subList(i-1, split.size()), current));
             }
         }
         
         return solution;
-        
-        /*
-        return Splitter.split(graph)    // split the graph
-                .stream()
-                .map(g -> this.implementation.findFeedbackVertexSet(g)) // solve each subgraphs
-                .flatMap(l -> l.stream())   // stream all the results
-                .collect(Collectors.toList()); // combine them in one big list
-        //*/
+    }
+
+    /**
+     * A solution of the whole graph when solving was cancelled: the solution of the parts that are done, then for the
+     * parts that are not the smaller of the partial solution of the first and the approximation
+     *
+     * @param done The solution of the parts that are done
+     * @param rest The parts that are not done, they are not changed
+     * @param current A solution of the first of rest, or null
+     * @return
+     */
+    private static List<Integer> partial(
+            List<Integer> done,
+            List<Multigraph<Integer, DefaultEdge>> rest,
+            List<Integer> current
+    ) {
+        List<Integer> solution = new LinkedList<>(done);
+        for (int j = 0; j < rest.size(); j++) {
+            Multigraph<Integer, DefaultEdge> g = rest.get(j);
+            // The approximation is fast, and the only solution there is for these parts
+            List<Integer> approximation = Budget.unlimited().call(
+                    () -> Approximation.determineFVS2(g, new Integer[0], 1).verticesToRemoved);
+            if (j == 0 && current != null && current.size() < approximation.size()) {
+                solution.addAll(current);
+            } else {
+                solution.addAll(approximation);
+            }
+        }
+        return solution;
+    }
+
+    /**
+     * Solves a kernel by its biconnected blocks. Going up from the leaves, everything hanging below an articulation
+     * point c is solved once without c, and if needed once with c, to decide whether c goes in the solution. What
+     * remains of the root blocks is solved last.
+     *
+     * @param kernel
+     * @return
+     */
+    protected List<Integer> solveKernel(Multigraph<Integer, DefaultEdge> kernel) {
+        // The canonical form of a kernel that can not be stored is not worth its time
+        if (this.cache == null || !this.cache.fits(kernel.vertexSet().size(), kernel.edgeSet().size())) {
+            return this.solveBlocks(kernel);
+        }
+
+        // The cache is by canonical form, so the solution is stored as positions in the canonical order
+        IntMultigraph graph = IntMultigraph.fromMultigraph(kernel);
+        CanonicalForm form = new CanonicalForm(graph);
+        int[] cached = this.cache.get(form);
+        if (cached != null) {
+            List<Integer> solution = new LinkedList<>();
+            for (int position : cached) {
+                solution.add(graph.label(form.order[position]));
+            }
+            // The file may be shared or damaged, so only a solution of this kernel is used
+            if (Anytime.isFeedbackVertexSet(kernel, solution)) {
+                return solution;
+            }
+        }
+
+        List<Integer> solution = this.solveBlocks(kernel);
+        if (this.isExact()) {
+            // The ids of the graph are in the order of the labels
+            int[] labels = new int[graph.capacity()];
+            int[] position = new int[graph.capacity()];
+            for (int i = 0; i < form.order.length; i++) {
+                labels[form.order[i]] = graph.label(form.order[i]);
+                position[form.order[i]] = i;
+            }
+            this.cache.put(form, solution.stream()
+                    .mapToInt(label -> position[Arrays.binarySearch(labels, label)]).toArray());
+        }
+        return solution;
+    }
+
+    private List<Integer> solveBlocks(Multigraph<Integer, DefaultEdge> kernel) {
+        if (this.treewidth != null) {
+            Decomposition decomposition = TreewidthDP.decompose(kernel, this.treewidth.getMaxWidth());
+            if (decomposition != null) {
+                Metrics metrics = Metrics.get();
+                long start = metrics.start();
+                try {
+                    return this.treewidth.findFeedbackVertexSet(kernel, decomposition);
+                } finally {
+                    metrics.stop("stage.solve", start);
+                }
+            }
+        }
+
+        List<Splitter.Block> blocks = Splitter.splitBlocks(kernel);
+        if (blocks.isEmpty()) {
+            return new LinkedList<>();
+        }
+        if (blocks.size() == 1) {
+            // The block is the whole kernel, so a partial solution of the algorithm is one of the kernel as well
+            Metrics metrics = Metrics.get();
+            long start = metrics.start();
+            try {
+                return this.implementation.findFeedbackVertexSet(blocks.get(0).graph);
+            } finally {
+                metrics.stop("stage.solve", start);
+            }
+        }
+
+        try {
+            return this.solveBlocks(blocks);
+        } catch (Budget.Cancelled ex) {
+            // A partial solution is one of a single block
+            throw new Budget.Cancelled();
+        }
+    }
+
+    private List<Integer> solveBlocks(List<Splitter.Block> blocks) {
+        // Per block the graphs hanging below it, by articulation point
+        List<TreeMap<Integer, Multigraph<Integer, DefaultEdge>>> below = new ArrayList<>(blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            below.add(new TreeMap<>());
+        }
 
+        List<Integer> solution = new LinkedList<>();
+        for (int i = 0; i < blocks.size(); i++) {
+            Splitter.Block block = blocks.get(i);
+            for (Map.Entry<Integer, Multigraph<Integer, DefaultEdge>> hanging : below.get(i).entrySet()) {
+                this.solveHanging(solution, block.graph, hanging.getKey(), hanging.getValue());
+            }
+            below.set(i, null);
+
+            if (block.parent < 0) {
+                solution.addAll(this.solve(block.graph));
+            } else {
+                Multigraph<Integer, DefaultEdge> hanging = below.get(block.parent)
+                        .computeIfAbsent(block.articulationPoint, v -> new Multigraph<>(DefaultEdge.class));
+                addGraph(hanging, block.graph);
+            }
+        }
+        return solution;
+    }
+
+    /**
+     * The graph hanging shares only the articulation point with the rest of the graph. With S the solution found for
+     * hanging minus the articulation point:
+     * - if S is a solution for hanging, the articulation point can stay
+     * - else if hanging has a solution of the same size, that solution does not contain the articulation point, and
+     *   the articulation point can stay
+     * - else no optimal solution of hanging avoids the articulation point, so S and the articulation point are taken
+     *   and the articulation point is removed from the graph above
+     *
+     * @param solution
+     * @param graph The graph above the articulation point
+     * @param articulationPoint
+     * @param hanging
+     */
+    private void solveHanging(
+            List<Integer> solution,
+            Multigraph<Integer, DefaultEdge> graph,
+            Integer articulationPoint,
+            Multigraph<Integer, DefaultEdge> hanging
+    ) {
+        Multigraph<Integer, DefaultEdge> without = copy(hanging);
+        without.removeVertex(articulationPoint);
+        List<Integer> solutionWithout = this.solve(without);
+
+        Multigraph<Integer, DefaultEdge> rest = copy(hanging);
+        rest.removeAllVertices(solutionWithout);
+        Splitter.removeEdgesNotInCylce(rest);
+        if (rest.edgeSet().isEmpty()) {
+            solution.addAll(solutionWithout);
+            return;
+        }
+
+        List<Integer> solutionWith = this.solve(copy(hanging));
+        if (solutionWith.size() <= solutionWithout.size()) {
+            solution.addAll(solutionWith);
+            // Only possible when the implementation is not exact, the articulation point is then already taken
+            if (solutionWith.contains(articulationPoint)) {
+                graph.removeVertex(articulationPoint);
+            }
+            return;
+        }
+
+        solution.addAll(solutionWithout);
+        solution.add(articulationPoint);
+        graph.removeVertex(articulationPoint);
+    }
+
+    /**
+     * Solves a graph that is a part of a kernel, the graph is changed
+     *
+     * @param graph
+     * @return
+     */
+    private List<Integer> solve(Multigraph<Integer, DefaultEdge> graph) {
+        List<Integer> solution = new LinkedList<>();
+        for (Multigraph<Integer, DefaultEdge> g : Splitter.split(graph)) {
+            ReductionSolution reduced = Kernelization.kernelot(g, true, this.pool);
+            solution.addAll(reduced.verticesToRemoved);
+            if (!reduced.reducedGraph.vertexSet().isEmpty()) {
+                solution.addAll(this.solveKernel(reduced.reducedGraph));
+            }
+        }
+        return solution;
+    }
+
+    private static Multigraph<Integer, DefaultEdge> copy(Multigraph<Integer, DefaultEdge> graph) {
+        Multigraph<Integer, DefaultEdge> copy = new Multigraph<>(DefaultEdge.class);
+        addGraph(copy, graph);
+        Metrics.get().cloned(copy);
+        return copy;
+    }
+
+    /**
+     * Adds the vertices and edges of source to destination, with new edge objects
+     */
+    private static void addGraph(Multigraph<Integer, DefaultEdge> destination, Multigraph<Integer, DefaultEdge> source) {
+        for (Integer v : source.vertexSet()) {
+            destination.addVertex(v);
+        }
+        for (DefaultEdge e : source.edgeSet()) {
+            destination.addEdge(source.getEdgeSource(e), source.getEdgeTarget(e));
+        }
+    }
+
+    /**
+     * Kernelize all parts on the pool, then solve the kernels on the pool, largest first. The solutions are combined
+     * in the order of the parts, not in the order in which they finish.
+     *
+     * @param split
+     * @return
+     */
+    protected List<Integer> solveParallel(List<Multigraph<Integer, DefaultEdge>> split) {
+        int n = split.size();
+        ReductionSolution[] reduced = new ReductionSolution[n];
+        List<Integer>[] solutions = new List[n];
+
+        try {
+            // Kernelize, the largest parts first
+            this.runAll(n, this.largestFirst(n, i -> split.get(i)), i -> () -> {
+                reduced[i] = Kernelization.kernelot(split.get(i), true, this.pool);
+            });
+
+            // Solve the kernels, the largest first since they take the longest
+            this.runAll(n, this.largestFirst(n, i -> reduced[i].reducedGraph), i -> () -> {
+                if (!reduced[i].reducedGraph.vertexSet().isEmpty()) {
+                    solutions[i] = this.solveKernel(reduced[i].reducedGraph);
+                }
+            });
+        } catch (RuntimeException ex) {
+            if (Budget.cancelledCause(ex) == null) {
+                throw ex;
+            }
+            // The parts that are done keep their solution, the others get the approximation
+            List<Integer> solution = new LinkedList<>();
+            for (int i = 0; i < n; i++) {
+                boolean done = reduced[i] != null
+                        && (solutions[i] != null || reduced[i].reducedGraph.vertexSet().isEmpty());
+                if (done) {
+                    solution.addAll(reduced[i].verticesToRemoved);
+                    if (solutions[i] != null) {
+                        solution.addAll(solutions[i]);
+                    }
+                } else {
+                    solution = partial(solution, split.subList(i, i + 1), null);
+                }
+            }
+            throw new Budget.Cancelled(solution);
+        }
+
+        List<Integer> solution = new LinkedList<>();
+        for (int i = 0; i < n; i++) {
+            solution.addAll(reduced[i].verticesToRemoved);
+            if (solutions[i] != null) {
+                solution.addAll(solutions[i]);
+            }
+        }
+        return solution;
+    }
+
+    /**
+     * The indices 0..n-1 sorted on decreasing size of their graph, ties are kept in order
+     *
+     * @param n
+     * @param graphs
+     * @return
+     */
+    private Integer[] largestFirst(int n, IntFunction<Multigraph<Integer, DefaultEdge>> graphs) {
+        long[] size = new long[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            Multigraph<Integer, DefaultEdge> g = graphs.apply(i);
+            size[i] = (long) g.vertexSet().size() + g.edgeSet().size();
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> size[i]).reversed());
+        return order;
+    }
+
+    /**
+     * Submits the job of every part to the pool in the given order, and waits until all have finished. The jobs run
+     * with the budget of the calling thread. If a job fails or the calling thread is interrupted, the jobs that did not
+     * start yet are cancelled and the running ones are interrupted, before the exception is passed on.
+     *
+     * @param n
+     * @param order
+     * @param jobs
+     */
+    private void runAll(int n, Integer[] order, IntFunction<Runnable> jobs) {
+        Budget budget = Budget.current();
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        Thread[] runners = new Thread[n];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            tasks.add(null);
+        }
+
+        for (Integer index : order) {
+            int i = index;
+            Runnable job = jobs.apply(i);
+            tasks.set(i, this.pool.submit(() -> {
+                synchronized (runners) {
+                    if (cancelled.get()) {
+                        return;
+                    }
+                    runners[i] = Thread.currentThread();
+                }
+                try {
+                    budget.run(job);
+                } catch (RuntimeException ex) {
+                    if (Budget.cancelledCause(ex) == null) {
+                        System.err.println("Failed while solving component " + (i + 1) + "/" + n);
+                    } else {
+                        System.err.println("Interrupted while solving component " + (i + 1) + "/" + n);
+                    }
+                    throw ex;
+                } finally {
+                    synchronized (runners) {
+                        runners[i] = null;
+                        // An interrupt meant for this job must not hit the next job of this worker
+                        Thread.interrupted();
+                    }
+                }
+            }));
+        }
+
+        try {
+            for (int i = 0; i < n; i++) {
+                tasks.get(i).get();
+            }
+        } catch (InterruptedException ex) {
+            cancel(cancelled, runners, tasks);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            cancel(cancelled, runners, tasks);
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    private static void cancel(AtomicBoolean cancelled, Thread[] runners, List<ForkJoinTask<?>> tasks) {
+        synchronized (runners) {
+            cancelled.set(true);
+            for (Thread runner : runners) {
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.cancel(true);
+        }
     }
 }
@@ -1,9 +1,17 @@
 package Alg.TreeDecomposition;
 
-import org.jgrapht.graph.Multigraph;
-
+// Decides in which order the vertices are eliminated
 public abstract class Choice {
     
-    abstract Integer nextChoice(Multigraph g);
+    // Called once, before the first choice. Eliminating a vertex of degree more than maxWidth ends the decomposition.
+    void start(EliminationGraph g, int maxWidth){
+    }
+    
+    // The next vertex to eliminate
+    abstract int nextChoice(EliminationGraph g);
+    
+    // Called after v was eliminated, its neighbours are a clique now
+    void eliminated(EliminationGraph g, int v, int[] neighbours){
+    }
     
 }
@@ -1,18 +1,18 @@
 package Alg.TreeDecomposition;
 
-import org.jgrapht.graph.Multigraph;
+import java.util.BitSet;
 
 // Greedily chooses the next vertex: the one with the smallest degree. Yes, pun intended.
 public class DeGreedy extends Choice {
 
     @Override
-    Integer nextChoice(Multigraph g) {
+    int nextChoice(EliminationGraph g) {
         int lowestDegreeSoFar = Integer.MAX_VALUE;
-        Integer bestChoiceSoFar = -1;
+        int bestChoiceSoFar = -1;
         
-        for(Object o : g.vertexSet()){
-            Integer i = (Integer)o;
-            int deg = g.degreeOf(i);
+        BitSet remaining = g.remaining();
+        for(int i = remaining.nextSetBit(0); i >= 0; i = remaining.nextSetBit(i + 1)){
+            int deg = g.degree(i);
             if(deg < lowestDegreeSoFar){
                 lowestDegreeSoFar = deg;
                 bestChoiceSoFar = i;
@@ -0,0 +1,271 @@
+package Alg.TreeDecomposition;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+// A tree decomposition, with the bags as indices 0..size()-1 into arrays. Every bag has its parent, first child and
+// next sibling, and its vertices are a range of one flat array, so a bag takes a fixed number of ints plus one per
+// vertex. All traversals use an explicit stack, decompositions of large graphs can be thousands of bags deep.
+public class Decomposition {
+
+    // Per bag
+    private int[] parent;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] start;
+    private int[] length;
+    // The vertex the bag was made for, or -1
+    private int[] num;
+    // The edge introduced by the bag, or -1
+    private int[] edgeA;
+    private int[] edgeB;
+    private int size = 0;
+
+    // The vertices of all bags
+    private int[] vertices;
+    private int used = 0;
+
+    private int root = -1;
+
+    public Decomposition(){
+        this(16, 64);
+    }
+
+    // A decomposition with room for the expected number of bags and vertices in all bags together
+    public Decomposition(int bags, int vertices){
+        bags = Math.max(bags, 1);
+        parent = new int[bags];
+        firstChild = new int[bags];
+        nextSibling = new int[bags];
+        start = new int[bags];
+        length = new int[bags];
+        num = new int[bags];
+        edgeA = new int[bags];
+        edgeB = new int[bags];
+        this.vertices = new int[Math.max(vertices, 1)];
+    }
+
+    // Adds a bag with the vertices, that is not connected to any other bag yet, and returns it
+    public int addBag(int[] bag, int from, int count){
+        if(size == parent.length){
+            int capacity = size * 2;
+            parent = Arrays.copyOf(parent, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            start = Arrays.copyOf(start, capacity);
+            length = Arrays.copyOf(length, capacity);
+            num = Arrays.copyOf(num, capacity);
+            edgeA = Arrays.copyOf(edgeA, capacity);
+            edgeB = Arrays.copyOf(edgeB, capacity);
+        }
+        if(used + count > vertices.length){
+            vertices = Arrays.copyOf(vertices, Math.max(vertices.length * 2, used + count));
+        }
+
+        int b = size++;
+        parent[b] = -1;
+        firstChild[b] = -1;
+        nextSibling[b] = -1;
+        num[b] = -1;
+        edgeA[b] = -1;
+        edgeB[b] = -1;
+        start[b] = used;
+        length[b] = count;
+        System.arraycopy(bag, from, vertices, used, count);
+        used += count;
+        if(root < 0){
+            root = b;
+        }
+        return b;
+    }
+
+    public int addBag(int[] bag){
+        return addBag(bag, 0, bag.length);
+    }
+
+    // Makes child a child of p
+    public void attach(int child, int p){
+        parent[child] = p;
+        nextSibling[child] = firstChild[p];
+        firstChild[p] = child;
+    }
+
+    // Puts the bag b between the bag below and its parent
+    void insertAbove(int b, int below){
+        int p = parent[below];
+        if(p < 0){
+            attach(below, b);
+            root = b;
+            return;
+        }
+        if(firstChild[p] == below){
+            firstChild[p] = b;
+        } else {
+            int c = firstChild[p];
+            while(nextSibling[c] != below){
+                c = nextSibling[c];
+            }
+            nextSibling[c] = b;
+        }
+        nextSibling[b] = nextSibling[below];
+        parent[b] = p;
+        parent[below] = b;
+        nextSibling[below] = -1;
+        firstChild[b] = below;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public int root(){
+        return root;
+    }
+
+    void setRoot(int b){
+        root = b;
+    }
+
+    public int parent(int b){
+        return parent[b];
+    }
+
+    // The first child of b, or -1
+    public int firstChild(int b){
+        return firstChild[b];
+    }
+
+    // The next child of the parent of b, or -1
+    public int nextSibling(int b){
+        return nextSibling[b];
+    }
+
+    public int childCount(int b){
+        int count = 0;
+        for(int c = firstChild[b]; c >= 0; c = nextSibling[c]){
+            count++;
+        }
+        return count;
+    }
+
+    public int bagSize(int b){
+        return length[b];
+    }
+
+    // The i-th vertex of b
+    public int vertex(int b, int i){
+        return vertices[start[b] + i];
+    }
+
+    // A copy of the vertices of b
+    public int[] vertices(int b){
+        return Arrays.copyOfRange(vertices, start[b], start[b] + length[b]);
+    }
+
+    public boolean contains(int b, int v){
+        for(int i = start[b]; i < start[b] + length[b]; i++){
+            if(vertices[i] == v){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int num(int b){
+        return num[b];
+    }
+
+    void setNum(int b, int v){
+        num[b] = v;
+    }
+
+    // Whether b introduces an edge
+    public boolean hasEdge(int b){
+        return edgeA[b] >= 0;
+    }
+
+    public int edgeA(int b){
+        return edgeA[b];
+    }
+
+    public int edgeB(int b){
+        return edgeB[b];
+    }
+
+    void setEdge(int b, int a, int c){
+        edgeA[b] = a;
+        edgeB[b] = c;
+    }
+
+    // The size of the largest bag minus one
+    public int treeWidth(){
+        int max = 0;
+        for(int b = 0; b < size; b++){
+            max = Math.max(max, length[b]);
+        }
+        return max - 1;
+    }
+
+    // The bags below root, every bag before its children
+    public int[] preorder(){
+        int[] order = new int[size];
+        if(root < 0){
+            return order;
+        }
+        int count = 0;
+        int[] stack = new int[size];
+        int top = 0;
+        stack[top++] = root;
+        while(top > 0){
+            int b = stack[--top];
+            order[count++] = b;
+            for(int c = firstChild[b]; c >= 0; c = nextSibling[c]){
+                stack[top++] = c;
+            }
+        }
+        return Arrays.copyOf(order, count);
+    }
+
+    // Prints the tree, every bag on a line of its own indented by its depth
+    public void print(PrintStream out){
+        if(root < 0){
+            return;
+        }
+        int[] stack = new int[size];
+        int[] depth = new int[size];
+        int top = 0;
+        stack[top] = root;
+        depth[top++] = 0;
+        StringBuilder line = new StringBuilder();
+        while(top > 0){
+            top--;
+            int b = stack[top];
+            int d = depth[top];
+            line.setLength(0);
+            for(int i = 0; i < d; i++){
+                line.append(' ');
+            }
+            if(length[b] == 0){
+                line.append('∅');
+            }
+            for(int i = 0; i < length[b]; i++){
+                int v = vertex(b, i);
+                if(v < 10){
+                    line.append('.');
+                }
+                line.append(v).append(' ');
+            }
+            out.println(line);
+
+            // Reversed, such that the first child is printed first
+            int children = childCount(b);
+            int i = top + children;
+            for(int c = firstChild[b]; c >= 0; c = nextSibling[c]){
+                i--;
+                stack[i] = c;
+                depth[i] = d + 1;
+            }
+            top += children;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package Alg.TreeDecomposition;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import org.jgrapht.graph.Multigraph;
+
+// A graph in which vertices are eliminated: the neighbours of the vertex are made into a clique, then the vertex is
+// removed. The vertices are ids 0..n-1, in the order of their labels, and every vertex has its neighbours as a bitset.
+// Double edges are single edges here.
+public class EliminationGraph {
+    
+    private final int[] labels;
+    private final BitSet[] adjacency;
+    private final int[] degree;
+    private final BitSet remaining;
+    
+    // Scratch space for fill
+    private final BitSet common = new BitSet();
+    
+    EliminationGraph(Multigraph g){
+        List<Integer> vertices = new ArrayList<>(g.vertexSet());
+        Collections.sort(vertices);
+        int n = vertices.size();
+        labels = new int[n];
+        HashMap<Integer, Integer> ids = new HashMap<>();
+        for(int v = 0; v < n; v++){
+            labels[v] = vertices.get(v);
+            ids.put(labels[v], v);
+        }
+        
+        adjacency = new BitSet[n];
+        for(int v = 0; v < n; v++){
+            adjacency[v] = new BitSet();
+        }
+        for(Object e: g.edgeSet()){
+            int s = ids.get((Integer) g.getEdgeSource(e));
+            int t = ids.get((Integer) g.getEdgeTarget(e));
+            if(s != t){
+                adjacency[s].set(t);
+                adjacency[t].set(s);
+            }
+        }
+        
+        degree = new int[n];
+        for(int v = 0; v < n; v++){
+            degree[v] = adjacency[v].cardinality();
+        }
+        remaining = new BitSet(n);
+        remaining.set(0, n);
+    }
+    
+    // The number of vertices at the start
+    public int capacity(){
+        return labels.length;
+    }
+    
+    public int label(int v){
+        return labels[v];
+    }
+    
+    // The vertices that are not eliminated yet, do not change it
+    public BitSet remaining(){
+        return remaining;
+    }
+    
+    public int degree(int v){
+        return degree[v];
+    }
+    
+    // The neighbours of v, do not change them
+    public BitSet neighbours(int v){
+        return adjacency[v];
+    }
+    
+    // The number of edges that eliminating v would add
+    public long fill(int v){
+        long present = 0;
+        BitSet n = adjacency[v];
+        for(int u = n.nextSetBit(0); u >= 0; u = n.nextSetBit(u + 1)){
+            common.clear();
+            common.or(adjacency[u]);
+            common.and(n);
+            present += common.cardinality();
+        }
+        long d = degree[v];
+        return d * (d - 1) / 2 - present / 2;
+    }
+    
+    // Eliminates v, and returns its neighbours
+    int[] eliminate(int v){
+        BitSet n = adjacency[v];
+        int[] neighbours = new int[degree[v]];
+        int i = 0;
+        for(int u = n.nextSetBit(0); u >= 0; u = n.nextSetBit(u + 1)){
+            neighbours[i++] = u;
+        }
+        for(int u: neighbours){
+            adjacency[u].or(n);
+            adjacency[u].clear(u);
+            adjacency[u].clear(v);
+            degree[u] = adjacency[u].cardinality();
+        }
+        adjacency[v] = new BitSet();
+        degree[v] = 0;
+        remaining.clear(v);
+        return neighbours;
+    }
+}
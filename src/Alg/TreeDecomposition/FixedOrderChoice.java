@@ -1,12 +1,10 @@
 package Alg.TreeDecomposition;
 
-import org.jgrapht.graph.Multigraph;
-
 public class FixedOrderChoice extends Choice {
 
     @Override
-    Integer nextChoice(Multigraph g) {
-        return (Integer) g.vertexSet().iterator().next();
+    int nextChoice(EliminationGraph g) {
+        return g.remaining().nextSetBit(0);
     }
 
 }
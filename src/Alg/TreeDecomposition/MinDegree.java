@@ -0,0 +1,29 @@
+package Alg.TreeDecomposition;
+
+// Chooses the vertex with the smallest degree, like DeGreedy, but keeps the vertices in a priority queue instead of
+// looking at all of them for every choice
+public class MinDegree extends Choice {
+    
+    private VertexQueue queue;
+
+    @Override
+    void start(EliminationGraph g, int maxWidth) {
+        queue = new VertexQueue(g.capacity());
+        for(int v = 0; v < g.capacity(); v++){
+            queue.set(v, g.degree(v));
+        }
+    }
+
+    @Override
+    int nextChoice(EliminationGraph g) {
+        return queue.poll();
+    }
+
+    @Override
+    void eliminated(EliminationGraph g, int v, int[] neighbours) {
+        for(int u: neighbours){
+            queue.set(u, g.degree(u));
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package Alg.TreeDecomposition;
+
+import java.util.BitSet;
+
+// Chooses the vertex whose elimination adds the fewest edges, the one with the smallest degree on ties. Usually gives
+// narrower decompositions than the smallest degree.
+public class MinFill extends Choice {
+    
+    private VertexQueue queue;
+    private int maxWidth;
+    // Marks the vertices updated after the current elimination
+    private int[] updated;
+    private int stamp = 0;
+
+    @Override
+    void start(EliminationGraph g, int maxWidth) {
+        this.maxWidth = maxWidth;
+        queue = new VertexQueue(g.capacity());
+        updated = new int[g.capacity()];
+        for(int v = 0; v < g.capacity(); v++){
+            update(g, v);
+        }
+    }
+
+    @Override
+    int nextChoice(EliminationGraph g) {
+        return queue.poll();
+    }
+
+    @Override
+    void eliminated(EliminationGraph g, int v, int[] neighbours) {
+        // The new edges are between neighbours of v, that changes the fill of the neighbours and their neighbours
+        stamp++;
+        for(int u: neighbours){
+            if(updated[u] != stamp){
+                updated[u] = stamp;
+                update(g, u);
+            }
+            BitSet n = g.neighbours(u);
+            for(int w = n.nextSetBit(0); w >= 0; w = n.nextSetBit(w + 1)){
+                // The degree of w did not change, so neither did its key if it is too wide
+                if(updated[w] != stamp && g.degree(w) <= maxWidth){
+                    updated[w] = stamp;
+                    update(g, w);
+                }
+            }
+        }
+    }
+    
+    // A vertex of degree more than maxWidth is only chosen when all are, then its fill does not matter any more
+    private void update(EliminationGraph g, int v){
+        long fill = g.degree(v) > maxWidth ? Integer.MAX_VALUE : g.fill(v);
+        queue.set(v, (fill << 32) | g.degree(v));
+    }
+
+}
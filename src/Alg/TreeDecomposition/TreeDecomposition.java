@@ -1,281 +1,216 @@
 package Alg.TreeDecomposition;
 
-import java.util.ArrayList;
 import java.util.Set;
 import org.jgrapht.graph.Multigraph;
 
 public class TreeDecomposition {
     
-    // Returns the root of a tree decomposition of g
-    // Might completely mangle g
-    // If g is not connected, it will simply add edges to make it so
-    public static Bag makeTreeDecomposition(Multigraph g){
-        // stack overflow check
-//        try{
-            Choice c;
-            c = new DeGreedy();
-            Bag toRet = permutationToTD(g, c);
-            return toRet;
-//        } catch(StackOverflowError e) {
-//            System.out.println("Error!");
-//            return simpleTD(g);
-//        }
+    // Returns a tree decomposition of g
+    // g is not changed
+    public static Decomposition makeTreeDecomposition(Multigraph g){
+        return makeTreeDecomposition(g, new MinDegree(), Integer.MAX_VALUE);
     }
     
-    // Turns the given tree decomposition into a nice tree decomposition, i.e. each bag is either:
+    // Returns a tree decomposition of g, eliminating the vertices in the order of c, or null as soon as it is clear
+    // that its width will be more than maxWidth
+    // g is not changed
+    public static Decomposition makeTreeDecomposition(Multigraph g, Choice c, int maxWidth){
+        return eliminationToTD(new EliminationGraph(g), c, maxWidth);
+    }
+    
+    // Returns a nice tree decomposition with the same width as the given one, i.e. each bag is either:
     // - The root (no parent, 1 child, empty)
     // - Leaf bag (1 parent, no children, empty)
     // - Introduce bag (1 parent, 1 child, contains 1 more vertex than its child)
     // - Forget (1 parent, 1 child, contains 1 less vertex than its child)
     // - Join (1 parent, 2 children, contains the same vertices as its children)
-    public static Bag makeNice(Bag b){
-        // Make the root nice
-        while(!b.isEmpty()){
-            Bag b2 = new Bag(b);
-            b2.removeLastVert();
-            b2.children.add(b);
-            b.parent = b2;
-            b = b2;
+    // The given decomposition is not changed
+    public static Decomposition makeNice(Decomposition d){
+        Decomposition nice = new Decomposition(4 * d.size(), 4 * d.size() * (d.treeWidth() + 1));
+        int root = nice.addBag(new int[0]);
+        if(d.root() < 0){
+            return nice;
         }
-        // Recursively make the rest of the tree nice
-        return makeSubtreeNice(b);
-    }
-    
-    // Adds `add edge' bags to the tree
-    public static Bag addEdges(Bag b, Multigraph g){
-        if(b.isAdd()){
-            ArrayList<Integer> ve = (ArrayList<Integer>) b.vert.clone();
-            ve.removeAll(b.children.get(0).vert);
-            Integer v = ve.get(0);
-            for(Integer w: b.vert){
-                if(w != v){
-                    if(g.containsEdge(v, w) || g.containsEdge(w, v)){
-                        Bag c = new Bag(b);
-                        c.setEdge(v,w);
-                        b.insertAbove(c);
+        
+        // The bags of d still to do, with the bag of nice that has the same vertices
+        int[] todo = new int[d.size()];
+        int[] at = new int[d.size()];
+        int top = 0;
+        todo[top] = d.root();
+        at[top++] = chain(nice, root, d.vertices(d.root()));
+        while(top > 0){
+            top--;
+            int b = todo[top];
+            int a = at[top];
+            int children = d.childCount(b);
+            if(children == 0){
+                chain(nice, a, new int[0]);
+            } else if(children == 1){
+                int c = d.firstChild(b);
+                todo[top] = c;
+                at[top++] = chain(nice, a, d.vertices(c));
+            } else {
+                // A join for every child but the last, each with a copy of b for the child and one for the rest
+                int[] vertices = d.vertices(b);
+                for(int c = d.firstChild(b); c >= 0; c = d.nextSibling(c)){
+                    int next = a;
+                    if(d.nextSibling(c) >= 0){
+                        int left = nice.addBag(vertices);
+                        next = nice.addBag(vertices);
+                        nice.attach(left, a);
+                        nice.attach(next, a);
+                        a = left;
                     }
+                    todo[top] = c;
+                    at[top++] = chain(nice, a, d.vertices(c));
+                    a = next;
                 }
             }
         }
-        for(Bag c: b.children){
-            c = addEdges(c, g);
+        return nice;
+    }
+    
+    // Adds a chain of introduce and forget bags below the bag a, down to a bag with the target vertices, and returns
+    // that bag. First the vertices that are not in the target are left out, then those of the target are added.
+    private static int chain(Decomposition nice, int a, int[] target){
+        int[] vertices = nice.vertices(a);
+        int n = vertices.length;
+        int[] current = new int[n + target.length];
+        System.arraycopy(vertices, 0, current, 0, n);
+        
+        for(int i = n - 1; i >= 0; i--){
+            if(!contains(target, target.length, current[i])){
+                System.arraycopy(current, i + 1, current, i, n - i - 1);
+                n--;
+                int b = nice.addBag(current, 0, n);
+                nice.attach(b, a);
+                a = b;
+            }
+        }
+        for(int v: target){
+            if(!contains(current, n, v)){
+                current[n++] = v;
+                int b = nice.addBag(current, 0, n);
+                nice.attach(b, a);
+                a = b;
+            }
         }
-        return b;
+        return a;
     }
     
-    // Returns the root of a path decomposition
-    public static Bag makePathDecomposition(Multigraph g){
-        return simpleTD(g);
+    private static boolean contains(int[] vertices, int n, int v){
+        for(int i = 0; i < n; i++){
+            if(vertices[i] == v){
+                return true;
+            }
+        }
+        return false;
     }
     
-    // Recursively make a subtree nice
-    private static Bag makeSubtreeNice(Bag b){
-        if(b.isLeaf()){
-            if(!b.isEmpty()){
-                Bag b2 = new Bag(b);
-                b2.removeLastVert();
-                b2.parent = b;
-                b2 = makeSubtreeNice(b2);
-                b.children.add(b2);
+    // Adds `add edge' bags to the tree: above every bag that introduces a vertex, a bag for each edge between that
+    // vertex and the others in the bag
+    public static Decomposition addEdges(Decomposition d, Multigraph g){
+        for(int b: d.preorder()){
+            int c = d.firstChild(b);
+            if(c < 0 || d.nextSibling(c) >= 0 || d.bagSize(b) != d.bagSize(c) + 1 || d.hasEdge(b)){
+                continue;
             }
-        } else if(b.isAddOrForget()){
-            Bag child = b.children.get(0);
-            
-            ArrayList<Integer> toRem = (ArrayList<Integer>) b.vert.clone();
-            toRem.removeAll(child.vert);
-            
-            ArrayList<Integer> toAdd = (ArrayList<Integer>) child.vert.clone();
-            toAdd.removeAll(b.vert);
-            
-            if(toRem.isEmpty() && toAdd.size() > 1){
-                // add
-                Bag b2 = new Bag(b);
-                b2.vert.add(toAdd.get(0));
-                b.insertBelow(b2);
-                b2 = makeSubtreeNice(b2);
-            } else if( (toRem.isEmpty() && toAdd.size() <= 1) || (toRem.size() == 1 && toAdd.isEmpty()) ){
-                // done
-                child = makeSubtreeNice(child);
-            } else {
-                // rem
-                Bag b2 = new Bag(b);
-                b2.vert.remove(toRem.get(0));
-                b.insertBelow(b2);
-                b2 = makeSubtreeNice(b2);
+            Integer v = null;
+            for(int i = 0; i < d.bagSize(b); i++){
+                if(!d.contains(c, d.vertex(b, i))){
+                    v = d.vertex(b, i);
+                }
             }
-        } else {
-            // b has at least 2 children
-            if(b.children.size() == 2){
-                // make sure they are equal
-                for(int i = 0; i < 2; i++){
-                    Bag child = b.children.get(i);
-                    ArrayList<String> vert = (ArrayList<String>) child.vert.clone();
-                    vert.removeAll(b.vert);
-                    if(child.vert.size() != b.vert.size() || vert.size() > 0){
-                        // child not equal to parent. Fix that
-                        Bag b2 = new Bag(b);
-                        b2.children.add(child);
-                        b.children.set(i, b2);
-                    }
-                    b.children.set(i, makeSubtreeNice(b.children.get(i)));
+            if(v == null){
+                continue;
+            }
+            int[] vertices = d.vertices(b);
+            for(Integer w: vertices){
+                if(!w.equals(v) && g.containsEdge(v, w)){
+                    int e = d.addBag(vertices);
+                    d.setEdge(e, v, w);
+                    d.insertAbove(e, b);
                 }
-            } else {
-                // > 2 children
-                Bag b2 = new Bag(b);
-                b2.children.add(b.children.get(0));
-                b2.children.add(b.children.get(1));
-                b.children.remove(0);
-                b.children.remove(0);
-                b.children.add(b2);
-                b = makeSubtreeNice(b);
             }
         }
-        return b;
+        return d;
     }
     
-    // Prints the Tree Decomposition (sub)tree starting at this bag
-    public static void print(Bag b){
-        print(b, 0);
+    // Returns a path decomposition
+    public static Decomposition makePathDecomposition(Multigraph g){
+        return simpleTD(g);
     }
     
-    // Prints the Tree Decomposition (sub)tree starting at this bag with an extra indent of size d
-    private static void print(Bag b, int d){
-        for(int i = 0; i < d; i++){
-            System.out.print(" ");
-        }
-        if(b.vert.isEmpty()){
-            System.out.print("∅");
-        } else {
-            for(Integer v: b.vert){
-                if(v < 10){
-                    System.out.print(".");
-                }
-                System.out.print(v + " ");
-            }
-        }
-        System.out.println("");
-        for(Bag b2: b.children){
-            print(b2, d + 1);
-        }
+    // Prints the Tree Decomposition
+    public static void print(Decomposition d){
+        d.print(System.out);
     }
     
     // Returns the tree decomposition gotten by putting all vertices in one bag
-    private static Bag simpleTD(Multigraph g){
-        Bag root = new Bag();
-        
+    private static Decomposition simpleTD(Multigraph g){
         Set<Integer> vertices = g.vertexSet();
+        int[] bag = new int[vertices.size()];
+        int i = 0;
         for(Integer vertex: vertices){
-            root.add(vertex);
+            bag[i++] = vertex;
         }
-        return root;
+        Decomposition d = new Decomposition(1, bag.length);
+        d.addBag(bag);
+        return d;
     }
     
-    // Converts the given graph g and the list of vertices to a TD.
-    // Might completely mangle g and the list of vertices.
-    private static Bag permutationToTD(Multigraph g, Choice c){
-        
-        Bag root;
-        ArrayList<Integer> vjs = new ArrayList<>();
-        ArrayList<Bag> toAdds = new ArrayList<>();
-        
-        while(true){
-            // find v0 and its neighbours
-            Integer v0 = c.nextChoice(g);
-            ArrayList<Integer> neighbours = getNeighbours(g, v0);
-
-            // if n=1 then done
-            if(g.vertexSet().size() == 1){
-                root = new Bag();
-                root.add(v0);
-                root.num = v0;
-                break;
-            }
-
-            // If it has no neighbours, the instance was not connected.
-            if(neighbours.isEmpty()){
-                //System.out.println("The given instance was not connected, adding a random edge...");
-                Set<Integer> vertices = g.vertexSet();
-                boolean foundOne = false;
-                for(Integer v: vertices){
-                    if(!foundOne){
-                        if(v != v0){
-                            //System.out.println("Added (" + v0 + ", " + v + ")");
-                            g.addEdge(v0, v);
-                            foundOne = true;
-                            neighbours.add(v);
-                        }
-                    }
-                }
-            }
-
-            // Construct bag with neighbours of v0 in G
-            Bag toAdd = new Bag();
-            toAdd.add(v0);
-            toAdd.num = v0;
-            toAdd.addAll(neighbours);
-
-            // v_j = lowest neighbour of v_0
-            Integer vj = findLowest(neighbours);
-
-            // compute G' obtained by elim. v0: add an edge between all non-adjacent neighbours of v0, then remove v0
-            for(Integer s: neighbours){
-                for(Integer t: neighbours){
-                    if(s != t){
-                        if(!g.containsEdge(s, t)){
-                            g.addEdge(s, t);
-                        }
-                    }
-                }
-            }
-            g.removeVertex(v0);
-
-            // call PermToTD(G',(v1,...v_{n-1}))
-            if(!g.vertexSet().contains(vj)){
-                System.out.println("Paniek!");
-            }
-            vjs.add(vj);
-            toAdds.add(toAdd);
+    // Converts the given graph to a TD by eliminating its vertices in the order of c. The bag of a vertex is the vertex
+    // and its neighbours when it is eliminated, and it hangs below the bag of the neighbour that is eliminated first.
+    // A vertex without neighbours ends a component, its bag hangs below the bag of the last vertex.
+    private static Decomposition eliminationToTD(EliminationGraph g, Choice c, int maxWidth){
+        int n = g.capacity();
+        Decomposition d = new Decomposition(n, 4 * n);
+        if(n == 0){
+            d.addBag(new int[0]);
+            return d;
         }
         
-        while(!vjs.isEmpty()){
-            Integer vj = vjs.get(vjs.size()-1);
-            vjs.remove(vjs.size()-1);
-            Bag toAdd = toAdds.get(toAdds.size()-1);
-            toAdds.remove(toAdds.size()-1);
-            
-            // connect X_v_0 to X_v_j
-            Bag toConnect = root.findNum(vj);
-            toConnect.children.add(toAdd);
-            toAdd.parent = toConnect;
-            root = root.findRoot();
-        }
+        // The bag of every vertex, and the place of every vertex in the order
+        int[] bags = new int[n];
+        int[] order = new int[n];
+        int[] position = new int[n];
+        int[][] later = new int[n][];
         
-        return root;
-    }
-    
-    private static ArrayList<Integer> getNeighbours(Multigraph g, Integer v0){
-        ArrayList<Integer> neighbours = new ArrayList<>();
-        for(Object e: g.edgesOf(v0)){
-            Integer t = (Integer) g.getEdgeTarget(e);
-            if(!neighbours.contains(t)){
-                neighbours.add(t);
+        c.start(g, maxWidth);
+        for(int i = 0; i < n; i++){
+            int v0 = c.nextChoice(g);
+            if(g.degree(v0) > maxWidth){
+                return null;
             }
-            Integer s = (Integer) g.getEdgeSource(e);
-            if(!neighbours.contains(s)){
-                neighbours.add(s);
+            order[i] = v0;
+            position[v0] = i;
+            
+            int[] neighbours = g.eliminate(v0);
+            later[v0] = neighbours;
+            int[] bag = new int[neighbours.length + 1];
+            bag[0] = g.label(v0);
+            for(int j = 0; j < neighbours.length; j++){
+                bag[j + 1] = g.label(neighbours[j]);
             }
+            bags[v0] = d.addBag(bag);
+            d.setNum(bags[v0], g.label(v0));
+            c.eliminated(g, v0, neighbours);
         }
-        neighbours.remove(v0);
-        return neighbours;
-    }
-    
-    private static Integer findLowest(ArrayList<Integer> s){
-        Integer toRet = Integer.MAX_VALUE;
-        for(Integer i: s){
-            if(i < toRet){
-                toRet = i;
+        
+        int root = bags[order[n - 1]];
+        d.setRoot(root);
+        for(int i = n - 2; i >= 0; i--){
+            int v0 = order[i];
+            // v_j = the neighbour of v_0 that is eliminated first
+            int vj = -1;
+            for(int u: later[v0]){
+                if(vj < 0 || position[u] < position[vj]){
+                    vj = u;
+                }
             }
+            d.attach(bags[v0], vj < 0 ? root : bags[vj]);
         }
-        return toRet;
+        
+        return d;
     }
 }
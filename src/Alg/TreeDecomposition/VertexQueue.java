@@ -0,0 +1,89 @@
+package Alg.TreeDecomposition;
+
+import java.util.Arrays;
+
+// Priority queue of the vertices 0..n-1 by a key, the smallest key first and the smallest vertex on ties. The key of a
+// vertex in the queue can be changed.
+class VertexQueue {
+    
+    private final int[] heap;
+    // The place of every vertex in the heap, or -1
+    private final int[] place;
+    private final long[] key;
+    private int size = 0;
+    
+    VertexQueue(int n){
+        heap = new int[n];
+        place = new int[n];
+        key = new long[n];
+        Arrays.fill(place, -1);
+    }
+    
+    boolean isEmpty(){
+        return size == 0;
+    }
+    
+    // Adds v with the key, or changes the key of v
+    void set(int v, long k){
+        if(place[v] < 0){
+            place[v] = size;
+            heap[size++] = v;
+            key[v] = k;
+            up(place[v]);
+        } else {
+            long old = key[v];
+            key[v] = k;
+            if(k < old){
+                up(place[v]);
+            } else {
+                down(place[v]);
+            }
+        }
+    }
+    
+    // Removes and returns the vertex with the smallest key
+    int poll(){
+        int v = heap[0];
+        place[v] = -1;
+        size--;
+        if(size > 0){
+            heap[0] = heap[size];
+            place[heap[0]] = 0;
+            down(0);
+        }
+        return v;
+    }
+    
+    private boolean less(int a, int b){
+        return key[a] < key[b] || (key[a] == key[b] && a < b);
+    }
+    
+    private void up(int i){
+        int v = heap[i];
+        while(i > 0 && less(v, heap[(i - 1) / 2])){
+            heap[i] = heap[(i - 1) / 2];
+            place[heap[i]] = i;
+            i = (i - 1) / 2;
+        }
+        heap[i] = v;
+        place[v] = i;
+    }
+    
+    private void down(int i){
+        int v = heap[i];
+        while(2 * i + 1 < size){
+            int c = 2 * i + 1;
+            if(c + 1 < size && less(heap[c + 1], heap[c])){
+                c++;
+            }
+            if(!less(heap[c], v)){
+                break;
+            }
+            heap[i] = heap[c];
+            place[heap[i]] = i;
+            i = c;
+        }
+        heap[i] = v;
+        place[v] = i;
+    }
+}
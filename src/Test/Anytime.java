@@ -0,0 +1,111 @@
+package Test;
+
+import Alg.AnytimeResult;
+import Alg.Algorithms.IterativeCompression.IterativeCompression;
+import Alg.FVSAlgorithmInterface;
+import Alg.Kernelization.ReductionSolution;
+import Alg.Lib.IntGraph;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for solving with a deadline
+ */
+public class Anytime extends FVSTest {
+
+    public Anytime() {
+        super(new Alg.SplitSolve(new IterativeCompression()));
+    }
+
+    /**
+     * An exact algorithm that finishes in time gives an optimal solution
+     *
+     * @throws FileNotFoundException
+     */
+    @Test
+    public void testFinishes() throws FileNotFoundException {
+        Multigraph<Integer, DefaultEdge> graph = this.loadGraph("instances/003.graph");
+        int edges = graph.edgeSet().size();
+
+        AnytimeResult result = this.alg.findFeedbackVertexSet(graph, Duration.ofSeconds(60));
+
+        assertTrue(result.finished);
+        assertTrue(result.optimal);
+        assertEquals(10, result.solution.size());
+        assertEquals(10, result.lowerBound);
+        assertEquals(edges, graph.edgeSet().size());
+    }
+
+    /**
+     * An algorithm that does not finish in time still gives a feedback vertex set, before the deadline
+     *
+     * @throws FileNotFoundException
+     */
+    @Test
+    public void testTimeout() throws FileNotFoundException {
+        Multigraph<Integer, DefaultEdge> graph = this.loadGraph("instances/003.graph");
+
+        long start = System.nanoTime();
+        AnytimeResult result = new Sleeper().findFeedbackVertexSet(graph, Duration.ofMillis(200));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertFalse(result.finished);
+        assertFalse(result.optimal);
+        assertTrue(Alg.Anytime.isFeedbackVertexSet(graph, result.solution));
+        assertTrue(result.lowerBound <= 10);
+        assertTrue(result.solution.size() >= 10);
+        assertTrue(millis < 5000);
+    }
+
+    /**
+     * When the approximation is optimal it is returned straight away, and the algorithm did not finish
+     *
+     * @throws FileNotFoundException
+     */
+    @Test
+    public void testApproximationOptimal() throws FileNotFoundException {
+        Multigraph<Integer, DefaultEdge> graph = this.loadGraph("instances/simple/000.graph");
+
+        AnytimeResult result = new Sleeper().findFeedbackVertexSet(graph, Duration.ofSeconds(60));
+
+        assertTrue(result.optimal);
+        assertFalse(result.finished);
+        assertEquals(1, result.solution.size());
+        assertTrue(Alg.Anytime.isFeedbackVertexSet(graph, result.solution));
+    }
+
+    /**
+     * Never finishes, until it is interrupted
+     */
+    private static class Sleeper implements FVSAlgorithmInterface {
+
+        @Override
+        public List<Integer> findFeedbackVertexSet(ReductionSolution partialSolution) {
+            return this.findFeedbackVertexSet(partialSolution.reducedGraph);
+        }
+
+        @Override
+        public List<Integer> findFeedbackVertexSet(Multigraph<Integer, DefaultEdge> graph) {
+            try {
+                Thread.sleep(Long.MAX_VALUE);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            return null;
+        }
+
+        @Override
+        public List<Integer> findFeedbackVertexSet(IntGraph graph) {
+            return null;
+        }
+    }
+}
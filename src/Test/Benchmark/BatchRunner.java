@@ -0,0 +1,364 @@
+package Test.Benchmark;
+
+import Alg.Algorithms.BranchAndBound.BranchAndBound;
+import Alg.Algorithms.IterativeCompression.IterativeCompression;
+import Alg.Algorithms.Randomized.Randomized;
+import Alg.Algorithms.Randomized.RandomizedDensity;
+import Alg.Anytime;
+import Alg.FVSAlgorithmInterface;
+import Alg.InputReader;
+import Alg.InputWrapper;
+import Alg.Lib.Budget;
+import Alg.Lib.Metrics;
+import Alg.SolutionCache;
+import Alg.SplitSolve;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs all instances in a directory, on a number of workers at once, each with a time and a memory limit.
+ *
+ * Every worker solves its instances one after another in its own thread, each with a budget that ends at its time
+ * limit. A watchdog interrupts the worker as well when the time limit has passed, or when the heap that is still in use
+ * after garbage collection is more than the memory limit times the number of instances running; then the instance that
+ * allocated the most goes. The solvers check their budget themselves, so the worker goes on with the next instance
+ * afterwards.
+ *
+ * Every instance gives one row of a tab separated table, in the order they finish:
+ *   instance  status  k  time_ms  verified  peak_heap_mb
+ * with status solved, timeout, memory or error, and the peak of the heap used by the whole JVM while the instance ran.
+ * For an instance that is stopped, k is the size of the partial solution the solver gave back, if any.
+ *
+ * Usage: BatchRunner [options]
+ *   -d instances            Directory with the .graph files
+ *   -a iterativecompression Algorithm, one of iterativecompression, randomized, randomizeddensity and branchandbound
+ *   -seed 42                Seed for the randomized algorithms, to replay a run they logged (default random)
+ *   -tw -1                  Treewidth up to which kernels are solved by dynamic programming, -1 for never
+ *   -w 4                    Workers (default the number of processors)
+ *   -t 30                   Time limit per instance, in s
+ *   -m 0                    Memory limit per instance, in MB, 0 for none
+ *   -cache file             Keep the solutions of the kernels in the file, shared by all instances
+ *   -o results.tsv          File to write the table to, instead of standard out
+ *   -metrics file           Write the metrics of all instances together as JSON to the file, see Metrics
+ */
+public class BatchRunner {
+
+    /**
+     * How often the watchdog looks at the running instances, in ms
+     */
+    private static final long INTERVAL = 20;
+
+    private static final long MB = 1024 * 1024;
+
+    private File directory = new File("instances");
+    private String algorithm = "iterativecompression";
+    private int treewidth = -1;
+    private Long seed = null;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private long timeLimit = 30_000;
+    private long memoryLimit = 0;
+    private String cacheFile = null;
+    private String resultFile = null;
+    private String metricsFile = null;
+
+    /**
+     * An instance while it runs
+     */
+    static class Job {
+        final File file;
+        final Thread thread;
+        final long deadline;
+        final long allocatedBefore;
+        volatile String stopped = null;
+        volatile long peakHeap = 0;
+        // Set by the worker when it is done with the job, after that an interrupt would hit its next instance
+        private boolean done = false;
+
+        Job(File file, Thread thread, long deadline, long allocatedBefore) {
+            this.file = file;
+            this.thread = thread;
+            this.deadline = deadline;
+            this.allocatedBefore = allocatedBefore;
+        }
+
+        synchronized void stop(String reason) {
+            if (!this.done && this.stopped == null) {
+                this.stopped = reason;
+                this.thread.interrupt();
+            }
+        }
+
+        /**
+         * Called by the worker when it is done, no interrupt for this job can reach the worker afterwards
+         */
+        synchronized void finish() {
+            this.done = true;
+            // An interrupt that came too late for the solver must not stop the next instance
+            Thread.interrupted();
+        }
+    }
+
+    private final List<Job> running = new CopyOnWriteArrayList<>();
+    // The last instance stopped for memory, until a garbage collection has run since it was done; only the watchdog
+    // uses these
+    private Job memoryStopped = null;
+    private long collectionsSeen = 0;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private PrintWriter out;
+    private final AtomicInteger solved = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        BatchRunner runner = new BatchRunner();
+        runner.parse(args);
+        runner.run();
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Option " + args[i] + " needs a value");
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-d": this.directory = new File(value); break;
+                case "-a": this.algorithm = value.toLowerCase(Locale.ROOT); break;
+                case "-tw": this.treewidth = Integer.parseInt(value); break;
+                case "-seed": this.seed = Long.parseLong(value); break;
+                case "-w": this.workers = Integer.parseInt(value); break;
+                case "-t": this.timeLimit = (long) (Double.parseDouble(value) * 1000); break;
+                case "-m": this.memoryLimit = Long.parseLong(value) * MB; break;
+                case "-cache": this.cacheFile = value; break;
+                case "-o": this.resultFile = value; break;
+                case "-metrics": this.metricsFile = value; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private FVSAlgorithmInterface algorithm() {
+        long seed = this.seed != null ? this.seed : new SplittableRandom().nextLong();
+        if (this.algorithm.startsWith("randomized")) {
+            System.err.println("Seed " + seed);
+        }
+        switch (this.algorithm) {
+            case "iterativecompression": return new IterativeCompression();
+            case "randomized": return new Randomized(null, seed);
+            case "randomizeddensity": return new RandomizedDensity(seed);
+            case "branchandbound": return new BranchAndBound();
+            default: throw new IllegalArgumentException("Unknown algorithm " + this.algorithm);
+        }
+    }
+
+    private void run() throws IOException, InterruptedException {
+        File[] files = this.directory.listFiles((dir, name) -> name.endsWith(".graph"));
+        if (files == null) {
+            throw new FileNotFoundException(this.directory + " is not a directory");
+        }
+        Arrays.sort(files);
+        ConcurrentLinkedQueue<File> queue = new ConcurrentLinkedQueue<>(Arrays.asList(files));
+
+        Metrics metrics = this.metricsFile == null ? Metrics.get() : Metrics.enable();
+        SplitSolve alg = new SplitSolve(this.algorithm(), null, this.treewidth);
+        SolutionCache cache = this.cacheFile == null ? null : new SolutionCache(Paths.get(this.cacheFile));
+        alg.setCache(cache);
+
+        this.out = this.resultFile == null
+                ? new PrintWriter(System.out)
+                : new PrintWriter(this.resultFile, "UTF-8");
+        this.out.println("instance\tstatus\tk\ttime_ms\tverified\tpeak_heap_mb");
+        this.out.flush();
+
+        Thread watchdog = new Thread(this::watch, "batch-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+
+        Thread[] pool = new Thread[Math.min(this.workers, files.length)];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = new Thread(() -> {
+                for (File file = queue.poll(); file != null; file = queue.poll()) {
+                    this.runInstance(alg, file);
+                }
+            }, "batch-worker-" + i);
+            pool[i].start();
+        }
+        for (Thread worker: pool) {
+            worker.join();
+        }
+        watchdog.interrupt();
+
+        if (cache != null) {
+            cache.close();
+            System.err.println(cache);
+        }
+        if (this.metricsFile != null) {
+            metrics.writeJson(Paths.get(this.metricsFile));
+        }
+        if (this.resultFile != null) {
+            this.out.close();
+        } else {
+            this.out.flush();
+        }
+        System.err.println("Solved " + this.solved.get() + " of " + files.length + " instances");
+    }
+
+    /**
+     * Solves one instance in the current thread and writes its row
+     */
+    @SuppressWarnings("unchecked")
+    private void runInstance(FVSAlgorithmInterface alg, File file) {
+        long start = System.nanoTime();
+        Job job = new Job(file, Thread.currentThread(), start + this.timeLimit * 1_000_000, this.allocated());
+        this.running.add(job);
+
+        String status;
+        List<Integer> solution = null;
+        boolean verified = false;
+        Multigraph<Integer, DefaultEdge> graph = null;
+        try {
+            InputWrapper input = InputReader.loopSafeReadGraph(file);
+            graph = (Multigraph<Integer, DefaultEdge>) input.reductionSolution.reducedGraph.clone();
+            solution = new Budget(Duration.ofMillis(this.timeLimit)).call(
+                    () -> alg.findFeedbackVertexSet(input.reductionSolution));
+            // The vertices with a loop are in the solution already, and are not in the graph
+            verified = Anytime.isFeedbackVertexSet(graph, solution);
+            status = "solved";
+            this.solved.incrementAndGet();
+        } catch (OutOfMemoryError ex) {
+            status = "memory";
+        } catch (IOException | RuntimeException ex) {
+            Budget.Cancelled cancelled = Budget.cancelledCause(ex);
+            if (cancelled != null && job.stopped == null) {
+                job.stopped = "timeout";
+            }
+            status = job.stopped != null ? job.stopped : "error";
+            if (job.stopped == null) {
+                System.err.println(file.getName() + ": " + ex);
+            } else if (cancelled != null && cancelled.partial != null) {
+                solution = cancelled.partial;
+                verified = Anytime.isFeedbackVertexSet(graph, solution);
+            }
+        } finally {
+            job.finish();
+            this.running.remove(job);
+        }
+        long time = (System.nanoTime() - start) / 1_000_000;
+
+        synchronized (this.out) {
+            this.out.println(String.format(Locale.ROOT, "%s\t%s\t%s\t%d\t%b\t%.1f",
+                    file.getName(), status, solution == null ? "-" : Integer.toString(solution.size()), time,
+                    verified, (double) Math.max(job.peakHeap, this.heapUsed()) / MB));
+            this.out.flush();
+        }
+    }
+
+    /**
+     * Stops the instances that run out of time or memory, and keeps track of the peak heap
+     */
+    private void watch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            long now = System.nanoTime();
+            long heap = this.heapUsed();
+            for (Job job: this.running) {
+                job.peakHeap = Math.max(job.peakHeap, heap);
+                if (now > job.deadline) {
+                    job.stop("timeout");
+                }
+            }
+
+            // Only one instance at a time is stopped for memory. Its memory is only free after it is done, and the
+            // live heap only shows that after the next garbage collection
+            if (this.memoryStopped != null) {
+                if (this.running.contains(this.memoryStopped)) {
+                    this.collectionsSeen = this.collections();
+                } else if (this.collections() > this.collectionsSeen) {
+                    this.memoryStopped = null;
+                }
+            }
+            if (this.memoryLimit > 0
+                    && this.memoryStopped == null
+                    && this.liveHeap() > this.memoryLimit * this.running.size()) {
+                Job largest = null;
+                long most = -1;
+                for (Job job: this.running) {
+                    long allocated = this.allocated(job.thread) - job.allocatedBefore;
+                    if (allocated > most) {
+                        largest = job;
+                        most = allocated;
+                    }
+                }
+                if (largest != null) {
+                    largest.stop("memory");
+                    this.memoryStopped = largest;
+                    this.collectionsSeen = this.collections();
+                }
+            }
+
+            try {
+                Thread.sleep(INTERVAL);
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+
+    private long heapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * The heap in use after the last garbage collection, the heap used right now counts garbage too
+     */
+    private long liveHeap() {
+        long live = 0;
+        for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null) {
+                live += pool.getCollectionUsage().getUsed();
+            }
+        }
+        return live;
+    }
+
+    /**
+     * The number of garbage collections so far
+     */
+    private long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector: ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private long allocated() {
+        return this.allocated(Thread.currentThread());
+    }
+
+    /**
+     * The bytes the thread allocated so far, or 0 when the JVM does not count them
+     */
+    private long allocated(Thread thread) {
+        if (this.threads instanceof com.sun.management.ThreadMXBean) {
+            return Math.max(0, ((com.sun.management.ThreadMXBean) this.threads).getThreadAllocatedBytes(thread.getId()));
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,11 @@
+package Test.Benchmark;
+
+/**
+ * Run a benchmark for a algorithm. For all the example graph, reports the k. And calculates the time it takes to do so
+ */
+public class BranchAndBound extends Benchmark{
+
+    public BranchAndBound() {
+        super(new Alg.Algorithms.BranchAndBound.BranchAndBound());
+    }
+}
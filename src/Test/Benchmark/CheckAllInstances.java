@@ -6,20 +6,18 @@
 
 package Test.Benchmark;
 
-import Alg.FVSAlgorithmInterface;
+import Alg.AnytimeResult;
+import Alg.SolutionCache;
 import Alg.SplitSolve;
 import Test.Benchmark.Benchmark.Instance;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import javax.swing.SwingWorker;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.Multigraph;
 
@@ -29,7 +27,11 @@ import org.jgrapht.graph.Multigraph;
  */
 public class CheckAllInstances
 {
-    public static void main(String[] args) throws FileNotFoundException
+    /**
+     * @param args Optionally a file to keep the solutions of the kernels in, between the instances and between runs
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException
     {
         int n = 100;
         Set<Integer> solved = new HashSet(Arrays.asList(new Integer[] {
@@ -64,52 +66,53 @@ public class CheckAllInstances
             if(!solved.contains(n))
                 instances[i++-1] = new Instance(String.format("%03d", n)+".graph",-1);
         
-        benchmark(instances);
+        if(args.length > 0)
+        {
+            try(SolutionCache cache = new SolutionCache(Paths.get(args[0])))
+            {
+                benchmark(instances, cache);
+                System.out.println(cache);
+            }
+        }
+        else
+            benchmark(instances, null);
     }
     
     public static void benchmark(Instance[] instances) throws FileNotFoundException
     {
-        FVSAlgorithmInterface alg = new SplitSolve(new Alg.Algorithms.IterativeCompression.IterativeCompression());
+        benchmark(instances, null);
+    }
+    
+    public static void benchmark(Instance[] instances, SolutionCache cache) throws FileNotFoundException
+    {
+        SplitSolve alg = new SplitSolve(new Alg.Algorithms.IterativeCompression.IterativeCompression());
+        alg.setCache(cache);
         
         for (Benchmark.Instance i: instances) {
             Multigraph<Integer, DefaultEdge> graph = Benchmark.loadGraph(i.filename);
-
-            SwingWorker worker = new SwingWorker(){
-                @Override
-                protected Object doInBackground() throws Exception
-                {
-                    long startTime = System.nanoTime();
-                    List<Integer> solution = alg.findFeedbackVertexSet(graph);
-                    long endTime = System.nanoTime();
-                    
-                    System.out.println("Graph " + i.filename + " Time:" + (endTime - startTime) / 1_000_000 + "ms");
-                    return solution;
-                }
-            };
             
             System.out.println("--- "+i.filename+" ---");
-            worker.execute();
+            long startTime = System.nanoTime();
+            AnytimeResult result = alg.findFeedbackVertexSet(graph, Duration.ofSeconds(30));
+            long endTime = System.nanoTime();
+            List<Integer> solution = result.solution;
             
-            try
+            if(!result.finished)
             {
-                List<Integer> solution = (List<Integer>) worker.get(30, TimeUnit.SECONDS);
-                if(i.k <0){
-                    System.out.println("NEW SOLUTION! found a solution with k="+solution.size());
-                }
-                else if (solution.size() != i.k){
-                    System.out.println("MISTAKE! Required k:" + i.k + " Found k:" + solution.size());
-                }
-
-                if (!Benchmark.verifySolution(i.filename, solution)) {
-                    System.out.println("ERROR, THIS IS NOT A FEEDBACK VERTEX SET!");
-                }
+                System.out.println(i.filename+ " timed out, best known: "+result);
+                continue;
             }
-            catch(InterruptedException | ExecutionException | TimeoutException ex)
-            {
-                if(worker.cancel(true))
-                    System.out.println(i.filename+ " timed out");
-                else
-                    System.out.println(i.filename+ " worker not canceling...");
+            
+            System.out.println("Graph " + i.filename + " Time:" + (endTime - startTime) / 1_000_000 + "ms");
+            if(i.k <0){
+                System.out.println("NEW SOLUTION! found a solution with k="+solution.size());
+            }
+            else if (solution.size() != i.k){
+                System.out.println("MISTAKE! Required k:" + i.k + " Found k:" + solution.size());
+            }
+
+            if (!Benchmark.verifySolution(i.filename, solution)) {
+                System.out.println("ERROR, THIS IS NOT A FEEDBACK VERTEX SET!");
             }
         }
     }
@@ -0,0 +1,424 @@
+package Test.Benchmark;
+
+import Alg.Algorithms.BranchAndBound.BranchAndBound;
+import Alg.Algorithms.IterativeCompression.IterativeCompression;
+import Alg.Algorithms.Randomized.Randomized;
+import Alg.Algorithms.Randomized.RandomizedDensity;
+import Alg.InputReader;
+import Alg.InputWrapper;
+import Alg.Kernelization.Approximation;
+import Alg.Kernelization.Kernelization;
+import Alg.Kernelization.Splitter;
+import Alg.SplitSolve;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Benchmarks the stages of the solver separately, in the way JMH does it: every benchmark and instance runs in its
+ * own forked JVM, first some warmup iterations and then the measured ones. An iteration repeats the operation for at
+ * least the iteration time, and only the operation itself is timed, not the preparation of its input. The score is
+ * the average time per operation with a 99.9% confidence interval over all measured iterations.
+ *
+ * The results are printed as a table, and can be written as JSON or CSV to diff them between builds.
+ *
+ * Usage: StageBenchmark [options]
+ *   -b parse,split,...   Benchmarks to run, from parse, split, kernelot, approximation, iterativecompression,
+ *                        randomized, randomizeddensity and branchandbound (default all)
+ *   -p 096.graph,...     Instances in the instances directory to run them on
+ *   -wi 3                Warmup iterations
+ *   -i 5                 Measured iterations
+ *   -r 1000              Minimum time of one iteration, in ms
+ *   -f 1                 Forks per benchmark, 0 to run in this JVM
+ *   -seed 42             Seed for the randomized algorithms, every operation replays the same trials
+ *   -rf json             Result format, json or csv
+ *   -rff file            File to write the results to
+ */
+public class StageBenchmark {
+
+    /**
+     * A representative subset of the instances, that every stage (even the randomized algorithm) handles in seconds
+     */
+    private static final String[] INSTANCES = {"096.graph", "099.graph", "050.graph", "062.graph", "083.graph"};
+
+    /**
+     * Sink for the results of the operations, such that the JIT can not remove them
+     */
+    private static volatile int sink;
+
+    /**
+     * One stage of the solver. The input is read once per fork, the argument of the operation is prepared again for
+     * every operation, since most stages change their input.
+     */
+    enum Stage {
+        PARSE {
+            Object prepare(File file, InputWrapper input) {
+                return file;
+            }
+
+            int run(Object argument, long seed) throws IOException {
+                return InputReader.loopSafeReadGraph((File) argument).reductionSolution.reducedGraph.vertexSet().size();
+            }
+        },
+        SPLIT {
+            int run(Object argument, long seed) {
+                return Splitter.split(graph(argument)).size();
+            }
+        },
+        KERNELOT {
+            int run(Object argument, long seed) {
+                return Kernelization.kernelot(graph(argument), false).verticesToRemoved.size();
+            }
+        },
+        APPROXIMATION {
+            Object prepare(File file, InputWrapper input) {
+                return Kernelization.kernelot(input.reductionSolution.reducedGraph, true).reducedGraph;
+            }
+
+            int run(Object argument, long seed) {
+                return Approximation.determineFVS2(graph(argument), new Integer[0], 0).totalFVSweight;
+            }
+        },
+        ITERATIVECOMPRESSION {
+            int run(Object argument, long seed) {
+                return new SplitSolve(new IterativeCompression()).findFeedbackVertexSet(graph(argument)).size();
+            }
+        },
+        RANDOMIZED {
+            int run(Object argument, long seed) {
+                return new SplitSolve(new Randomized(null, seed)).findFeedbackVertexSet(graph(argument)).size();
+            }
+        },
+        RANDOMIZEDDENSITY {
+            int run(Object argument, long seed) {
+                return new SplitSolve(new RandomizedDensity(seed)).findFeedbackVertexSet(graph(argument)).size();
+            }
+        },
+        BRANCHANDBOUND {
+            int run(Object argument, long seed) {
+                return new SplitSolve(new BranchAndBound()).findFeedbackVertexSet(graph(argument)).size();
+            }
+        };
+
+        /**
+         * The argument for one operation, by default a copy of the graph that was read
+         */
+        Object prepare(File file, InputWrapper input) {
+            return input.reductionSolution.reducedGraph.clone();
+        }
+
+        abstract int run(Object argument, long seed) throws IOException;
+
+        String id() {
+            return this.name().toLowerCase(Locale.ROOT);
+        }
+
+        static Stage of(String id) {
+            return Stage.valueOf(id.toUpperCase(Locale.ROOT));
+        }
+
+        @SuppressWarnings("unchecked")
+        static Multigraph<Integer, DefaultEdge> graph(Object argument) {
+            return (Multigraph<Integer, DefaultEdge>) argument;
+        }
+    }
+
+    /**
+     * The measured iterations of one benchmark on one instance, over all forks
+     */
+    static class Result {
+        final Stage stage;
+        final String instance;
+        final List<double[]> forks = new ArrayList<>();
+
+        Result(Stage stage, String instance) {
+            this.stage = stage;
+            this.instance = instance;
+        }
+
+        double[] samples() {
+            return this.forks.stream().flatMapToDouble(Arrays::stream).toArray();
+        }
+
+        double score() {
+            return Arrays.stream(this.samples()).average().orElse(Double.NaN);
+        }
+
+        /**
+         * Half the width of the 99.9% confidence interval of the score
+         */
+        double error() {
+            double[] samples = this.samples();
+            int n = samples.length;
+            if (n < 2) return Double.NaN;
+            double mean = this.score();
+            double squares = 0;
+            for (double sample: samples) {
+                squares += (sample - mean) * (sample - mean);
+            }
+            return studentT(n - 1) * Math.sqrt(squares / (n - 1)) / Math.sqrt(n);
+        }
+    }
+
+    private List<Stage> stages = Arrays.asList(Stage.values());
+    private List<String> instances = Arrays.asList(INSTANCES);
+    private int warmupIterations = 3;
+    private int iterations = 5;
+    private long iterationTime = 1000;
+    private int forks = 1;
+    private long seed = 42;
+    private String resultFormat = null;
+    private String resultFile = null;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--fork")) {
+            fork(args);
+            return;
+        }
+
+        StageBenchmark benchmark = new StageBenchmark();
+        benchmark.parse(args);
+        List<Result> results = benchmark.runAll();
+
+        benchmark.printTable(results);
+        if (benchmark.resultFormat != null || benchmark.resultFile != null) {
+            benchmark.write(results);
+        }
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Option " + args[i] + " needs a value");
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-b":
+                    this.stages = new ArrayList<>();
+                    for (String id: value.split(",")) this.stages.add(Stage.of(id));
+                    break;
+                case "-p": this.instances = Arrays.asList(value.split(",")); break;
+                case "-wi": this.warmupIterations = Integer.parseInt(value); break;
+                case "-i": this.iterations = Integer.parseInt(value); break;
+                case "-r": this.iterationTime = Long.parseLong(value); break;
+                case "-f": this.forks = Integer.parseInt(value); break;
+                case "-seed": this.seed = Long.parseLong(value); break;
+                case "-rf": this.resultFormat = value.toLowerCase(Locale.ROOT); break;
+                case "-rff": this.resultFile = value; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (this.resultFormat == null && this.resultFile != null) {
+            this.resultFormat = this.resultFile.endsWith(".csv") ? "csv" : "json";
+        }
+    }
+
+    private List<Result> runAll() throws Exception {
+        List<Result> results = new ArrayList<>();
+        for (Stage stage: this.stages) {
+            for (String instance: this.instances) {
+                Result result = new Result(stage, instance);
+                if (this.forks == 0) {
+                    result.forks.add(measure(stage, instance, this.warmupIterations, this.iterations,
+                            this.iterationTime, this.seed));
+                }
+                for (int f = 0; f < this.forks; f++) {
+                    System.out.println("# " + stage.id() + " " + instance + ", fork " + (f + 1) + " of " + this.forks);
+                    result.forks.add(this.runFork(stage, instance));
+                }
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs one fork in a new JVM with the same class path, and collects the measured iterations it reports
+     */
+    private double[] runFork(Stage stage, String instance) throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-Xss64m", "-cp", System.getProperty("java.class.path"),
+                StageBenchmark.class.getName(), "--fork", stage.id(), instance,
+                Integer.toString(this.warmupIterations), Integer.toString(this.iterations),
+                Long.toString(this.iterationTime), Long.toString(this.seed));
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+
+        double[] samples = new double[this.iterations];
+        int measured = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("sample ")) {
+                    samples[measured++] = Double.parseDouble(line.substring(7));
+                } else {
+                    System.out.println(line);
+                }
+            }
+        }
+        if (process.waitFor() != 0 || measured != this.iterations) {
+            throw new IllegalStateException("Fork of " + stage.id() + " on " + instance + " failed");
+        }
+        return samples;
+    }
+
+    /**
+     * Entry point of a forked JVM: --fork stage instance warmupIterations iterations iterationTime seed
+     */
+    private static void fork(String[] args) throws IOException {
+        double[] samples = measure(Stage.of(args[1]), args[2], Integer.parseInt(args[3]), Integer.parseInt(args[4]),
+                Long.parseLong(args[5]), Long.parseLong(args[6]));
+        for (double sample: samples) {
+            System.out.println("sample " + sample);
+        }
+    }
+
+    /**
+     * Runs the warmup and measured iterations of one benchmark in this JVM
+     *
+     * @return The average time per operation of every measured iteration, in ms
+     */
+    private static double[] measure(Stage stage, String instance, int warmupIterations, int iterations,
+                                    long iterationTime, long seed) throws IOException {
+        File file = new File("instances/" + instance);
+        InputWrapper input = InputReader.loopSafeReadGraph(file);
+
+        for (int i = 0; i < warmupIterations; i++) {
+            double time = iteration(stage, file, input, iterationTime, seed);
+            System.out.println(String.format(Locale.ROOT, "Warmup iteration %d: %.3f ms/op", i + 1, time));
+        }
+        double[] samples = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            samples[i] = iteration(stage, file, input, iterationTime, seed);
+            System.out.println(String.format(Locale.ROOT, "Iteration %d: %.3f ms/op", i + 1, samples[i]));
+        }
+        return samples;
+    }
+
+    /**
+     * Repeats the operation until the iteration time has passed, and returns the average time per operation in ms
+     */
+    private static double iteration(Stage stage, File file, InputWrapper input, long iterationTime, long seed)
+            throws IOException {
+        long limit = iterationTime * 1_000_000;
+        long measured = 0;
+        long operations = 0;
+        while (measured < limit) {
+            Object argument = stage.prepare(file, input);
+            long start = System.nanoTime();
+            sink += stage.run(argument, seed);
+            measured += System.nanoTime() - start;
+            operations++;
+        }
+        return measured / 1e6 / operations;
+    }
+
+    private void printTable(List<Result> results) {
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT, "%-22s %-12s %5s %12s    %10s  %s",
+                "Benchmark", "(instance)", "Cnt", "Score", "Error", "Units"));
+        for (Result result: results) {
+            System.out.println(String.format(Locale.ROOT, "%-22s %-12s %5d %12.3f +- %10.3f  ms/op",
+                    result.stage.id(), result.instance, result.samples().length, result.score(), result.error()));
+        }
+    }
+
+    private void write(List<Result> results) throws IOException {
+        String file = this.resultFile != null ? this.resultFile : "stage-benchmark." + this.resultFormat;
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            if (this.resultFormat.equals("csv")) {
+                this.writeCsv(out, results);
+            } else if (this.resultFormat.equals("json")) {
+                this.writeJson(out, results);
+            } else {
+                throw new IllegalArgumentException("Unknown result format " + this.resultFormat);
+            }
+        }
+        System.out.println("Results written to " + file);
+    }
+
+    /**
+     * Same columns as the CSV output of JMH
+     */
+    private void writeCsv(PrintWriter out, List<Result> results) {
+        out.println("\"Benchmark\",\"Mode\",\"Threads\",\"Samples\",\"Score\",\"Score Error (99.9%)\",\"Unit\",\"Param: instance\"");
+        for (Result result: results) {
+            out.println(String.format(Locale.ROOT, "\"%s\",\"avgt\",1,%d,%f,%f,\"ms/op\",%s",
+                    result.stage.id(), result.samples().length, result.score(), result.error(), result.instance));
+        }
+    }
+
+    /**
+     * Same structure as the JSON output of JMH, including the raw data of every fork
+     */
+    private void writeJson(PrintWriter out, List<Result> results) {
+        out.println("[");
+        for (int r = 0; r < results.size(); r++) {
+            Result result = results.get(r);
+            StringBuilder raw = new StringBuilder();
+            for (int f = 0; f < result.forks.size(); f++) {
+                if (f > 0) raw.append(", ");
+                raw.append('[');
+                double[] samples = result.forks.get(f);
+                for (int i = 0; i < samples.length; i++) {
+                    if (i > 0) raw.append(", ");
+                    raw.append(number(samples[i]));
+                }
+                raw.append(']');
+            }
+
+            out.println("    {");
+            out.println("        \"benchmark\" : \"" + result.stage.id() + "\",");
+            out.println("        \"mode\" : \"avgt\",");
+            out.println("        \"threads\" : 1,");
+            out.println("        \"forks\" : " + this.forks + ",");
+            out.println("        \"warmupIterations\" : " + this.warmupIterations + ",");
+            out.println("        \"measurementIterations\" : " + this.iterations + ",");
+            out.println("        \"params\" : {");
+            out.println("            \"instance\" : \"" + result.instance + "\",");
+            out.println("            \"seed\" : \"" + this.seed + "\"");
+            out.println("        },");
+            out.println("        \"primaryMetric\" : {");
+            out.println("            \"score\" : " + number(result.score()) + ",");
+            out.println("            \"scoreError\" : " + number(result.error()) + ",");
+            out.println("            \"scoreUnit\" : \"ms/op\",");
+            out.println("            \"rawData\" : [" + raw + "]");
+            out.println("        }");
+            out.println("    }" + (r + 1 < results.size() ? "," : ""));
+        }
+        out.println("]");
+    }
+
+    /**
+     * JSON has no NaN, so a missing value is written as the string JMH uses for it
+     */
+    private static String number(double value) {
+        return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%f", value);
+    }
+
+    /**
+     * Two sided 99.9% quantile of the Student t distribution with the given degrees of freedom
+     */
+    private static double studentT(int degreesOfFreedom) {
+        final double[] table = {
+                636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+                4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+                3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646
+        };
+        if (degreesOfFreedom <= table.length) return table[degreesOfFreedom - 1];
+        // Between the rows of the table, take the value of the row below, which is a bit too wide but never too narrow
+        if (degreesOfFreedom <= 40) return 3.646;
+        if (degreesOfFreedom <= 60) return 3.551;
+        if (degreesOfFreedom <= 120) return 3.460;
+        return 3.373;
+    }
+}
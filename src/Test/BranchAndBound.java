@@ -0,0 +1,70 @@
+package Test;
+
+import Alg.SplitSolve;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for the branch and bound algorithm
+ */
+public class BranchAndBound extends FVSTest {
+
+    public BranchAndBound() {
+        super(new SplitSolve(new Alg.Algorithms.BranchAndBound.BranchAndBound()));
+    }
+
+    /**
+     * The solutions of the instances are as small as those of iterative compression
+     *
+     * @throws FileNotFoundException
+     */
+    @Test
+    public void testInstances() throws FileNotFoundException {
+        String[] filenames = {"instances/096.graph", "instances/050.graph", "instances/020.graph", "instances/083.graph"};
+        int[] ks = {6, 7, 8, 7};
+        for (int i = 0; i < filenames.length; i++) {
+            Multigraph<Integer, DefaultEdge> graph = this.loadGraph(filenames[i]);
+            List<Integer> solution = this.alg.findFeedbackVertexSet((Multigraph<Integer, DefaultEdge>) graph.clone());
+
+            assertEquals(filenames[i], ks[i], solution.size());
+            assertTrue(filenames[i], Alg.Anytime.isFeedbackVertexSet(graph, solution));
+        }
+    }
+
+    /**
+     * On random graphs the solutions are as small as those of iterative compression
+     */
+    @Test
+    public void testRandomGraphs() {
+        Random random = new Random(16);
+        for (int t = 0; t < 100; t++) {
+            int n = 5 + random.nextInt(15);
+            Multigraph<Integer, DefaultEdge> graph = new Multigraph<>(DefaultEdge.class);
+            for (int v = 0; v < n; v++) {
+                graph.addVertex(v);
+            }
+            int m = n + random.nextInt(2 * n);
+            for (int e = 0; e < m; e++) {
+                int a = random.nextInt(n);
+                int b = random.nextInt(n);
+                if (a != b) graph.addEdge(a, b);
+            }
+
+            List<Integer> solution = new Alg.Algorithms.BranchAndBound.BranchAndBound()
+                    .findFeedbackVertexSet((Multigraph<Integer, DefaultEdge>) graph.clone());
+            List<Integer> expected = new SplitSolve(new Alg.Algorithms.IterativeCompression.IterativeCompression())
+                    .findFeedbackVertexSet((Multigraph<Integer, DefaultEdge>) graph.clone());
+
+            assertTrue(Alg.Anytime.isFeedbackVertexSet(graph, solution));
+            assertEquals(expected.size(), solution.size());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package Test;
+
+import Alg.InputWrapper;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Unittests for reading in graphs
+ */
+public class InputReader {
+
+    /**
+     * Reading through the memory mapped file, through a stream, and through a Scanner must give the same graphs
+     */
+    @Test
+    public void testSameAsScanner() throws IOException {
+        File[] files = new File("instances/simple").listFiles((dir, name) -> name.endsWith(".graph"));
+        for (File file: files) {
+            InputWrapper scanned = Alg.InputReader.loopSafeReadGraph(new Scanner(file));
+            InputWrapper mapped = Alg.InputReader.loopSafeReadGraph(file);
+            InputWrapper streamed;
+            try (FileInputStream stream = new FileInputStream(file)) {
+                streamed = Alg.InputReader.loopSafeReadGraph(stream);
+            }
+
+            this.assertSameInput(file.getName(), scanned, mapped);
+            this.assertSameInput(file.getName(), scanned, streamed);
+        }
+    }
+
+    /**
+     * Only names that are the same text are the same vertex, and other names than numbers are allowed
+     */
+    @Test
+    public void testNames() throws IOException {
+        InputWrapper input = this.read("7 007\n007 a\na 7\n# 7 b\n");
+        Multigraph<Integer, DefaultEdge> graph = input.reductionSolution.reducedGraph;
+
+        assertEquals(3, graph.vertexSet().size());
+        assertEquals(3, graph.edgeSet().size());
+        assertEquals("7", input.nameMapping.get(0));
+        assertEquals("007", input.nameMapping.get(1));
+        assertEquals("a", input.nameMapping.get(2));
+    }
+
+    /**
+     * Vertices with a self-loop are moved to the solution once, a last line without a line break is still read
+     */
+    @Test
+    public void testSelfLoops() throws IOException {
+        InputWrapper input = this.read("1 2\r\n2 2\n2 3\n3 1\n2 2\n3 4");
+        Multigraph<Integer, DefaultEdge> graph = input.reductionSolution.reducedGraph;
+
+        assertEquals(1, input.reductionSolution.verticesToRemoved.size());
+        assertEquals("2", input.nameMapping.get(input.reductionSolution.verticesToRemoved.get(0)));
+        assertFalse(graph.containsVertex(1));
+        assertEquals(3, graph.vertexSet().size());
+        assertEquals(2, graph.edgeSet().size());
+    }
+
+    private InputWrapper read(String text) throws IOException {
+        return Alg.InputReader.loopSafeReadGraph(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void assertSameInput(String name, InputWrapper expected, InputWrapper actual) {
+        Multigraph<Integer, DefaultEdge> expectedGraph = expected.reductionSolution.reducedGraph;
+        Multigraph<Integer, DefaultEdge> actualGraph = actual.reductionSolution.reducedGraph;
+
+        assertEquals(name, expected.nameMapping, actual.nameMapping);
+        assertEquals(name, expectedGraph.vertexSet(), actualGraph.vertexSet());
+        assertEquals(name, this.edges(expectedGraph), this.edges(actualGraph));
+        assertEquals(name, expectedGraph.edgeSet().size(), actualGraph.edgeSet().size());
+        assertEquals(name, new HashSet<>(expected.reductionSolution.verticesToRemoved),
+                new HashSet<>(actual.reductionSolution.verticesToRemoved));
+    }
+
+    private HashSet<String> edges(Multigraph<Integer, DefaultEdge> graph) {
+        HashSet<String> edges = new HashSet<>();
+        for (DefaultEdge e: graph.edgeSet()) {
+            int a = graph.getEdgeSource(e);
+            int b = graph.getEdgeTarget(e);
+            edges.add(Math.min(a, b) + "-" + Math.max(a, b));
+        }
+        return edges;
+    }
+}
@@ -1,5 +1,14 @@
 package Test;
 
+import Alg.SplitSolve;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
 /**
  * Test for randomized algorithms
  */
@@ -13,4 +22,27 @@ public class IterativeCompression extends FVSTest {
     public IterativeCompression() {
         super(new Alg.Algorithms.IterativeCompression.IterativeCompression());
     }
-}
\ No newline at end of file
+
+    /**
+     * Trying the subsets of the compression steps in parallel must give the same solution as trying them in order
+     *
+     * @throws FileNotFoundException
+     */
+    @Test
+    public void testParallelCompression() throws FileNotFoundException {
+        int parallelFromSize = Alg.Algorithms.IterativeCompression.IterativeCompression.parallelFromSize;
+        Alg.Algorithms.IterativeCompression.IterativeCompression.parallelFromSize = 2;
+        try {
+            for (String filename : new String[]{"instances/096.graph", "instances/083.graph", "instances/091.graph"}) {
+                List<Integer> sequential = new SplitSolve(this.alg).findFeedbackVertexSet(this.loadGraph(filename));
+                List<Integer> parallel = new SplitSolve(
+                        new Alg.Algorithms.IterativeCompression.IterativeCompression(new ForkJoinPool(3))
+                ).findFeedbackVertexSet(this.loadGraph(filename));
+
+                assertEquals(filename, sequential, parallel);
+            }
+        } finally {
+            Alg.Algorithms.IterativeCompression.IterativeCompression.parallelFromSize = parallelFromSize;
+        }
+    }
+}
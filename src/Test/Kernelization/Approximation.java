@@ -0,0 +1,93 @@
+package Test.Kernelization;
+
+import Alg.InputReader;
+import Alg.Kernelization.ReductionSolution;
+import Alg.Lib.CycleDetector;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unittests for the 2-approximation
+ */
+public class Approximation {
+
+    /**
+     * Removing the approximation leaves a forest, and it weighs at most twice the optimum
+     */
+    @Test
+    public void testTwoApproximation() {
+        Random random = new Random(7);
+        for (int t = 0; t < 200; t++) {
+            int n = 3 + random.nextInt(7);
+            Multigraph<Integer, DefaultEdge> graph = new Multigraph<>(DefaultEdge.class);
+            for (int v = 0; v < n; v++) {
+                graph.addVertex(v);
+            }
+            int m = n + random.nextInt(2 * n);
+            for (int e = 0; e < m; e++) {
+                int a = random.nextInt(n);
+                int b = random.nextInt(n);
+                if (a != b) graph.addEdge(a, b);
+            }
+            Integer heavy = random.nextInt(n);
+            int weight = 1 + random.nextInt(4);
+
+            ReductionSolution solution = Alg.Kernelization.Approximation.determineFVS2(graph, new Integer[]{heavy}, weight);
+
+            assertFalse(hasCycleWithout(graph, solution.verticesToRemoved));
+            assertTrue(solution.totalFVSweight <= 2 * optimum(graph, heavy, weight));
+        }
+    }
+
+    /**
+     * The approximation of the instances is a feedback vertex set
+     */
+    @Test
+    public void testInstances() throws FileNotFoundException {
+        for (String filename: new String[]{"instances/003.graph", "instances/031.graph", "instances/085.graph"}) {
+            Multigraph<Integer, DefaultEdge> graph = InputReader.loopSafeReadGraph(new Scanner(new File(filename))).reductionSolution.reducedGraph;
+
+            ReductionSolution solution = Alg.Kernelization.Approximation.determineFVS2(graph, new Integer[0], 1);
+
+            assertFalse(hasCycleWithout(graph, solution.verticesToRemoved));
+            assertTrue(solution.totalFVSweight == solution.verticesToRemoved.size());
+        }
+    }
+
+    private static boolean hasCycleWithout(Multigraph<Integer, DefaultEdge> graph, List<Integer> removed) {
+        Multigraph<Integer, DefaultEdge> rest = (Multigraph<Integer, DefaultEdge>) graph.clone();
+        rest.removeAllVertices(removed);
+        return CycleDetector.hasCycle(rest);
+    }
+
+    /**
+     * The weight of a lightest FVS, by trying all subsets
+     */
+    private static int optimum(Multigraph<Integer, DefaultEdge> graph, Integer heavy, int weight) {
+        int n = graph.vertexSet().size();
+        int best = Integer.MAX_VALUE;
+        for (int subset = 0; subset < (1 << n); subset++) {
+            List<Integer> removed = new ArrayList<>();
+            int total = 0;
+            for (int v = 0; v < n; v++) {
+                if ((subset & (1 << v)) != 0) {
+                    removed.add(v);
+                    total += v == heavy ? weight : 1;
+                }
+            }
+            if (total < best && !hasCycleWithout(graph, removed)) best = total;
+        }
+        return best;
+    }
+}
@@ -1,15 +1,26 @@
 package Test.Kernelization;
 
 import Alg.InputReader;
+import Alg.Kernelization.Approximation;
 import Alg.Kernelization.ReductionSolution;
+import Alg.Kernelization.RuleCounters;
+import Alg.Kernelization.StronglyForcedVertexRule;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.Multigraph;
 import org.junit.Test;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
@@ -76,4 +87,111 @@ public class Kernelization {
 
         assertTrue(!solution.stillPossible);
     }
+
+    /**
+     * Every vertex that is removed without being in the solution is counted by rule 0, 1 or 2
+     #
+     #   0
+     #  / \
+     # 1   3
+     #  \
+     #   4
+     */
+    @Test
+    public void testRuleCounters() throws FileNotFoundException {
+        Multigraph<Integer, DefaultEdge> graph = this.loadGraph("instances/simple/001.graph");
+        graph.removeVertex(2);
+
+        ReductionSolution solution = Alg.Kernelization.Kernelization.kernelize(graph, 0);
+        RuleCounters counters = solution.ruleCounters;
+
+        assertEquals(4, counters.get(RuleCounters.RULE0) + counters.get(RuleCounters.RULE1) + counters.get(RuleCounters.RULE2));
+        assertEquals(0, counters.get(RuleCounters.RULE3));
+    }
+
+    /**
+     * Three parallel edges are reduced to two, after which one of the two vertices is taken into the solution
+     */
+    @Test
+    public void testMultiEdges() {
+        Multigraph<Integer, DefaultEdge> graph = new Multigraph<>(DefaultEdge.class);
+        graph.addVertex(0);
+        graph.addVertex(1);
+        graph.addEdge(0, 1);
+        graph.addEdge(0, 1);
+        graph.addEdge(0, 1);
+
+        ReductionSolution solution = Alg.Kernelization.Kernelization.kernelot(graph, true);
+
+        assertEquals(1, solution.verticesToRemoved.size());
+        assertEquals(0, solution.reducedGraph.vertexSet().size());
+        assertEquals(1, solution.ruleCounters.get(RuleCounters.RULE4));
+        assertEquals(1, solution.ruleCounters.get(RuleCounters.RULE3));
+        assertEquals(3, graph.edgeSet().size());
+    }
+
+    /**
+     * The importance of all vertices at once is the same as an approximation per vertex, also when spread over a pool
+     */
+    @Test
+    public void testImportanceApprox() throws FileNotFoundException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (String filename: new String[]{"instances/simple/003.graph", "instances/020.graph", "instances/083.graph"}) {
+            Multigraph<Integer, DefaultEdge> graph = InputReader.loopSafeReadGraph(new Scanner(new File(filename))).reductionSolution.reducedGraph;
+
+            HashMap<Integer, Integer> expected = new HashMap<>();
+            for (Integer v: graph.vertexSet()) {
+                expected.put(v, Approximation.determineFVS2(graph, new Integer[]{v}, Integer.MAX_VALUE).totalFVSweight);
+            }
+
+            assertEquals(expected, Alg.Kernelization.Kernelization.getImportanceApprox(graph));
+            assertEquals(expected, Alg.Kernelization.Kernelization.getImportanceApprox(graph, pool));
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * Applying the Strongly Forced Vertex Rule on a pool gives the same kernel as applying it in this thread
+     */
+    @Test
+    public void testForcedVerticesOnPool() throws FileNotFoundException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (String filename: new String[]{"instances/031.graph", "instances/085.graph"}) {
+            Multigraph<Integer, DefaultEdge> graph = InputReader.loopSafeReadGraph(new Scanner(new File(filename))).reductionSolution.reducedGraph;
+
+            ReductionSolution expected = Alg.Kernelization.Kernelization.kernelot(graph, true);
+            ReductionSolution solution = Alg.Kernelization.Kernelization.kernelot(graph, true, pool);
+
+            assertEquals(new HashSet<>(expected.verticesToRemoved), new HashSet<>(solution.verticesToRemoved));
+            assertEquals(expected.reducedGraph.vertexSet(), solution.reducedGraph.vertexSet());
+            assertEquals(expected.ruleCounters.get(RuleCounters.SFV), solution.ruleCounters.get(RuleCounters.SFV));
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * The centre of three triangles is in every FVS of size 1, the other vertices are not forced
+     */
+    @Test
+    public void testForcedVertex() {
+        Multigraph<Integer, DefaultEdge> graph = new Multigraph<>(DefaultEdge.class);
+        graph.addVertex(0);
+        for (int i = 1; i <= 6; i += 2) {
+            graph.addVertex(i);
+            graph.addVertex(i + 1);
+            graph.addEdge(0, i);
+            graph.addEdge(i, i + 1);
+            graph.addEdge(i + 1, 0);
+        }
+        ReductionSolution solution = new ReductionSolution();
+        solution.reducedGraph = graph;
+
+        StronglyForcedVertexRule rule = new StronglyForcedVertexRule(null);
+        Set<Integer> changed = rule.apply(solution, 1);
+
+        assertEquals(new TreeSet<>(Arrays.asList(1, 2, 3, 4, 5, 6)), changed);
+        assertEquals(Collections.singletonList(0), solution.verticesToRemoved);
+        assertEquals(1, solution.ruleCounters.get(RuleCounters.SFV));
+        assertTrue(rule.apply(solution, 1).isEmpty());
+    }
 }
@@ -173,4 +173,59 @@ public class Splitter {
         assertSame(3, graph2.edgeSet().size());
     }
 
+    /**
+     * Two parallel edges form a cycle, so they must not be removed, only the edge to 2 is removed
+     #
+     # 0 = 1 - 2
+     */
+    @Test
+    public void testKeepParallelEdges() {
+        Multigraph<Integer, DefaultEdge> graph = new Multigraph<>(DefaultEdge.class);
+        graph.addVertex(0);
+        graph.addVertex(1);
+        graph.addVertex(2);
+        graph.addEdge(0, 1);
+        graph.addEdge(0, 1);
+        graph.addEdge(1, 2);
+        Alg.Kernelization.Splitter.removeEdgesNotInCylce(graph);
+
+        assertSame(2, graph.edgeSet().size());
+        assertTrue(! graph.containsEdge(1, 2));
+    }
+
+    /**
+     * The following graph has two blocks with a cycle, which share vertex 2. The edge 2-3 is not in a block
+     #   0       4
+     #  / \     /      # 1 - 2 - 3 - 5
+     #     |      #     6 - 7
+     */
+    @Test
+    public void testSplitBlocks() throws FileNotFoundException {
+        Multigraph<Integer, DefaultEdge> graph = this.loadGraph("instances/simple/002.graph");
+        graph.addVertex(6);
+        graph.addVertex(7);
+        graph.addEdge(2, 6);
+        graph.addEdge(6, 7);
+        graph.addEdge(7, 2);
+        List<Alg.Kernelization.Splitter.Block> blocks = Alg.Kernelization.Splitter.splitBlocks(graph);
+
+        assertSame(3, blocks.size());
+        assertSame(10, graph.edgeSet().size());
+
+        int roots = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            Alg.Kernelization.Splitter.Block block = blocks.get(i);
+            assertSame(3, block.graph.edgeSet().size());
+            if (block.parent < 0) {
+                roots++;
+            } else {
+                // Blocks come before the block they hang from, and share only the articulation point with it
+                assertTrue(block.parent > i);
+                assertTrue(block.articulationPoint == 2);
+                assertTrue(blocks.get(block.parent).graph.containsVertex(2));
+            }
+        }
+        assertSame(2, roots);
+    }
+
 }
@@ -0,0 +1,108 @@
+package Test.Lib;
+
+import Alg.Algorithms.IterativeCompression.IterativeCompression;
+import Alg.Anytime;
+import Alg.InputReader;
+import Alg.SplitSolve;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.time.Duration;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unittests for the cancellation of solvers
+ */
+public class Budget {
+
+    /**
+     * A budget is cancelled by cancel, by its deadline and by an interrupt, the unlimited budget by none of them
+     */
+    @Test
+    public void testCancelled() throws InterruptedException {
+        Alg.Lib.Budget budget = new Alg.Lib.Budget();
+        assertFalse(budget.isCancelled());
+        budget.cancel();
+        assertTrue(budget.isCancelled());
+
+        Alg.Lib.Budget timed = new Alg.Lib.Budget(Duration.ofMillis(20));
+        assertFalse(timed.isCancelled());
+        Thread.sleep(40);
+        assertTrue(timed.isCancelled());
+
+        Alg.Lib.Budget interrupted = new Alg.Lib.Budget();
+        Thread.currentThread().interrupt();
+        assertTrue(interrupted.isCancelled());
+        Alg.Lib.Budget.unlimited().cancel();
+        assertFalse(Alg.Lib.Budget.unlimited().isCancelled());
+        Thread.interrupted();
+    }
+
+    /**
+     * Check only throws once per INTERVAL calls, checkNow always
+     */
+    @Test
+    public void testCheck() {
+        Alg.Lib.Budget budget = new Alg.Lib.Budget();
+        budget.cancel();
+        int calls = 0;
+        try {
+            while (calls <= Alg.Lib.Budget.INTERVAL) {
+                calls++;
+                budget.check();
+            }
+            fail();
+        } catch (Alg.Lib.Budget.Cancelled ex) {
+            assertTrue(calls == Alg.Lib.Budget.INTERVAL);
+        }
+        try {
+            budget.checkNow();
+            fail();
+        } catch (Alg.Lib.Budget.Cancelled ex) {
+            assertTrue(ex.getCause() instanceof InterruptedException);
+        }
+    }
+
+    /**
+     * The installed budget is the current one while the task runs, and the previous one after
+     */
+    @Test
+    public void testCall() {
+        Alg.Lib.Budget before = Alg.Lib.Budget.current();
+        Alg.Lib.Budget budget = new Alg.Lib.Budget(Duration.ofSeconds(1));
+        assertSame(budget, budget.call(Alg.Lib.Budget::current));
+        assertSame(before, Alg.Lib.Budget.current());
+    }
+
+    /**
+     * A solver whose budget ends stops soon after, with a feedback vertex set of the whole graph
+     *
+     * @throws FileNotFoundException
+     */
+    @Test
+    public void testPartialSolution() throws FileNotFoundException {
+        Multigraph<Integer, DefaultEdge> graph = InputReader.readGraph(new Scanner(new File("instances/001.graph")));
+        SplitSolve alg = new SplitSolve(new IterativeCompression());
+
+        long start = System.nanoTime();
+        try {
+            new Alg.Lib.Budget(Duration.ofMillis(500)).call(
+                    () -> alg.findFeedbackVertexSet((Multigraph<Integer, DefaultEdge>) graph.clone()));
+            fail();
+        } catch (Alg.Lib.Budget.Cancelled ex) {
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            assertNotNull(ex.partial);
+            assertTrue(Anytime.isFeedbackVertexSet(graph, ex.partial));
+            assertTrue(millis < 2500);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package Test.Lib;
+
+import Alg.Lib.IntMultigraph;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Unittests for the canonical labelling
+ */
+public class CanonicalForm {
+
+    /**
+     * A graph and the same graph with its vertices renamed and added in another order get the same encoding
+     */
+    @Test
+    public void testRelabelled() {
+        Random random = new Random(1);
+        for (int t = 0; t < 200; t++) {
+            int n = 1 + random.nextInt(12);
+            int m = random.nextInt(3 * n);
+            int[][] edges = new int[m][];
+            for (int e = 0; e < m; e++) {
+                edges[e] = new int[]{random.nextInt(n), random.nextInt(n)};
+            }
+            int[] permutation = permutation(random, n);
+
+            IntMultigraph graph = new IntMultigraph(n);
+            IntMultigraph relabelled = new IntMultigraph(n);
+            for (int[] edge : edges) {
+                if (edge[0] != edge[1]) {
+                    graph.addEdge(edge[0], edge[1]);
+                }
+            }
+            for (int e = m - 1; e >= 0; e--) {
+                if (edges[e][0] != edges[e][1]) {
+                    relabelled.addEdge(permutation[edges[e][1]], permutation[edges[e][0]]);
+                }
+            }
+
+            Alg.Lib.CanonicalForm form = new Alg.Lib.CanonicalForm(graph);
+            Alg.Lib.CanonicalForm relabelledForm = new Alg.Lib.CanonicalForm(relabelled);
+            assertArrayEquals(form.encoding, relabelledForm.encoding);
+            assertEquals(form.hash(), relabelledForm.hash());
+
+            // The canonical order maps the edges of the graph to those of the encoding
+            int[] sorted = form.order.clone();
+            Arrays.sort(sorted);
+            assertArrayEquals(graph.vertices(), sorted);
+            for (int e = 0; e < form.encoding[1]; e++) {
+                int a = form.order[form.encoding[2 + 3 * e]];
+                int b = form.order[form.encoding[3 + 3 * e]];
+                assertEquals(graph.multiplicity(a, b), form.encoding[4 + 3 * e]);
+            }
+        }
+    }
+
+    /**
+     * A cycle on 6 vertices and two triangles have the same degrees, but are not isomorphic. Double edges count.
+     */
+    @Test
+    public void testNotIsomorphic() {
+        IntMultigraph cycle = new IntMultigraph(6);
+        IntMultigraph triangles = new IntMultigraph(6);
+        for (int i = 0; i < 6; i++) {
+            cycle.addEdge(i, (i + 1) % 6);
+            triangles.addEdge(i, i / 3 * 3 + (i + 1) % 3);
+        }
+        assertFalse(Arrays.equals(new Alg.Lib.CanonicalForm(cycle).encoding,
+                new Alg.Lib.CanonicalForm(triangles).encoding));
+
+        IntMultigraph doubled = cycle.copy();
+        doubled.addEdge(0, 1);
+        IntMultigraph other = cycle.copy();
+        other.addEdge(0, 2);
+        assertFalse(Arrays.equals(new Alg.Lib.CanonicalForm(doubled).encoding,
+                new Alg.Lib.CanonicalForm(other).encoding));
+    }
+
+    private static int[] permutation(Random random, int n) {
+        int[] permutation = new int[n];
+        for (int i = 0; i < n; i++) {
+            permutation[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = swap;
+        }
+        return permutation;
+    }
+}
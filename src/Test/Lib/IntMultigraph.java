@@ -0,0 +1,119 @@
+package Test.Lib;
+
+import Alg.InputReader;
+import Alg.Lib.IntGraph;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unittests for the compact int-array multigraph
+ */
+public class IntMultigraph {
+
+    /**
+     * Load in a graph from a file
+     *
+     * @param filename
+     * @return
+     * @throws FileNotFoundException
+     */
+    protected Multigraph<Integer, DefaultEdge> loadGraph(String filename) throws FileNotFoundException {
+        // Read from file
+        Scanner scanner = null;
+        scanner = new Scanner(new File(filename));
+        return InputReader.readGraph(scanner);
+    }
+
+    /**
+     * Converting the wheel to a compact graph and back must give the same graph
+     #
+     #   0
+     #  /|\
+     # 1-2-3
+     #  \|
+     #   4
+     */
+    @Test
+    public void testConvertBothWays() throws FileNotFoundException {
+        Multigraph<Integer, DefaultEdge> graph = this.loadGraph("instances/simple/001.graph");
+        IntGraph compact = Alg.Lib.IntMultigraph.fromMultigraph(graph);
+
+        assertEquals(5, compact.vertexCount());
+        assertEquals(7, compact.edgeCount());
+        for (int v: compact.vertices()) {
+            assertEquals(graph.degreeOf(compact.label(v)), compact.degreeOf(v));
+        }
+
+        Multigraph<Integer, DefaultEdge> back = Alg.Lib.IntMultigraph.toMultigraph(compact);
+        assertEquals(graph.vertexSet(), back.vertexSet());
+        assertEquals(7, back.edgeSet().size());
+        assertTrue(back.containsEdge(2, 4));
+        assertFalse(back.containsEdge(3, 4));
+    }
+
+    /**
+     * Parallel edges are counted in the degree, but stored only once
+     */
+    @Test
+    public void testParallelEdges() {
+        IntGraph graph = Alg.Lib.IntMultigraph.fromEdges(
+                new int[]{10, 11, 12},
+                new int[]{0, 1, 0, 1},
+                new int[]{1, 0, 2, 2},
+                4
+        );
+
+        assertEquals(3, graph.degreeOf(0));
+        assertEquals(2, graph.neighbourCount(0));
+        assertEquals(2, graph.multiplicity(0, 1));
+        assertEquals(2, graph.multiplicity(1, 0));
+
+        assertTrue(graph.removeEdge(1, 0));
+        assertEquals(1, graph.multiplicity(0, 1));
+        assertEquals(3, graph.edgeCount());
+
+        graph.addEdge(2, 1, 2);
+        assertEquals(3, graph.multiplicity(1, 2));
+        assertEquals(4, graph.degreeOf(1));
+        assertEquals(12, graph.label(2));
+    }
+
+    /**
+     * Removing a vertex updates its neighbours, and a copy is not affected
+     */
+    @Test
+    public void testRemoveVertexAndCopy() throws FileNotFoundException {
+        IntGraph graph = Alg.Lib.IntMultigraph.fromMultigraph(this.loadGraph("instances/simple/001.graph"));
+        IntGraph copy = graph.copy();
+
+        assertTrue(graph.removeVertex(2));
+        assertFalse(graph.removeVertex(2));
+        assertFalse(graph.containsVertex(2));
+        assertEquals(4, graph.vertexCount());
+        assertEquals(3, graph.edgeCount());
+        assertEquals(2, graph.degreeOf(0));
+        assertEquals(0, graph.multiplicity(0, 2));
+
+        assertTrue(copy.containsVertex(2));
+        assertEquals(7, copy.edgeCount());
+        assertEquals(3, copy.degreeOf(0));
+    }
+
+    /**
+     * Loops are not allowed, just like in jgrapht's Multigraph
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoLoops() {
+        IntGraph graph = new Alg.Lib.IntMultigraph(3);
+        graph.addEdge(1, 1);
+    }
+}
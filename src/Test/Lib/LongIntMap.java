@@ -0,0 +1,56 @@
+package Test.Lib;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unittests for the primitive hash map
+ */
+public class LongIntMap {
+
+    /**
+     * The map gives the same values as a HashMap, also after growing
+     */
+    @Test
+    public void testSameAsHashMap() {
+        Alg.Lib.LongIntMap map = new Alg.Lib.LongIntMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            // Keys that differ in their high bits only, and some that are equal
+            long key = (long) random.nextInt(3000) << 40;
+            map.put(key, i);
+            expected.put(key, i);
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals((int) entry.getValue(), map.get(entry.getKey(), -1));
+        }
+        assertEquals(-1, map.get(1L, -1));
+    }
+
+    /**
+     * After clearing, no key is in the map
+     */
+    @Test
+    public void testClear() {
+        Alg.Lib.LongIntMap map = new Alg.Lib.LongIntMap(4);
+        map.put(0L, 1);
+        map.put(-1L, 2);
+        assertTrue(map.containsKey(0L));
+
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(0L));
+        assertFalse(map.containsKey(-1L));
+    }
+}
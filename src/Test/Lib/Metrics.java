@@ -0,0 +1,89 @@
+package Test.Lib;
+
+import Alg.Algorithms.IterativeCompression.IterativeCompression;
+import Alg.InputReader;
+import Alg.InputWrapper;
+import Alg.SplitSolve;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unittests for the metrics
+ */
+public class Metrics {
+
+    @After
+    public void disable() {
+        Alg.Lib.Metrics.disable();
+    }
+
+    /**
+     * The metrics are off by default, and then record nothing
+     */
+    @Test
+    public void testDisabled() {
+        Alg.Lib.Metrics metrics = Alg.Lib.Metrics.get();
+        assertFalse(metrics.isEnabled());
+        metrics.counter("a").increment();
+        metrics.add("b", 3);
+        metrics.stop("stage.c", metrics.start());
+        assertTrue(metrics.snapshot().isEmpty());
+    }
+
+    /**
+     * Counters with the same name add up, also from several threads at once
+     */
+    @Test
+    public void testCounters() throws InterruptedException {
+        Alg.Lib.Metrics metrics = Alg.Lib.Metrics.enable();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                Alg.Lib.Metrics.Counter counter = metrics.counter("a");
+                for (int j = 0; j < 1000; j++) {
+                    counter.increment();
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        metrics.add("b", 3);
+        metrics.stop("stage.c", metrics.start());
+
+        Map<String, Long> snapshot = metrics.snapshot();
+        assertEquals(4000L, (long) snapshot.get("a"));
+        assertEquals(3L, (long) snapshot.get("b"));
+        assertEquals(1L, (long) snapshot.get("stage.c.calls"));
+        assertTrue(metrics.toJson().matches("\\{\"elapsed_ms\":\\d+,\"counters\":\\{\"a\":4000,\"b\":3,.*\\}\\}"));
+    }
+
+    /**
+     * Solving a graph records every stage of the pipeline
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testPipeline() throws IOException {
+        Alg.Lib.Metrics metrics = Alg.Lib.Metrics.enable();
+        InputWrapper input = InputReader.loopSafeReadGraph(new File("instances/003.graph"));
+        new SplitSolve(new IterativeCompression()).findFeedbackVertexSet(input.reductionSolution);
+
+        Map<String, Long> snapshot = metrics.snapshot();
+        for (String stage : new String[]{"parse", "split", "kernelize", "solve"}) {
+            assertTrue(stage, snapshot.getOrDefault("stage." + stage + ".calls", 0L) > 0);
+        }
+        assertTrue(snapshot.getOrDefault("kernel.rule2", 0L) > 0);
+        assertTrue(snapshot.getOrDefault("disjoint.nodes", 0L) > 0);
+        assertTrue(snapshot.getOrDefault("clone.count", 0L) > 0);
+    }
+}
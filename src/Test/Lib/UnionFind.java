@@ -0,0 +1,63 @@
+package Test.Lib;
+
+import Alg.Lib.IntGraph;
+import Alg.Lib.IntMultigraph;
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unittests for the union-find used for cycle checks
+ */
+public class UnionFind {
+
+    /**
+     * Union of two vertices in the same set closes a cycle
+     */
+    @Test
+    public void testUnion() {
+        Alg.Lib.UnionFind sets = new Alg.Lib.UnionFind(5);
+
+        assertTrue(sets.union(0, 1));
+        assertTrue(sets.union(2, 3));
+        assertFalse(sets.connected(1, 2));
+        assertTrue(sets.union(1, 3));
+        assertTrue(sets.connected(0, 2));
+        assertFalse(sets.union(0, 2));
+        assertFalse(sets.connected(0, 4));
+    }
+
+    /**
+     * Adding the vertices of a cycle one by one, only the last one closes the cycle. A double edge is a cycle too.
+     #
+     # 0-1-2-3-0, 4=5
+     */
+    @Test
+    public void testClosesCycle() {
+        IntGraph graph = IntMultigraph.fromEdges(
+                new int[]{0, 1, 2, 3, 4, 5},
+                new int[]{0, 1, 2, 3, 4, 4},
+                new int[]{1, 2, 3, 0, 5, 5},
+                6
+        );
+        Alg.Lib.UnionFind forest = new Alg.Lib.UnionFind(graph.capacity());
+        BitSet added = new BitSet();
+
+        for (int v = 0; v < 3; v++) {
+            assertFalse(forest.closesCycle(graph, v, added::get));
+            forest.join(graph, v, added::get);
+            added.set(v);
+        }
+        assertTrue(forest.closesCycle(graph, 3, added::get));
+
+        forest.join(graph, 4, added::get);
+        added.set(4);
+        assertTrue(forest.closesCycle(graph, 5, added::get));
+
+        assertFalse(forest.build(graph, (v) -> true));
+        assertTrue(forest.build(graph, (v) -> v != 3 && v != 5));
+    }
+}
@@ -1,5 +1,13 @@
 package Test;
 
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
 /**
  * Test for randomized algorithms
  */
@@ -13,4 +21,27 @@ public class Randomized extends FVSTest {
     public Randomized() {
         super(new Alg.Algorithms.Randomized.Randomized());
     }
-}
\ No newline at end of file
+
+    /**
+     * With the same seed, the trials in parallel must find the same solution as the trials in sequence
+     *
+     * @throws FileNotFoundException
+     */
+    @Test
+    public void testSameForSeed() throws FileNotFoundException {
+        int parallelFromTrials = Alg.Algorithms.Randomized.Randomized.parallelFromTrials;
+        Alg.Algorithms.Randomized.Randomized.parallelFromTrials = 1;
+        try {
+            for (String filename : new String[]{"instances/simple/003.graph", "instances/020.graph"}) {
+                List<Integer> sequential = new Alg.Algorithms.Randomized.Randomized(null, 42)
+                        .findFeedbackVertexSet(this.loadGraph(filename));
+                List<Integer> parallel = new Alg.Algorithms.Randomized.Randomized(new ForkJoinPool(4), 42)
+                        .findFeedbackVertexSet(this.loadGraph(filename));
+
+                assertEquals(filename, sequential, parallel);
+            }
+        } finally {
+            Alg.Algorithms.Randomized.Randomized.parallelFromTrials = parallelFromTrials;
+        }
+    }
+}
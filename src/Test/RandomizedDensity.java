@@ -1,5 +1,12 @@
 package Test;
 
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
 /**
  * Test for randomized algorithms
  */
@@ -13,4 +20,21 @@ public class RandomizedDensity extends FVSTest {
     public RandomizedDensity() {
         super(new Alg.Algorithms.Randomized.RandomizedDensity());
     }
-}
\ No newline at end of file
+
+    /**
+     * With the same seed, a run finds the same solution again
+     *
+     * @throws FileNotFoundException
+     */
+    @Test
+    public void testSameForSeed() throws FileNotFoundException {
+        for (String filename : new String[]{"instances/simple/003.graph", "instances/020.graph"}) {
+            List<Integer> first = new Alg.Algorithms.Randomized.RandomizedDensity(42)
+                    .findFeedbackVertexSet(this.loadGraph(filename));
+            List<Integer> second = new Alg.Algorithms.Randomized.RandomizedDensity(42)
+                    .findFeedbackVertexSet(this.loadGraph(filename));
+
+            assertEquals(filename, first, second);
+        }
+    }
+}
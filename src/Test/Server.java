@@ -0,0 +1,117 @@
+package Test;
+
+import Alg.Algorithms.IterativeCompression.IterativeCompression;
+import Alg.SplitSolve;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for solving graphs in a long running JVM
+ */
+public class Server {
+
+    /**
+     * The answers of a session come in the order of the requests, with the names of the vertices as in the input
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSession() throws IOException {
+        String requests = String.join("\n",
+                "FILE instances/096.graph",
+                "GRAPH",
+                "a b",
+                "b c",
+                "c a",
+                "END",
+                "UNKNOWN",
+                "FILE instances/does-not-exist.graph",
+                "FILE instances/050.graph",
+                "QUIT",
+                "FILE instances/096.graph");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Alg.Server server = new Alg.Server(new SplitSolve(new IterativeCompression()), 2)) {
+            server.serve(new ByteArrayInputStream(requests.getBytes(StandardCharsets.UTF_8)), out);
+        }
+
+        List<List<String>> answers = answers(new BufferedReader(new StringReader(out.toString("UTF-8"))), 5);
+        assertEquals(5, answers.size());
+        assertEquals(6, k(answers.get(0)));
+        assertEquals(1, k(answers.get(1)));
+        assertTrue(answers.get(1).get(0).matches("[abc]"));
+        assertTrue(answers.get(2).get(0).startsWith("ERROR unknown request"));
+        assertTrue(answers.get(3).get(0).startsWith("ERROR"));
+        assertEquals(7, k(answers.get(4)));
+    }
+
+    /**
+     * Sessions over connections to a socket
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSocket() throws Exception {
+        try (Alg.Server server = new Alg.Server(new SplitSolve(new IterativeCompression()), 2);
+             ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread accepting = new Thread(() -> server.serve(socket));
+            accepting.start();
+
+            for (int i = 0; i < 2; i++) {
+                try (Socket client = new Socket(InetAddress.getLoopbackAddress(), socket.getLocalPort())) {
+                    PrintWriter writer = new PrintWriter(client.getOutputStream(), true);
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream()));
+                    writer.println("FILE instances/083.graph");
+                    assertEquals(7, k(answers(reader, 1).get(0)));
+                    writer.println("QUIT");
+                }
+            }
+
+            socket.close();
+            accepting.join();
+        }
+    }
+
+    /**
+     * Reads the answers, an answer ends with a line starting with OK or ERROR
+     */
+    private static List<List<String>> answers(BufferedReader reader, int count) throws IOException {
+        List<List<String>> answers = new ArrayList<>();
+        List<String> answer = new ArrayList<>();
+        String line;
+        while (answers.size() < count && (line = reader.readLine()) != null) {
+            answer.add(line);
+            if (line.startsWith("OK") || line.startsWith("ERROR")) {
+                answers.add(answer);
+                answer = new ArrayList<>();
+            }
+        }
+        return answers;
+    }
+
+    /**
+     * The size of the solution, which must be the number of names before the OK line
+     */
+    private static int k(List<String> answer) {
+        String[] ok = answer.get(answer.size() - 1).split(" ");
+        assertEquals("OK", ok[0]);
+        int k = Integer.parseInt(ok[1]);
+        assertEquals(k, answer.size() - 1);
+        return k;
+    }
+}
@@ -0,0 +1,65 @@
+package Test;
+
+import Alg.InputReader;
+import Alg.Lib.IntGraph;
+import Alg.Lib.IntMultigraph;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for the disjoint FVS search on the compact graph
+ */
+public class SimpleDisjointAlg {
+
+    protected IntGraph loadGraph(String filename) throws FileNotFoundException {
+        Scanner scanner = new Scanner(new File(filename));
+        return IntMultigraph.fromMultigraph(InputReader.readGraph(scanner));
+    }
+
+    /**
+     * The search works on the graph itself, after it is done the graph must be the same as before
+     #
+     #   0
+     #  /|\
+     # 1-2-3
+     #  \|
+     #   4
+     */
+    @Test
+    public void testGraphIsRestored() throws FileNotFoundException {
+        IntGraph graph = this.loadGraph("instances/simple/001.graph");
+        IntGraph before = graph.copy();
+
+        BitSet prohibited = new BitSet();
+        prohibited.set(0);
+        prohibited.set(1);
+        Collection<Integer> solution = new Alg.Algorithms.IterativeCompression.SimpleDisjointAlg<Integer>()
+                .solve(graph, prohibited);
+
+        assertEquals(1, solution.size());
+        assertTrue(solution.contains(2));
+        assertEquals(2, prohibited.cardinality());
+
+        // No solution of size 0 exists disjoint from {2}
+        BitSet onlyCenter = new BitSet();
+        onlyCenter.set(2);
+        assertNull(new Alg.Algorithms.IterativeCompression.SimpleDisjointAlg<Integer>().solve(graph, onlyCenter));
+
+        assertEquals(before.vertexCount(), graph.vertexCount());
+        assertEquals(before.edgeCount(), graph.edgeCount());
+        for (int v : before.vertices()) {
+            for (int w : before.vertices()) {
+                assertEquals(before.multiplicity(v, w), graph.multiplicity(v, w));
+            }
+        }
+    }
+}
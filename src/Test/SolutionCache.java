@@ -0,0 +1,181 @@
+package Test;
+
+import Alg.Algorithms.IterativeCompression.IterativeCompression;
+import Alg.Anytime;
+import Alg.Lib.CanonicalForm;
+import Alg.Lib.IntMultigraph;
+import Alg.SplitSolve;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for solving with the solutions of kernels solved before
+ */
+public class SolutionCache extends FVSTest {
+
+    public SolutionCache() throws IOException {
+        super(cached(new Alg.SolutionCache(temporaryFile())));
+    }
+
+    /**
+     * Solving a graph again, with other names for its vertices, takes the kernels from the cache. The solution is for
+     * the new names, and as small as before.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testRelabelled() throws IOException {
+        try (Alg.SolutionCache cache = new Alg.SolutionCache(temporaryFile())) {
+            SplitSolve solver = cached(cache);
+            for (String filename : new String[]{"instances/096.graph", "instances/050.graph", "instances/083.graph"}) {
+                Multigraph<Integer, DefaultEdge> graph = this.loadGraph(filename);
+                List<Integer> solution = solver.findFeedbackVertexSet(reversed(graph));
+                long hits = cache.getHits();
+
+                List<Integer> again = solver.findFeedbackVertexSet(this.loadGraph(filename));
+
+                assertTrue(filename, cache.getHits() > hits);
+                assertEquals(filename, solution.size(), again.size());
+                assertTrue(filename, Anytime.isFeedbackVertexSet(graph, again));
+            }
+        }
+    }
+
+    /**
+     * What is stored stays in the file after closing it
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testReopen() throws IOException {
+        Path file = temporaryFile();
+        CanonicalForm form = new CanonicalForm(cycle(5));
+        try (Alg.SolutionCache cache = new Alg.SolutionCache(file, 16, 256)) {
+            assertNull(cache.get(form));
+            assertTrue(cache.put(form, new int[]{3}));
+        }
+        try (Alg.SolutionCache cache = new Alg.SolutionCache(file)) {
+            assertArrayEquals(new int[]{3}, cache.get(form));
+            assertNull(cache.get(new CanonicalForm(cycle(6))));
+        }
+    }
+
+    /**
+     * When the only set is full, the kernel used longest ago is replaced. Kernels too large for a slot are not stored.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testEviction() throws IOException {
+        try (Alg.SolutionCache cache = new Alg.SolutionCache(temporaryFile(), Alg.SolutionCache.WAYS, 256)) {
+            for (int n = 3; n < 3 + Alg.SolutionCache.WAYS; n++) {
+                assertTrue(cache.put(new CanonicalForm(cycle(n)), new int[]{n - 1}));
+            }
+            // Cycle 3 is used again, so cycle 4 goes
+            assertArrayEquals(new int[]{2}, cache.get(new CanonicalForm(cycle(3))));
+            assertTrue(cache.put(new CanonicalForm(cycle(12)), new int[0]));
+
+            assertNull(cache.get(new CanonicalForm(cycle(4))));
+            assertArrayEquals(new int[]{2}, cache.get(new CanonicalForm(cycle(3))));
+            assertArrayEquals(new int[]{4}, cache.get(new CanonicalForm(cycle(5))));
+            assertArrayEquals(new int[0], cache.get(new CanonicalForm(cycle(12))));
+
+            assertFalse(cache.put(new CanonicalForm(cycle(100)), new int[]{0}));
+        }
+    }
+
+    /**
+     * A stored solution that is not a set of positions of the kernel, as left by a damaged file, is not returned
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testDamaged() throws IOException {
+        Path file = temporaryFile();
+        CanonicalForm form = new CanonicalForm(cycle(5));
+        try (Alg.SolutionCache cache = new Alg.SolutionCache(file, 16, 256)) {
+            assertTrue(cache.put(form, new int[]{3}));
+        }
+
+        // Slots of 256 bytes after a header of 64, the solution after a slot header of 24 and the key
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int slot = 0; slot < 16; slot++) {
+                long offset = 64 + 256L * slot;
+                ByteBuffer used = ByteBuffer.allocate(8);
+                channel.read(used, offset + 8);
+                if (used.getLong(0) != 0) {
+                    channel.write(ByteBuffer.allocate(4).putInt(0, 99), offset + 24 + 4L * form.encoding.length);
+                }
+            }
+        }
+
+        try (Alg.SolutionCache cache = new Alg.SolutionCache(file)) {
+            assertNull(cache.get(form));
+        }
+    }
+
+    /**
+     * Only kernels whose canonical form can fit are worth the canonical form
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testFits() throws IOException {
+        try (Alg.SolutionCache cache = new Alg.SolutionCache(temporaryFile(), 16, 256)) {
+            assertTrue(cache.fits(5, 5));
+            assertFalse(cache.fits(40, 60));
+        }
+    }
+
+    private static SplitSolve cached(Alg.SolutionCache cache) {
+        SplitSolve solver = new SplitSolve(new IterativeCompression());
+        solver.setCache(cache);
+        return solver;
+    }
+
+    private static Path temporaryFile() throws IOException {
+        File file = File.createTempFile("solutions", ".cache");
+        file.deleteOnExit();
+        Files.delete(file.toPath());
+        return file.toPath();
+    }
+
+    /**
+     * A copy of the graph with the names of the vertices in reverse order
+     */
+    private static Multigraph<Integer, DefaultEdge> reversed(Multigraph<Integer, DefaultEdge> graph) {
+        int offset = 1_000_000;
+        Multigraph<Integer, DefaultEdge> copy = new Multigraph<>(DefaultEdge.class);
+        for (Integer v : graph.vertexSet()) {
+            copy.addVertex(offset - v);
+        }
+        for (DefaultEdge e : graph.edgeSet()) {
+            copy.addEdge(offset - graph.getEdgeSource(e), offset - graph.getEdgeTarget(e));
+        }
+        return copy;
+    }
+
+    private static IntMultigraph cycle(int n) {
+        IntMultigraph cycle = new IntMultigraph(n);
+        for (int i = 0; i < n; i++) {
+            cycle.addEdge(i, (i + 1) % n);
+        }
+        return cycle;
+    }
+}
@@ -0,0 +1,65 @@
+package Test;
+
+import Alg.Algorithms.IterativeCompression.IterativeCompression;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for solving the components in parallel
+ */
+public class SplitSolve extends FVSTest {
+
+    public SplitSolve() {
+        super(new Alg.SplitSolve(new IterativeCompression(), new ForkJoinPool(4)));
+    }
+
+    /**
+     * The parallel version must give the same solution, in the same order, as the sequential version
+     *
+     * @throws FileNotFoundException
+     */
+    @Test
+    public void testSameAsSequential() throws FileNotFoundException {
+        for (String filename : new String[]{"instances/096.graph", "instances/050.graph", "instances/083.graph"}) {
+            // The splitter changes the graph, so both get their own copy
+            List<Integer> sequential = new Alg.SplitSolve(new IterativeCompression())
+                    .findFeedbackVertexSet(this.loadGraph(filename));
+            List<Integer> parallel = this.alg.findFeedbackVertexSet(this.loadGraph(filename));
+
+            assertEquals(filename, sequential, parallel);
+        }
+    }
+
+    /**
+     * Two complete graphs on 4 vertices sharing vertex 0 are split into two blocks. Taking the shared vertex solves
+     * both at once, so the solution has size 3 and not 4
+     */
+    @Test
+    public void testArticulationPoint() {
+        Multigraph<Integer, DefaultEdge> graph = new Multigraph<>(DefaultEdge.class);
+        int[][] cliques = {{0, 1, 2, 3}, {0, 4, 5, 6}};
+        for (int[] clique : cliques) {
+            for (int v : clique) {
+                graph.addVertex(v);
+            }
+            for (int i = 0; i < clique.length; i++) {
+                for (int j = i + 1; j < clique.length; j++) {
+                    graph.addEdge(clique[i], clique[j]);
+                }
+            }
+        }
+
+        List<Integer> solution = new Alg.SplitSolve(new IterativeCompression()).findFeedbackVertexSet(graph);
+
+        assertEquals(3, solution.size());
+        assertTrue(solution.contains(0));
+    }
+}
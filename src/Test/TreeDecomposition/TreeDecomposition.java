@@ -0,0 +1,213 @@
+package Test.TreeDecomposition;
+
+import Alg.InputReader;
+import Alg.TreeDecomposition.Choice;
+import Alg.TreeDecomposition.Decomposition;
+import Alg.TreeDecomposition.DeGreedy;
+import Alg.TreeDecomposition.FixedOrderChoice;
+import Alg.TreeDecomposition.MinDegree;
+import Alg.TreeDecomposition.MinFill;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Random;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unittests for the tree decompositions
+ */
+public class TreeDecomposition {
+
+    /**
+     * The decompositions of random graphs are tree decompositions for every elimination order, also after making them
+     * nice
+     */
+    @Test
+    public void testRandomGraphs() {
+        Random random = new Random(3);
+        for (int t = 0; t < 100; t++) {
+            int n = 2 + random.nextInt(30);
+            Multigraph<Integer, DefaultEdge> graph = new Multigraph<>(DefaultEdge.class);
+            for (int v = 0; v < n; v++) {
+                graph.addVertex(v);
+            }
+            int m = random.nextInt(2 * n);
+            for (int e = 0; e < m; e++) {
+                int a = random.nextInt(n);
+                int b = random.nextInt(n);
+                if (a != b) graph.addEdge(a, b);
+            }
+
+            for (Choice choice : new Choice[]{new DeGreedy(), new FixedOrderChoice(), new MinDegree(), new MinFill()}) {
+                Decomposition root = Alg.TreeDecomposition.TreeDecomposition.makeTreeDecomposition(graph, choice, Integer.MAX_VALUE);
+                assertDecomposition(graph, root);
+                assertDecomposition(graph, Alg.TreeDecomposition.TreeDecomposition.makeNice(root));
+            }
+        }
+    }
+
+    /**
+     * The decomposition stops when the width gets more than the bound
+     */
+    @Test
+    public void testMaxWidth() {
+        // A clique of 6 vertices has treewidth 5
+        Multigraph<Integer, DefaultEdge> graph = new Multigraph<>(DefaultEdge.class);
+        for (int v = 0; v < 6; v++) {
+            graph.addVertex(v);
+            for (int w = 0; w < v; w++) {
+                graph.addEdge(v, w);
+            }
+        }
+
+        for (Choice choice : new Choice[]{new MinDegree(), new MinFill()}) {
+            assertNull(Alg.TreeDecomposition.TreeDecomposition.makeTreeDecomposition(graph, choice, 4));
+        }
+        Decomposition root = Alg.TreeDecomposition.TreeDecomposition.makeTreeDecomposition(graph, new MinFill(), 5);
+        assertEquals(5, root.treeWidth());
+    }
+
+    /**
+     * Min-fill finds the width of a cycle with chords
+     #
+     # A cycle 0..7 with the chords 0-2, 2-4, 4-6, 6-0 has treewidth 2
+     */
+    @Test
+    public void testMinFill() {
+        Multigraph<Integer, DefaultEdge> graph = new Multigraph<>(DefaultEdge.class);
+        for (int v = 0; v < 8; v++) {
+            graph.addVertex(v);
+        }
+        for (int v = 0; v < 8; v++) {
+            graph.addEdge(v, (v + 1) % 8);
+        }
+        for (int v = 0; v < 8; v += 2) {
+            graph.addEdge(v, (v + 2) % 8);
+        }
+
+        Decomposition root = Alg.TreeDecomposition.TreeDecomposition.makeTreeDecomposition(graph, new MinFill(), 2);
+        assertDecomposition(graph, root);
+        assertEquals(2, root.treeWidth());
+    }
+
+    /**
+     * The decomposition of an instance is a tree decomposition
+     *
+     * @throws FileNotFoundException
+     */
+    @Test
+    public void testInstance() throws FileNotFoundException {
+        Multigraph<Integer, DefaultEdge> graph = InputReader.loopSafeReadGraph(
+                new Scanner(new File("instances/096.graph"))).reductionSolution.reducedGraph;
+
+        int edges = graph.edgeSet().size();
+
+        Decomposition root = Alg.TreeDecomposition.TreeDecomposition.makeTreeDecomposition(graph);
+        assertDecomposition(graph, root);
+        assertEquals(edges, graph.edgeSet().size());
+    }
+
+    /**
+     * Decompositions of thousands of bags deep are made nice and solved without running out of stack
+     #
+     # A cycle of 20000 vertices, eliminated in the order of the cycle
+     */
+    @Test
+    public void testDeep() throws InterruptedException {
+        int n = 20000;
+        Multigraph<Integer, DefaultEdge> graph = new Multigraph<>(DefaultEdge.class);
+        for (int v = 0; v < n; v++) {
+            graph.addVertex(v);
+        }
+        for (int v = 0; v < n; v++) {
+            graph.addEdge(v, (v + 1) % n);
+        }
+
+        int[] result = new int[2];
+        Thread small = new Thread(null, () -> {
+            Decomposition decomposition = Alg.TreeDecomposition.TreeDecomposition.makeTreeDecomposition(
+                    graph, new FixedOrderChoice(), Integer.MAX_VALUE);
+            Decomposition nice = Alg.TreeDecomposition.TreeDecomposition.makeNice(decomposition);
+            result[0] = nice.treeWidth();
+            result[1] = new Alg.Algorithms.TreewidthDP.TreewidthDP().findFeedbackVertexSet(graph, nice).size();
+        }, "small stack", 256 * 1024);
+        small.start();
+        small.join();
+
+        assertEquals(2, result[0]);
+        assertEquals(1, result[1]);
+    }
+
+    /**
+     * Every bag of a nice decomposition is a leaf, an introduce, a forget or a join bag, and the root is empty
+     */
+    @Test
+    public void testNice() {
+        Random random = new Random(4);
+        for (int t = 0; t < 50; t++) {
+            int n = 2 + random.nextInt(30);
+            Multigraph<Integer, DefaultEdge> graph = new Multigraph<>(DefaultEdge.class);
+            for (int v = 0; v < n; v++) {
+                graph.addVertex(v);
+            }
+            for (int e = random.nextInt(3 * n); e > 0; e--) {
+                int a = random.nextInt(n);
+                int b = random.nextInt(n);
+                if (a != b) graph.addEdge(a, b);
+            }
+
+            Decomposition decomposition = Alg.TreeDecomposition.TreeDecomposition.makeTreeDecomposition(graph);
+            Decomposition nice = Alg.TreeDecomposition.TreeDecomposition.makeNice(decomposition);
+
+            assertEquals(decomposition.treeWidth(), nice.treeWidth());
+            assertEquals(0, nice.bagSize(nice.root()));
+            for (int b : nice.preorder()) {
+                int children = nice.childCount(b);
+                assertTrue(children <= 2);
+                if (children == 0) {
+                    assertEquals(0, nice.bagSize(b));
+                }
+                for (int c = nice.firstChild(b); c >= 0; c = nice.nextSibling(c)) {
+                    int difference = Math.abs(nice.bagSize(b) - nice.bagSize(c));
+                    assertEquals(children == 2 ? 0 : 1, difference);
+                }
+            }
+        }
+    }
+
+    /**
+     * Every edge is in a bag, and the bags of every vertex form a subtree
+     */
+    private static void assertDecomposition(Multigraph<Integer, DefaultEdge> graph, Decomposition decomposition) {
+        int[] bags = decomposition.preorder();
+        assertEquals(decomposition.size(), bags.length);
+
+        for (DefaultEdge e : graph.edgeSet()) {
+            boolean covered = false;
+            for (int bag : bags) {
+                covered |= decomposition.contains(bag, graph.getEdgeSource(e))
+                        && decomposition.contains(bag, graph.getEdgeTarget(e));
+            }
+            assertTrue(e.toString(), covered);
+        }
+
+        for (Integer v : graph.vertexSet()) {
+            // A subtree has exactly one bag whose parent does not have the vertex
+            int tops = 0;
+            for (int bag : bags) {
+                int parent = decomposition.parent(bag);
+                if (decomposition.contains(bag, v) && (parent < 0 || !decomposition.contains(parent, v))) {
+                    tops++;
+                }
+            }
+            assertEquals("vertex " + v, 1, tops);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package Test;
+
+import Alg.SplitSolve;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Multigraph;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for the dynamic programming over tree decompositions
+ */
+public class TreewidthDP extends FVSTest {
+
+    public TreewidthDP() {
+        super(new SplitSolve(new Alg.Algorithms.TreewidthDP.TreewidthDP()));
+    }
+
+    /**
+     * Kernels of small treewidth are solved by the dynamic programming, also those that iterative compression takes
+     * very long for
+     *
+     * @throws FileNotFoundException
+     */
+    @Test
+    public void testInstances() throws FileNotFoundException {
+        String[] filenames = {"instances/096.graph", "instances/091.graph", "instances/065.graph"};
+        int[] ks = {6, 21, 21};
+        for (int i = 0; i < filenames.length; i++) {
+            Multigraph<Integer, DefaultEdge> graph = this.loadGraph(filenames[i]);
+            List<Integer> solution = new SplitSolve(new Alg.Algorithms.IterativeCompression.IterativeCompression(), null, 8)
+                    .findFeedbackVertexSet((Multigraph<Integer, DefaultEdge>) graph.clone());
+
+            assertEquals(filenames[i], ks[i], solution.size());
+            assertTrue(filenames[i], Alg.Anytime.isFeedbackVertexSet(graph, solution));
+        }
+    }
+
+    /**
+     * On random graphs the solutions are as small as those of iterative compression
+     */
+    @Test
+    public void testRandomGraphs() {
+        Random random = new Random(17);
+        for (int t = 0; t < 200; t++) {
+            int n = 4 + random.nextInt(20);
+            Multigraph<Integer, DefaultEdge> graph = new Multigraph<>(DefaultEdge.class);
+            for (int v = 0; v < n; v++) {
+                graph.addVertex(v);
+            }
+            int m = n + random.nextInt(n + 1);
+            for (int e = 0; e < m; e++) {
+                int a = random.nextInt(n);
+                int b = random.nextInt(n);
+                if (a != b) graph.addEdge(a, b);
+            }
+
+            List<Integer> solution = this.alg.findFeedbackVertexSet((Multigraph<Integer, DefaultEdge>) graph.clone());
+            List<Integer> expected = new SplitSolve(new Alg.Algorithms.IterativeCompression.IterativeCompression())
+                    .findFeedbackVertexSet((Multigraph<Integer, DefaultEdge>) graph.clone());
+
+            assertTrue(Alg.Anytime.isFeedbackVertexSet(graph, solution));
+            assertEquals(expected.size(), solution.size());
+        }
+    }
+
+    /**
+     * No decomposition is given when the width is too large
+     */
+    @Test
+    public void testTooWide() {
+        Multigraph<Integer, DefaultEdge> graph = new Multigraph<>(DefaultEdge.class);
+        for (int v = 0; v < 6; v++) {
+            graph.addVertex(v);
+            for (int w = 0; w < v; w++) {
+                graph.addEdge(v, w);
+            }
+        }
+
+        assertNull(Alg.Algorithms.TreewidthDP.TreewidthDP.decompose(graph, 4));
+        assertEquals(4, new Alg.Algorithms.TreewidthDP.TreewidthDP(5).findFeedbackVertexSet(graph).size());
+    }
+}